@@ -0,0 +1,87 @@
+/*
+ *  Copyright: (c) 2019 Mayo Foundation for Medical Education and
+ *  Research (MFMER). All rights reserved. MAYO, MAYO CLINIC, and the
+ *  triple-shield Mayo logo are trademarks and service marks of MFMER.
+ *
+ *  Except as contained in the copyright notice above, or as used to identify
+ *  MFMER as the author of this software, the trade names, trademarks, service
+ *  marks, or product names of the copyright holder shall not be used in
+ *  advertising, promotion or otherwise in connection with this software without
+ *  prior written authorization of the copyright holder.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.ohnlp.elasticsearchnlp.benchmarks;
+
+import opennlp.tools.util.Span;
+import org.ohnlp.elasticsearchnlp.analyzers.NLPModelRegistry;
+import org.ohnlp.elasticsearchnlp.perf.AnnotationRoot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserts into and queries an {@link AnnotationRoot} with the token spans of a note, which approximates the number
+ * and distribution of the trigger spans that are indexed while flattening triggers by priority
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnnotationIndexBenchmark {
+
+    @Param({"SHORT", "TYPICAL", "PATHOLOGICAL"})
+    public ClinicalNote note;
+
+    private Span[] spans;
+    private AnnotationRoot populated;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.initialize();
+        spans = NLPModelRegistry.get().newTokenizer().tokenizePos(note.text());
+        populated = new AnnotationRoot();
+        for (Span span : spans) {
+            populated.insert(span);
+        }
+    }
+
+    @Benchmark
+    public AnnotationRoot insert() {
+        AnnotationRoot root = new AnnotationRoot();
+        for (Span span : spans) {
+            root.insert(span);
+        }
+        return root;
+    }
+
+    @Benchmark
+    public void getCollisions(Blackhole bh) {
+        for (Span span : spans) {
+            bh.consume(populated.getCollisions(span.getStart(), span.getEnd()));
+        }
+    }
+}
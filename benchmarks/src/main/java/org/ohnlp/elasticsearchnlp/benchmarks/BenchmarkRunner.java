@@ -0,0 +1,54 @@
+/*
+ *  Copyright: (c) 2019 Mayo Foundation for Medical Education and
+ *  Research (MFMER). All rights reserved. MAYO, MAYO CLINIC, and the
+ *  triple-shield Mayo logo are trademarks and service marks of MFMER.
+ *
+ *  Except as contained in the copyright notice above, or as used to identify
+ *  MFMER as the author of this software, the trade names, trademarks, service
+ *  marks, or product names of the copyright holder shall not be used in
+ *  advertising, promotion or otherwise in connection with this software without
+ *  prior written authorization of the copyright holder.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.ohnlp.elasticsearchnlp.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks selected by the given JMH command line options, always with the GC profiler enabled such that
+ * allocation rates (gc.alloc.rate.norm, in bytes per operation) are reported alongside timings
+ */
+public final class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp()) {
+            commandLine.showHelp();
+            return;
+        }
+        if (commandLine.shouldList()) {
+            new Runner(commandLine).list();
+            return;
+        }
+        Options options = new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
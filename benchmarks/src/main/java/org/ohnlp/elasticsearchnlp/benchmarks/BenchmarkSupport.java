@@ -0,0 +1,58 @@
+/*
+ *  Copyright: (c) 2019 Mayo Foundation for Medical Education and
+ *  Research (MFMER). All rights reserved. MAYO, MAYO CLINIC, and the
+ *  triple-shield Mayo logo are trademarks and service marks of MFMER.
+ *
+ *  Except as contained in the copyright notice above, or as used to identify
+ *  MFMER as the author of this software, the trade names, trademarks, service
+ *  marks, or product names of the copyright holder shall not be used in
+ *  advertising, promotion or otherwise in connection with this software without
+ *  prior written authorization of the copyright holder.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.ohnlp.elasticsearchnlp.benchmarks;
+
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import org.ohnlp.elasticsearchnlp.ElasticsearchNLPPlugin;
+import org.ohnlp.elasticsearchnlp.analyzers.NLPModelRegistry;
+import org.ohnlp.elasticsearchnlp.config.Config;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Sets up the global plugin state that an Elasticsearch node would otherwise set up on startup
+ */
+public final class BenchmarkSupport {
+
+    private BenchmarkSupport() {}
+
+    /**
+     * Loads the bundled default config and all models, if not already loaded
+     */
+    public static synchronized void initialize() {
+        if (ElasticsearchNLPPlugin.CONFIG == null) {
+            ObjectMapper om = new ObjectMapper(new YAMLFactory());
+            om.disable(MapperFeature.CAN_OVERRIDE_ACCESS_MODIFIERS);
+            try (InputStream config = BenchmarkSupport.class.getResourceAsStream("/elasticsearch-nlp-plugin.yml")) {
+                ElasticsearchNLPPlugin.CONFIG = om.treeToValue(om.readTree(config).get("esnlp"), Config.class);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not load the bundled config", e);
+            }
+        }
+        NLPModelRegistry.initialize();
+    }
+}
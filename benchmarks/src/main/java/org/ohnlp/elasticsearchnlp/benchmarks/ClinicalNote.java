@@ -0,0 +1,80 @@
+/*
+ *  Copyright: (c) 2019 Mayo Foundation for Medical Education and
+ *  Research (MFMER). All rights reserved. MAYO, MAYO CLINIC, and the
+ *  triple-shield Mayo logo are trademarks and service marks of MFMER.
+ *
+ *  Except as contained in the copyright notice above, or as used to identify
+ *  MFMER as the author of this software, the trade names, trademarks, service
+ *  marks, or product names of the copyright holder shall not be used in
+ *  advertising, promotion or otherwise in connection with this software without
+ *  prior written authorization of the copyright holder.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.ohnlp.elasticsearchnlp.benchmarks;
+
+/**
+ * Clinical note inputs of increasing size and difficulty
+ */
+public enum ClinicalNote {
+    /**
+     * A single short sentence, as in a problem list entry or a query
+     */
+    SHORT("Patient denies chest pain."),
+    /**
+     * A progress note of typical length (~1.5k characters) with a mix of negated, historical, hypothetical and family
+     * history mentions
+     */
+    TYPICAL("CHIEF COMPLAINT: Chest pain.\n" +
+            "HISTORY OF PRESENT ILLNESS: The patient is a 67 year old male with a history of hypertension and type 2 " +
+            "diabetes mellitus who presents with two days of intermittent substernal chest pain radiating to the left " +
+            "arm. He denies shortness of breath, diaphoresis or nausea. No fever or chills. He reports a prior " +
+            "myocardial infarction in 2012 treated with a stent. Possible pneumonia on outside chest x-ray.\n" +
+            "PAST MEDICAL HISTORY: Hypertension. Diabetes mellitus. Hyperlipidemia. History of stroke without " +
+            "residual deficits.\n" +
+            "FAMILY HISTORY: Mother with breast cancer. Father died of myocardial infarction at age 60. Brother has " +
+            "diabetes.\n" +
+            "SOCIAL HISTORY: Former smoker, quit 10 years ago. Denies alcohol or drug use.\n" +
+            "REVIEW OF SYSTEMS: Negative for headache, vision changes, cough, abdominal pain, dysuria or rash. " +
+            "Positive for fatigue.\n" +
+            "PHYSICAL EXAM: Blood pressure 152/88, heart rate 92. Lungs clear to auscultation bilaterally without " +
+            "wheezes or crackles. Heart regular rate and rhythm, no murmurs. No lower extremity edema.\n" +
+            "ASSESSMENT AND PLAN: Chest pain, rule out acute coronary syndrome. Troponin pending. If troponin is " +
+            "elevated, will consult cardiology for catheterization. Unlikely to be pulmonary embolism given low " +
+            "pretest probability. Continue aspirin and statin. Return if symptoms worsen.\n"),
+    /**
+     * A single run-on "sentence" of ~64k characters that is dense in overlapping triggers of all types, as produced by
+     * e.g. concatenated templated fields without sentence punctuation. This stresses trigger scoping and
+     * priority flattening, whose cost grows with the number of triggers per sentence
+     */
+    PATHOLOGICAL(repeat("no fever or chills, possible pneumonia versus bronchitis, history of stroke, mother with " +
+            "diabetes, denies nausea and vomiting, if pain worsens return, ", 64 * 1024));
+
+    private final String text;
+
+    ClinicalNote(String text) {
+        this.text = text;
+    }
+
+    public String text() {
+        return text;
+    }
+
+    private static String repeat(String fragment, int length) {
+        StringBuilder sb = new StringBuilder(length + fragment.length());
+        while (sb.length() < length) {
+            sb.append(fragment);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ *  Copyright: (c) 2019 Mayo Foundation for Medical Education and
+ *  Research (MFMER). All rights reserved. MAYO, MAYO CLINIC, and the
+ *  triple-shield Mayo logo are trademarks and service marks of MFMER.
+ *
+ *  Except as contained in the copyright notice above, or as used to identify
+ *  MFMER as the author of this software, the trade names, trademarks, service
+ *  marks, or product names of the copyright holder shall not be used in
+ *  advertising, promotion or otherwise in connection with this software without
+ *  prior written authorization of the copyright holder.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.ohnlp.elasticsearchnlp.benchmarks;
+
+import opennlp.tools.util.Span;
+import org.ohnlp.elasticsearchnlp.analyzers.NLPModelRegistry;
+import org.ohnlp.elasticsearchnlp.analyzers.NLPTokenizer;
+import org.ohnlp.elasticsearchnlp.context.ConTexTTrigger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The ConText stages of {@link NLPTokenizer} in isolation, each run over the whole note as a single span of text
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConTextBenchmark {
+
+    @Param({"SHORT", "TYPICAL", "PATHOLOGICAL"})
+    public ClinicalNote note;
+
+    private String text;
+    private NLPTokenizer tokenizer;
+    private Deque<Map<ConTexTTrigger.TriggerType, List<ConTexTTrigger>>> triggersByPriority;
+    private Map<ConTexTTrigger.TriggerType, List<ConTexTTrigger>> triggers;
+    private Span[] tokens;
+    private short[] flags;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.initialize();
+        text = note.text();
+        tokenizer = new NLPTokenizer();
+        triggersByPriority = tokenizer.getTriggers(text);
+        triggers = tokenizer.flattenByPriority(new ArrayDeque<>(triggersByPriority));
+        tokens = NLPModelRegistry.get().newTokenizer().tokenizePos(text);
+        flags = new short[text.length()];
+    }
+
+    @Benchmark
+    public Deque<Map<ConTexTTrigger.TriggerType, List<ConTexTTrigger>>> getTriggers() {
+        return tokenizer.getTriggers(text);
+    }
+
+    @Benchmark
+    public Map<ConTexTTrigger.TriggerType, List<ConTexTTrigger>> flattenByPriority() {
+        // Flattening consumes the deque, so it is run on a (cheap, shallow) copy
+        return tokenizer.flattenByPriority(new ArrayDeque<>(triggersByPriority));
+    }
+
+    @Benchmark
+    public short[] annotateConTextStatuses() {
+        Arrays.fill(flags, (short) 0);
+        tokenizer.annotateConTextStatuses(triggers, text, tokens, flags, 0);
+        return flags;
+    }
+}
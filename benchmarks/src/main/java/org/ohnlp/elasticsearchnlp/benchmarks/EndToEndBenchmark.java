@@ -0,0 +1,100 @@
+/*
+ *  Copyright: (c) 2019 Mayo Foundation for Medical Education and
+ *  Research (MFMER). All rights reserved. MAYO, MAYO CLINIC, and the
+ *  triple-shield Mayo logo are trademarks and service marks of MFMER.
+ *
+ *  Except as contained in the copyright notice above, or as used to identify
+ *  MFMER as the author of this software, the trade names, trademarks, service
+ *  marks, or product names of the copyright holder shall not be used in
+ *  advertising, promotion or otherwise in connection with this software without
+ *  prior written authorization of the copyright holder.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.ohnlp.elasticsearchnlp.benchmarks;
+
+import org.HdrHistogram.Histogram;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.ohnlp.elasticsearchnlp.analyzers.NLPAnalyzer;
+import org.ohnlp.elasticsearchnlp.analyzers.NLPQueryAnalysisCache;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Locale;
+
+/**
+ * Indexes a {@link SyntheticCorpus} into an {@link InMemoryIndex} and runs each {@link QueryWorkload} against it from a
+ * single thread, reporting indexing throughput, index size and query latency percentiles. Options (as
+ * {@code --name=value}) are those of {@link HarnessOptions#corpus()}, and:
+ * <ul>
+ *     <li>docs: the number of documents to index (default 10000)</li>
+ *     <li>queries: the number of distinct queries per workload (default 1000)</li>
+ *     <li>warmup: the number of passes over the queries before measuring (default 3)</li>
+ *     <li>iterations: the number of measured passes over the queries (default 5)</li>
+ *     <li>top: the number of hits to collect per query (default 10)</li>
+ *     <li>workloads: a comma separated list of {@link QueryWorkload}s (default all)</li>
+ * </ul>
+ * Query analysis and construction happen before measuring, so latencies cover {@link IndexSearcher#search} alone.
+ */
+public final class EndToEndBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        HarnessOptions options = new HarnessOptions(args);
+        int numDocs = options.getInt("docs", 10000);
+        int numQueries = options.getInt("queries", 1000);
+        int warmup = options.getInt("warmup", 3);
+        int iterations = options.getInt("iterations", 5);
+        int top = options.getInt("top", 10);
+        String workloads = options.getString("workloads", "TERM,BOOLEAN,CONCEPT");
+        PrintStream out = System.out;
+
+        BenchmarkSupport.initialize();
+        SyntheticCorpus corpus = options.corpus();
+        try (InMemoryIndex index = InMemoryIndex.build(corpus, numDocs)) {
+            double seconds = index.getIndexingNanos() / 1e9;
+            long size = index.getSizeInBytes();
+            out.printf(Locale.ROOT, "Indexed %d docs (%.1f MB of text) in %.2f s: %.0f docs/s, %.2f MB/s%n", numDocs,
+                    index.getTextChars() / 1e6, seconds, numDocs / seconds, index.getTextChars() / 1e6 / seconds);
+            out.printf(Locale.ROOT, "Index size: %.2f MB (%.0f bytes/doc) in %d segments%n", size / 1e6,
+                    (double) size / numDocs, index.getReader().leaves().size());
+            out.println();
+
+            IndexSearcher searcher = new IndexSearcher(index.getReader());
+            NLPQueryAnalysisCache analysis = new NLPQueryAnalysisCache(new NLPAnalyzer());
+            out.println("Query latency (us):");
+            LatencyReport.printHeader(out);
+            for (String name : workloads.split(",")) {
+                QueryWorkload workload = QueryWorkload.valueOf(name.trim().toUpperCase(Locale.ROOT));
+                Query[] queries = new Query[numQueries];
+                for (int i = 0; i < numQueries; i++) {
+                    queries[i] = workload.toQuery(analysis, InMemoryIndex.FIELD, corpus.query(i));
+                }
+                for (int pass = 0; pass < warmup; pass++) {
+                    for (Query query : queries) {
+                        searcher.search(query, top);
+                    }
+                }
+                Histogram latencies = LatencyReport.newHistogram();
+                for (int pass = 0; pass < iterations; pass++) {
+                    for (Query query : queries) {
+                        long start = System.nanoTime();
+                        searcher.search(query, top);
+                        latencies.recordValue(System.nanoTime() - start);
+                    }
+                }
+                LatencyReport.print(out, workload.name(), latencies);
+            }
+        }
+    }
+}
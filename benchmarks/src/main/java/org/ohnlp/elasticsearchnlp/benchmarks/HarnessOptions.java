@@ -0,0 +1,79 @@
+/*
+ *  Copyright: (c) 2019 Mayo Foundation for Medical Education and
+ *  Research (MFMER). All rights reserved. MAYO, MAYO CLINIC, and the
+ *  triple-shield Mayo logo are trademarks and service marks of MFMER.
+ *
+ *  Except as contained in the copyright notice above, or as used to identify
+ *  MFMER as the author of this software, the trade names, trademarks, service
+ *  marks, or product names of the copyright holder shall not be used in
+ *  advertising, promotion or otherwise in connection with this software without
+ *  prior written authorization of the copyright holder.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.ohnlp.elasticsearchnlp.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Options of the benchmark harnesses, given on the command line as {@code --name=value}
+ */
+public final class HarnessOptions {
+
+    private final Map<String, String> values = new HashMap<>();
+
+    public HarnessOptions(String[] args) {
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("Expected an option of the form --name=value, got " + arg);
+            }
+            values.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+    }
+
+    public String getString(String name, String defaultValue) {
+        return values.getOrDefault(name, defaultValue);
+    }
+
+    public int getInt(String name, int defaultValue) {
+        String value = values.get(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    public long getLong(String name, long defaultValue) {
+        String value = values.get(name);
+        return value == null ? defaultValue : Long.parseLong(value);
+    }
+
+    public double getDouble(String name, double defaultValue) {
+        String value = values.get(name);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+
+    /**
+     * @return A corpus configured by the {@code seed}, {@code sentences}, {@code concepts}, {@code negation},
+     * {@code historical}, {@code experiencer} and {@code skew} options
+     */
+    public SyntheticCorpus corpus() {
+        return new SyntheticCorpus.Builder()
+                .setSeed(getLong("seed", 42))
+                .setSentencesPerDocument(getInt("sentences", 20))
+                .setConceptsPerSentence(getInt("concepts", 4))
+                .setTriggerDensities(getDouble("negation", 0.2), getDouble("historical", 0.1),
+                        getDouble("experiencer", 0.05))
+                .setVocabularySkew(getDouble("skew", 1.0))
+                .build();
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ *  Copyright: (c) 2019 Mayo Foundation for Medical Education and
+ *  Research (MFMER). All rights reserved. MAYO, MAYO CLINIC, and the
+ *  triple-shield Mayo logo are trademarks and service marks of MFMER.
+ *
+ *  Except as contained in the copyright notice above, or as used to identify
+ *  MFMER as the author of this software, the trade names, trademarks, service
+ *  marks, or product names of the copyright holder shall not be used in
+ *  advertising, promotion or otherwise in connection with this software without
+ *  prior written authorization of the copyright holder.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.ohnlp.elasticsearchnlp.benchmarks;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.ohnlp.elasticsearchnlp.analyzers.NLPAnalyzer;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A synthetic corpus indexed with {@link NLPAnalyzer} into an in-memory directory
+ */
+public final class InMemoryIndex implements Closeable {
+
+    public static final String FIELD = "body";
+
+    private final ByteBuffersDirectory directory;
+    private final DirectoryReader reader;
+    private final int numDocs;
+    private final long indexingNanos;
+    private final long textChars;
+
+    private InMemoryIndex(ByteBuffersDirectory directory, int numDocs, long indexingNanos, long textChars)
+            throws IOException {
+        this.directory = directory;
+        this.reader = DirectoryReader.open(directory);
+        this.numDocs = numDocs;
+        this.indexingNanos = indexingNanos;
+        this.textChars = textChars;
+    }
+
+    /**
+     * Indexes the first numDocs documents of the corpus. Only analysis and indexing (including the final commit) are
+     * timed, not document generation
+     */
+    public static InMemoryIndex build(SyntheticCorpus corpus, int numDocs) throws IOException {
+        return build(corpus, numDocs, IndexWriterConfig.DISABLE_AUTO_FLUSH);
+    }
+
+    /**
+     * As {@link #build(SyntheticCorpus, int)}, additionally flushing a segment every maxBufferedDocs documents (or
+     * {@link IndexWriterConfig#DISABLE_AUTO_FLUSH}) to obtain an index of several segments
+     */
+    public static InMemoryIndex build(SyntheticCorpus corpus, int numDocs, int maxBufferedDocs) throws IOException {
+        ByteBuffersDirectory directory = new ByteBuffersDirectory();
+        IndexWriterConfig config = new IndexWriterConfig(new NLPAnalyzer());
+        config.setRAMBufferSizeMB(64);
+        config.setMaxBufferedDocs(maxBufferedDocs);
+        long nanos = 0;
+        long chars = 0;
+        try (IndexWriter writer = new IndexWriter(directory, config)) {
+            for (int i = 0; i < numDocs; i++) {
+                String text = corpus.document(i);
+                chars += text.length();
+                Document doc = new Document();
+                doc.add(new TextField(FIELD, text, Field.Store.NO));
+                long start = System.nanoTime();
+                writer.addDocument(doc);
+                nanos += System.nanoTime() - start;
+            }
+            long start = System.nanoTime();
+            writer.commit();
+            nanos += System.nanoTime() - start;
+        }
+        return new InMemoryIndex(directory, numDocs, nanos, chars);
+    }
+
+    public DirectoryReader getReader() {
+        return reader;
+    }
+
+    public int getNumDocs() {
+        return numDocs;
+    }
+
+    public long getIndexingNanos() {
+        return indexingNanos;
+    }
+
+    public long getTextChars() {
+        return textChars;
+    }
+
+    /**
+     * @return The total size of all files of the index
+     */
+    public long getSizeInBytes() throws IOException {
+        long size = 0;
+        for (String file : directory.listAll()) {
+            size += directory.fileLength(file);
+        }
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+        directory.close();
+    }
+}
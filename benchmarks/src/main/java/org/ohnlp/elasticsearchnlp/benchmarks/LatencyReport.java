@@ -0,0 +1,72 @@
+/*
+ *  Copyright: (c) 2019 Mayo Foundation for Medical Education and
+ *  Research (MFMER). All rights reserved. MAYO, MAYO CLINIC, and the
+ *  triple-shield Mayo logo are trademarks and service marks of MFMER.
+ *
+ *  Except as contained in the copyright notice above, or as used to identify
+ *  MFMER as the author of this software, the trade names, trademarks, service
+ *  marks, or product names of the copyright holder shall not be used in
+ *  advertising, promotion or otherwise in connection with this software without
+ *  prior written authorization of the copyright holder.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.ohnlp.elasticsearchnlp.benchmarks;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+/**
+ * Formats latency histograms recorded in nanoseconds
+ */
+public final class LatencyReport {
+
+    private static final double[] PERCENTILES = {50, 90, 95, 99, 99.9};
+
+    private LatencyReport() {}
+
+    /**
+     * @return A histogram for latencies in nanoseconds with 3 significant digits, which grows to fit any latency as
+     * they become unbounded past saturation
+     */
+    public static Histogram newHistogram() {
+        return new Histogram(3);
+    }
+
+    /**
+     * Prints the header line for {@link #print(PrintStream, String, Histogram)}
+     */
+    public static void printHeader(PrintStream out) {
+        out.printf("%-24s %10s %10s", "", "count", "mean");
+        for (double percentile : PERCENTILES) {
+            out.printf(" %10s", "p" + format(percentile));
+        }
+        out.printf(" %10s%n", "max");
+    }
+
+    /**
+     * Prints a single line of the count of and latencies (in microseconds) recorded by the histogram
+     */
+    public static void print(PrintStream out, String label, Histogram histogram) {
+        out.printf("%-24s %10d %10.1f", label, histogram.getTotalCount(), histogram.getMean() / 1000);
+        for (double percentile : PERCENTILES) {
+            out.printf(" %10.1f", histogram.getValueAtPercentile(percentile) / 1000d);
+        }
+        out.printf(" %10.1f%n", histogram.getMaxValue() / 1000d);
+    }
+
+    private static String format(double percentile) {
+        return percentile == Math.rint(percentile) ? Integer.toString((int) percentile)
+                : Double.toString(percentile).replace(".", "");
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ *  Copyright: (c) 2019 Mayo Foundation for Medical Education and
+ *  Research (MFMER). All rights reserved. MAYO, MAYO CLINIC, and the
+ *  triple-shield Mayo logo are trademarks and service marks of MFMER.
+ *
+ *  Except as contained in the copyright notice above, or as used to identify
+ *  MFMER as the author of this software, the trade names, trademarks, service
+ *  marks, or product names of the copyright holder shall not be used in
+ *  advertising, promotion or otherwise in connection with this software without
+ *  prior written authorization of the copyright holder.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.ohnlp.elasticsearchnlp.benchmarks;
+
+import org.HdrHistogram.Histogram;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.ohnlp.elasticsearchnlp.analyzers.NLPAnalyzer;
+import org.ohnlp.elasticsearchnlp.analyzers.NLPQueryAnalysisCache;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a mix of {@link QueryWorkload}s from many threads against a shared {@link InMemoryIndex} at increasing target
+ * rates, reporting the achieved throughput and latency percentiles of each rate as a saturation curve.<br/>
+ * Requests are issued on a fixed schedule (open loop) and latencies are measured from the time at which a request was
+ * scheduled rather than sent, so that once the target rate exceeds capacity the resulting queueing shows up as latency
+ * instead of being silently omitted. Each request analyzes its query text through a shared
+ * {@link NLPQueryAnalysisCache} and builds its query anew, as a search request would, and its hits and scores are
+ * compared against those computed single-threaded beforehand, such that races in the scoring path are reported as
+ * mismatches. Options (as {@code --name=value}) are those of {@link HarnessOptions#corpus()}, and:
+ * <ul>
+ *     <li>docs: the number of documents to index (default 20000)</li>
+ *     <li>segment-docs: the number of documents per flushed segment, or -1 for as few segments as possible
+ *     (default -1)</li>
+ *     <li>queries: the number of distinct query texts (default 1000)</li>
+ *     <li>workloads: a comma separated list of {@link QueryWorkload}s to cycle through (default all)</li>
+ *     <li>threads: the number of client threads (default twice the number of processors)</li>
+ *     <li>search-threads: the number of threads searching segments concurrently within a request, or 0 to search
+ *     them on the client thread (default 0)</li>
+ *     <li>qps: a comma separated list of target rates in queries per second (default 50,100,200,400,800,1600)</li>
+ *     <li>warmup: the seconds to run each rate before measuring (default 2)</li>
+ *     <li>duration: the seconds to measure each rate (default 10)</li>
+ *     <li>top: the number of hits to collect per query (default 10)</li>
+ * </ul>
+ * Exits with status 1 if any request failed or returned different results than when run single-threaded.
+ */
+public final class LoadTestHarness {
+
+    private final IndexSearcher searcher;
+    private final NLPQueryAnalysisCache analysis;
+    private final QueryWorkload[] workloads;
+    private final String[] texts;
+    private final int top;
+    // Expected results of each workload for each query text, by workload then text
+    private final TopDocs[][] expected;
+
+    private LoadTestHarness(IndexSearcher searcher, QueryWorkload[] workloads, String[] texts, int top)
+            throws IOException {
+        this.searcher = searcher;
+        this.analysis = new NLPQueryAnalysisCache(new NLPAnalyzer());
+        this.workloads = workloads;
+        this.texts = texts;
+        this.top = top;
+        this.expected = new TopDocs[workloads.length][texts.length];
+        for (int w = 0; w < workloads.length; w++) {
+            for (int t = 0; t < texts.length; t++) {
+                expected[w][t] = searcher.search(workloads[w].toQuery(analysis, InMemoryIndex.FIELD, texts[t]), top);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        HarnessOptions options = new HarnessOptions(args);
+        int numDocs = options.getInt("docs", 20000);
+        int segmentDocs = options.getInt("segment-docs", IndexWriterConfig.DISABLE_AUTO_FLUSH);
+        int numQueries = options.getInt("queries", 1000);
+        String[] workloadNames = options.getString("workloads", "TERM,BOOLEAN,CONCEPT").split(",");
+        int threads = options.getInt("threads", Runtime.getRuntime().availableProcessors() * 2);
+        int searchThreads = options.getInt("search-threads", 0);
+        String[] rates = options.getString("qps", "50,100,200,400,800,1600").split(",");
+        long warmupNanos = TimeUnit.SECONDS.toNanos(options.getLong("warmup", 2));
+        long durationNanos = TimeUnit.SECONDS.toNanos(options.getLong("duration", 10));
+        int top = options.getInt("top", 10);
+        PrintStream out = System.out;
+
+        BenchmarkSupport.initialize();
+        SyntheticCorpus corpus = options.corpus();
+        QueryWorkload[] workloads = new QueryWorkload[workloadNames.length];
+        for (int i = 0; i < workloads.length; i++) {
+            workloads[i] = QueryWorkload.valueOf(workloadNames[i].trim().toUpperCase(Locale.ROOT));
+        }
+        String[] texts = new String[numQueries];
+        for (int i = 0; i < numQueries; i++) {
+            texts[i] = corpus.query(i);
+        }
+
+        ExecutorService searchExecutor = searchThreads > 0 ? Executors.newFixedThreadPool(searchThreads) : null;
+        boolean failed = false;
+        try (InMemoryIndex index = InMemoryIndex.build(corpus, numDocs, segmentDocs)) {
+            out.printf(Locale.ROOT, "Indexed %d docs into %d segments, %d client threads, %d search threads%n",
+                    numDocs, index.getReader().leaves().size(), threads, searchThreads);
+            IndexSearcher searcher = searchExecutor == null ? new IndexSearcher(index.getReader())
+                    : new IndexSearcher(index.getReader(), searchExecutor);
+            LoadTestHarness harness = new LoadTestHarness(searcher, workloads, texts, top);
+            out.println();
+            out.println("Response time (us), measured from the scheduled start of each request:");
+            out.printf("%-10s %10s %10s %10s ", "target", "achieved", "failures", "mismatches");
+            LatencyReport.printHeader(out);
+            for (String rate : rates) {
+                double qps = Double.parseDouble(rate.trim());
+                harness.run(qps, warmupNanos, threads);
+                Step step = harness.run(qps, durationNanos, threads);
+                out.printf(Locale.ROOT, "%-10.0f %10.1f %10d %10d ", qps, step.achievedQps(), step.failures.sum(),
+                        step.mismatches.sum());
+                LatencyReport.print(out, step.achievedQps() < qps * 0.95 ? "(saturated)" : "", step.latencies);
+                failed |= step.failures.sum() > 0 || step.mismatches.sum() > 0;
+            }
+        } finally {
+            if (searchExecutor != null) {
+                searchExecutor.shutdown();
+            }
+        }
+        if (failed) {
+            out.println("FAILED: some requests failed or returned different results under concurrency");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Issues requests at the given rate for the given duration
+     */
+    private Step run(double qps, long durationNanos, int threads) throws InterruptedException {
+        long requests = Math.max(1, (long) (qps * durationNanos / 1e9));
+        double intervalNanos = 1e9 / qps;
+        AtomicLong next = new AtomicLong();
+        Step step = new Step(requests);
+        Histogram[] latencies = new Histogram[threads];
+        Thread[] clients = new Thread[threads];
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(10);
+        for (int i = 0; i < threads; i++) {
+            Histogram histogram = LatencyReport.newHistogram();
+            latencies[i] = histogram;
+            clients[i] = new Thread(() -> {
+                long request;
+                while ((request = next.getAndIncrement()) < requests) {
+                    long scheduled = start + (long) (request * intervalNanos);
+                    long now;
+                    while ((now = System.nanoTime()) < scheduled) {
+                        LockSupport.parkNanos(scheduled - now);
+                    }
+                    execute(request, step);
+                    long end = System.nanoTime();
+                    histogram.recordValue(end - scheduled);
+                    step.end.accumulateAndGet(end, Math::max);
+                }
+            }, "load-client-" + i);
+            clients[i].start();
+        }
+        for (Thread client : clients) {
+            client.join();
+        }
+        step.elapsedNanos = step.end.get() - start;
+        for (Histogram histogram : latencies) {
+            step.latencies.add(histogram);
+        }
+        return step;
+    }
+
+    private void execute(long request, Step step) {
+        int w = (int) (request % workloads.length);
+        int t = (int) ((request / workloads.length) % texts.length);
+        try {
+            Query query = workloads[w].toQuery(analysis, InMemoryIndex.FIELD, texts[t]);
+            if (!sameHits(expected[w][t], searcher.search(query, top))) {
+                step.mismatches.increment();
+            }
+        } catch (IOException | RuntimeException e) {
+            step.failures.increment();
+        }
+    }
+
+    private static boolean sameHits(TopDocs expected, TopDocs actual) {
+        if (expected.scoreDocs.length != actual.scoreDocs.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.scoreDocs.length; i++) {
+            ScoreDoc e = expected.scoreDocs[i];
+            ScoreDoc a = actual.scoreDocs[i];
+            if (e.doc != a.doc || Float.compare(e.score, a.score) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Results of running a single target rate
+     */
+    private static final class Step {
+        private final long requests;
+        private final Histogram latencies = LatencyReport.newHistogram();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder mismatches = new LongAdder();
+        private final AtomicLong end = new AtomicLong();
+        private long elapsedNanos;
+
+        private Step(long requests) {
+            this.requests = requests;
+        }
+
+        private double achievedQps() {
+            return requests / (elapsedNanos / 1e9);
+        }
+    }
+}
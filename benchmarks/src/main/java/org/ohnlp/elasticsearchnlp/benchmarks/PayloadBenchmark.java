@@ -0,0 +1,132 @@
+/*
+ *  Copyright: (c) 2019 Mayo Foundation for Medical Education and
+ *  Research (MFMER). All rights reserved. MAYO, MAYO CLINIC, and the
+ *  triple-shield Mayo logo are trademarks and service marks of MFMER.
+ *
+ *  Except as contained in the copyright notice above, or as used to identify
+ *  MFMER as the author of this software, the trade names, trademarks, service
+ *  marks, or product names of the copyright holder shall not be used in
+ *  advertising, promotion or otherwise in connection with this software without
+ *  prior written authorization of the copyright holder.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.ohnlp.elasticsearchnlp.benchmarks;
+
+import org.apache.lucene.util.BytesRef;
+import org.ohnlp.elasticsearchnlp.payloads.NLPPayload;
+import org.ohnlp.elasticsearchnlp.scoring.NLPPayloadScoringWeightFunction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-position payload costs: encoding and decoding {@link NLPPayload}s and looking up score multipliers. Each
+ * invocation processes a batch of payloads cycling through all 16 ConText statuses and 16 trigger combinations
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayloadBenchmark {
+
+    private static final int BATCH = 256;
+
+    /**
+     * The index payload format: standard (2 bytes), compact (1 byte), or either followed by a state summary
+     */
+    @Param({"STANDARD", "COMPACT", "STANDARD_SUMMARY", "COMPACT_SUMMARY"})
+    public String format;
+
+    private NLPPayload[] payloads;
+    private BytesRef[] indexPayloads;
+    private BytesRef[] queryPayloads;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.initialize();
+        boolean compact = format.startsWith("COMPACT");
+        boolean summary = format.endsWith("SUMMARY");
+        payloads = new NLPPayload[BATCH];
+        indexPayloads = new BytesRef[BATCH];
+        queryPayloads = new BytesRef[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            int context = i & 0xF;
+            int triggers = i >>> 4;
+            byte[] standard = {(byte) context, (byte) triggers};
+            payloads[i] = new NLPPayload(standard);
+            byte[] bytes = compact ? new byte[]{NLPPayload.toCompactByte(context, triggers)} : standard;
+            if (summary) {
+                byte[] withSummary = new byte[bytes.length + NLPPayload.SUMMARY_BYTES];
+                System.arraycopy(bytes, 0, withSummary, 0, bytes.length);
+                withSummary[bytes.length] = (byte) (1 << context);
+                withSummary[bytes.length + 1] = (byte) ((1 << context) >>> 8);
+                bytes = withSummary;
+            }
+            indexPayloads[i] = new BytesRef(bytes);
+            // Queries are mostly for affirmed, present mentions of the patient
+            queryPayloads[i] = new BytesRef(new byte[]{(byte) ((i % 3 == 0) ? (i >>> 4) & 0xF : 0), 0});
+        }
+    }
+
+    @Benchmark
+    public int encode() {
+        int hash = 0;
+        for (NLPPayload payload : payloads) {
+            hash += payload.toBytes()[0];
+        }
+        return hash;
+    }
+
+    @Benchmark
+    public int decode() {
+        int hash = 0;
+        for (BytesRef payload : indexPayloads) {
+            if (new NLPPayload(payload).isPositive()) {
+                hash++;
+            }
+        }
+        return hash;
+    }
+
+    @Benchmark
+    public int decodeBits() {
+        int hash = 0;
+        for (BytesRef payload : indexPayloads) {
+            hash += NLPPayload.getContextBits(payload) + NLPPayload.getTriggerBits(payload)
+                    + NLPPayload.getStateSummary(payload);
+        }
+        return hash;
+    }
+
+    @Benchmark
+    public double getScoreMultiplier() {
+        double sum = 0;
+        for (int i = 0; i < BATCH; i++) {
+            sum += NLPPayloadScoringWeightFunction.getScoreMultiplier(queryPayloads[i], indexPayloads[i]);
+        }
+        return sum;
+    }
+}
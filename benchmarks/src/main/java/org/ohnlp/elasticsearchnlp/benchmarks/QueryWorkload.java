@@ -0,0 +1,87 @@
+/*
+ *  Copyright: (c) 2019 Mayo Foundation for Medical Education and
+ *  Research (MFMER). All rights reserved. MAYO, MAYO CLINIC, and the
+ *  triple-shield Mayo logo are trademarks and service marks of MFMER.
+ *
+ *  Except as contained in the copyright notice above, or as used to identify
+ *  MFMER as the author of this software, the trade names, trademarks, service
+ *  marks, or product names of the copyright holder shall not be used in
+ *  advertising, promotion or otherwise in connection with this software without
+ *  prior written authorization of the copyright holder.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.ohnlp.elasticsearchnlp.benchmarks;
+
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+import org.ohnlp.elasticsearchnlp.analyzers.NLPQueryAnalysisCache;
+import org.ohnlp.elasticsearchnlp.lucene.NLPContextMode;
+import org.ohnlp.elasticsearchnlp.lucene.NLPQueryClauses;
+import org.ohnlp.elasticsearchnlp.lucene.NLPTerm;
+import org.ohnlp.elasticsearchnlp.payloads.NLPPayload;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Kinds of Lucene queries built from query text, equivalent to those produced by the plugin's query builders
+ */
+public enum QueryWorkload {
+    /**
+     * A single {@link org.apache.lucene.search.NLPTermQuery} for the first term of the query that is not a trigger
+     */
+    TERM {
+        @Override
+        public Query toQuery(NLPQueryAnalysisCache analysis, String field, String text) throws IOException {
+            for (NLPTerm term : analysis.getTerms(field, text)) {
+                if (new NLPPayload(term.getPyld()).isQueryTerm()) {
+                    return NLPContextMode.PAYLOAD.toQuery(term);
+                }
+            }
+            return new MatchNoDocsQuery();
+        }
+    },
+    /**
+     * nlp_naive_boolean with one clause per term
+     */
+    BOOLEAN {
+        @Override
+        public Query toQuery(NLPQueryAnalysisCache analysis, String field, String text) throws IOException {
+            return naiveBoolean(analysis.getTerms(field, text), false);
+        }
+    },
+    /**
+     * nlp_naive_boolean with group_concepts, i.e. one clause per concept
+     */
+    CONCEPT {
+        @Override
+        public Query toQuery(NLPQueryAnalysisCache analysis, String field, String text) throws IOException {
+            return naiveBoolean(analysis.getTerms(field, text), true);
+        }
+    };
+
+    public abstract Query toQuery(NLPQueryAnalysisCache analysis, String field, String text) throws IOException;
+
+    // Mirrors NLPNaiveBooleanESQueryBuilder#doToQuery
+    private static Query naiveBoolean(List<NLPTerm> terms, boolean groupConcepts) {
+        BooleanQuery.Builder bq = new BooleanQuery.Builder();
+        bq.setMinimumNumberShouldMatch(1);
+        for (Query clause : NLPQueryClauses.build(terms, NLPContextMode.PAYLOAD, groupConcepts)) {
+            bq.add(new BooleanClause(clause, BooleanClause.Occur.SHOULD));
+        }
+        return bq.build();
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ *  Copyright: (c) 2019 Mayo Foundation for Medical Education and
+ *  Research (MFMER). All rights reserved. MAYO, MAYO CLINIC, and the
+ *  triple-shield Mayo logo are trademarks and service marks of MFMER.
+ *
+ *  Except as contained in the copyright notice above, or as used to identify
+ *  MFMER as the author of this software, the trade names, trademarks, service
+ *  marks, or product names of the copyright holder shall not be used in
+ *  advertising, promotion or otherwise in connection with this software without
+ *  prior written authorization of the copyright holder.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.ohnlp.elasticsearchnlp.benchmarks;
+
+import org.ohnlp.elasticsearchnlp.context.ConTexTSettings;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates reproducible synthetic clinical notes and queries. Notes consist of sentences of clinical concepts drawn
+ * from a Zipf distribution over a fixed vocabulary, a configurable fraction of which are preceded by a negation,
+ * historical or family-experiencer trigger phrase taken from the bundled ConText rules.<br/>
+ * Each document and query is generated from its own seed derived from the corpus seed and its index, so that any
+ * document can be (re)generated independently of the others, e.g. by concurrent indexing threads.
+ */
+public final class SyntheticCorpus {
+
+    private static final String[] CONCEPTS = {
+            "pain", "chest pain", "fever", "cough", "hypertension", "diabetes", "nausea", "vomiting", "headache",
+            "fatigue", "shortness of breath", "dizziness", "rash", "edema", "pneumonia", "stroke", "myocardial infarction",
+            "atrial fibrillation", "heart failure", "asthma", "copd", "anemia", "sepsis", "depression", "anxiety",
+            "chills", "diarrhea", "constipation", "abdominal pain", "back pain", "syncope", "palpitations", "weight loss",
+            "hyperlipidemia", "obesity", "kidney disease", "urinary tract infection", "bronchitis", "seizure",
+            "migraine", "arthritis", "osteoporosis", "hypothyroidism", "cancer", "breast cancer", "lung cancer",
+            "colon cancer", "melanoma", "lymphoma", "leukemia", "tuberculosis", "hepatitis", "cirrhosis",
+            "pancreatitis", "appendicitis", "cholecystitis", "gastritis", "ulcer", "bleeding", "hematuria",
+            "dysuria", "incontinence", "neuropathy", "dementia", "delirium", "confusion", "tremor", "weakness",
+            "numbness", "tingling", "blurred vision", "hearing loss", "tinnitus", "sore throat", "sinusitis",
+            "otitis media", "conjunctivitis", "cellulitis", "abscess", "fracture", "sprain", "contusion",
+            "laceration", "deep vein thrombosis", "pulmonary embolism", "aortic stenosis", "murmur", "wheezing",
+            "crackles", "jaundice", "ascites", "splenomegaly", "hepatomegaly", "lymphadenopathy", "thrombocytopenia",
+            "neutropenia", "hyperkalemia", "hyponatremia", "hypoglycemia", "ketoacidosis", "dehydration"
+    };
+
+    private static final String[] CONNECTORS = {" ", " and ", ", ", " with ", " or "};
+
+    private final long seed;
+    private final int sentencesPerDocument;
+    private final int conceptsPerSentence;
+    private final double negationDensity;
+    private final double historicalDensity;
+    private final double experiencerDensity;
+    private final double[] conceptCdf;
+    private final String[] negationTriggers;
+    private final String[] historicalTriggers;
+    private final String[] experiencerTriggers;
+
+    private SyntheticCorpus(Builder builder) {
+        this.seed = builder.seed;
+        this.sentencesPerDocument = builder.sentencesPerDocument;
+        this.conceptsPerSentence = builder.conceptsPerSentence;
+        this.negationDensity = builder.negationDensity;
+        this.historicalDensity = builder.historicalDensity;
+        this.experiencerDensity = builder.experiencerDensity;
+        this.conceptCdf = zipfCdf(CONCEPTS.length, builder.vocabularySkew);
+        List<String> rules;
+        try (InputStream ruleStream = SyntheticCorpus.class.getResourceAsStream("/contextRule.txt")) {
+            rules = ConTexTSettings.readRules(ruleStream);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read the bundled ConText rules", e);
+        }
+        this.negationTriggers = preTriggers(rules, "neg");
+        this.historicalTriggers = preTriggers(rules, "hist");
+        this.experiencerTriggers = preTriggers(rules, "exp");
+    }
+
+    /**
+     * @param i The index of the document
+     * @return The i-th document of this corpus
+     */
+    public String document(int i) {
+        Random random = new Random(seed + i * 0x9E3779B97F4A7C15L);
+        int sentences = jitter(random, sentencesPerDocument);
+        StringBuilder sb = new StringBuilder(sentences * conceptsPerSentence * 16);
+        for (int s = 0; s < sentences; s++) {
+            if (s > 0) {
+                sb.append(random.nextInt(8) == 0 ? '\n' : ' ');
+            }
+            appendSentence(random, sb);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param i The index of the query
+     * @return The i-th query of this corpus: one to three concepts drawn from the same distribution as documents,
+     * preceded by a trigger phrase with the same densities as document sentences
+     */
+    public String query(int i) {
+        Random random = new Random(~seed + i * 0x9E3779B97F4A7C15L);
+        StringBuilder sb = new StringBuilder();
+        String trigger = nextTrigger(random);
+        if (trigger != null) {
+            sb.append(trigger).append(' ');
+        }
+        int concepts = 1 + random.nextInt(3);
+        for (int c = 0; c < concepts; c++) {
+            if (c > 0) {
+                sb.append(' ');
+            }
+            sb.append(nextConcept(random));
+        }
+        return sb.toString();
+    }
+
+    private void appendSentence(Random random, StringBuilder sb) {
+        int start = sb.length();
+        String trigger = nextTrigger(random);
+        if (trigger != null) {
+            sb.append(trigger).append(' ');
+        }
+        int concepts = jitter(random, conceptsPerSentence);
+        for (int c = 0; c < concepts; c++) {
+            if (c > 0) {
+                sb.append(CONNECTORS[random.nextInt(CONNECTORS.length)]);
+            }
+            sb.append(nextConcept(random));
+        }
+        sb.setCharAt(start, Character.toUpperCase(sb.charAt(start)));
+        sb.append('.');
+    }
+
+    private String nextTrigger(Random random) {
+        double roll = random.nextDouble();
+        if ((roll -= negationDensity) < 0) {
+            return negationTriggers[random.nextInt(negationTriggers.length)];
+        }
+        if ((roll -= historicalDensity) < 0) {
+            return historicalTriggers[random.nextInt(historicalTriggers.length)];
+        }
+        if (roll - experiencerDensity < 0) {
+            return experiencerTriggers[random.nextInt(experiencerTriggers.length)];
+        }
+        return null;
+    }
+
+    private String nextConcept(Random random) {
+        int idx = Arrays.binarySearch(conceptCdf, random.nextDouble());
+        return CONCEPTS[Math.min(idx < 0 ? -idx - 1 : idx, CONCEPTS.length - 1)];
+    }
+
+    // Uniform in [mean / 2, 3 * mean / 2], and at least 1
+    private static int jitter(Random random, int mean) {
+        return Math.max(1, mean / 2 + random.nextInt(mean + 1));
+    }
+
+    private static double[] zipfCdf(int n, double skew) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int rank = 0; rank < n; rank++) {
+            sum += 1 / Math.pow(rank + 1, skew);
+            cdf[rank] = sum;
+        }
+        for (int rank = 0; rank < n; rank++) {
+            cdf[rank] /= sum;
+        }
+        return cdf;
+    }
+
+    // Literal (non-regex) rules that precede their scope, in the format phrase~|~direction~|~context~|~priority
+    private static String[] preTriggers(List<String> rules, String context) {
+        List<String> ret = new ArrayList<>();
+        for (String rule : rules) {
+            String[] parts = rule.split("~\\|~");
+            if (parts.length == 4 && !parts[0].startsWith("regex:") && parts[1].equals("pre")
+                    && parts[2].equals(context) && !parts[0].trim().isEmpty()) {
+                ret.add(parts[0].trim());
+            }
+        }
+        if (ret.isEmpty()) {
+            throw new IllegalStateException("No " + context + " triggers found in the ConText rules");
+        }
+        return ret.toArray(new String[0]);
+    }
+
+    public static class Builder {
+        private long seed = 42;
+        private int sentencesPerDocument = 20;
+        private int conceptsPerSentence = 4;
+        private double negationDensity = 0.2;
+        private double historicalDensity = 0.1;
+        private double experiencerDensity = 0.05;
+        private double vocabularySkew = 1.0;
+
+        /**
+         * @param seed The seed from which all documents and queries are derived
+         */
+        public Builder setSeed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * @param sentencesPerDocument The mean number of sentences per document
+         */
+        public Builder setSentencesPerDocument(int sentencesPerDocument) {
+            if (sentencesPerDocument < 1) {
+                throw new IllegalArgumentException("sentencesPerDocument must be at least 1");
+            }
+            this.sentencesPerDocument = sentencesPerDocument;
+            return this;
+        }
+
+        /**
+         * @param conceptsPerSentence The mean number of concepts per sentence
+         */
+        public Builder setConceptsPerSentence(int conceptsPerSentence) {
+            if (conceptsPerSentence < 1) {
+                throw new IllegalArgumentException("conceptsPerSentence must be at least 1");
+            }
+            this.conceptsPerSentence = conceptsPerSentence;
+            return this;
+        }
+
+        /**
+         * Sets the fraction of sentences (and queries) to be preceded by a trigger of each type. These must sum to at
+         * most 1, the remainder is left without a trigger
+         */
+        public Builder setTriggerDensities(double negation, double historical, double experiencer) {
+            if (negation < 0 || historical < 0 || experiencer < 0 || negation + historical + experiencer > 1) {
+                throw new IllegalArgumentException("Trigger densities must be non-negative and sum to at most 1");
+            }
+            this.negationDensity = negation;
+            this.historicalDensity = historical;
+            this.experiencerDensity = experiencer;
+            return this;
+        }
+
+        /**
+         * @param vocabularySkew The exponent of the Zipf distribution from which concepts are drawn, 0 for uniform
+         */
+        public Builder setVocabularySkew(double vocabularySkew) {
+            if (vocabularySkew < 0) {
+                throw new IllegalArgumentException("vocabularySkew must be non-negative");
+            }
+            this.vocabularySkew = vocabularySkew;
+            return this;
+        }
+
+        public SyntheticCorpus build() {
+            return new SyntheticCorpus(this);
+        }
+    }
+}
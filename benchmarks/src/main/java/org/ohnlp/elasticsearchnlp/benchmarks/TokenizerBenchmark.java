@@ -0,0 +1,118 @@
+/*
+ *  Copyright: (c) 2019 Mayo Foundation for Medical Education and
+ *  Research (MFMER). All rights reserved. MAYO, MAYO CLINIC, and the
+ *  triple-shield Mayo logo are trademarks and service marks of MFMER.
+ *
+ *  Except as contained in the copyright notice above, or as used to identify
+ *  MFMER as the author of this software, the trade names, trademarks, service
+ *  marks, or product names of the copyright holder shall not be used in
+ *  advertising, promotion or otherwise in connection with this software without
+ *  prior written authorization of the copyright holder.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.ohnlp.elasticsearchnlp.benchmarks;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.PayloadAttribute;
+import org.ohnlp.elasticsearchnlp.analyzers.NLPAnalyzer;
+import org.ohnlp.elasticsearchnlp.analyzers.NLPTokenizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end cost of analyzing a field: the {@link NLPTokenizer} alone (sentence detection, tokenization, ConText
+ * triggers and payloads), and the full {@link NLPAnalyzer} chain as used at index time
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenizerBenchmark {
+
+    @Param({"SHORT", "TYPICAL", "PATHOLOGICAL"})
+    public ClinicalNote note;
+
+    private String text;
+    private NLPTokenizer tokenizer;
+    private CharTermAttribute tokenizerTermAtt;
+    private PayloadAttribute tokenizerPayloadAtt;
+    private Analyzer analyzer;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.initialize();
+        text = note.text();
+        // Reused across invocations, as Lucene reuses tokenizers across documents
+        tokenizer = new NLPTokenizer();
+        tokenizerTermAtt = tokenizer.addAttribute(CharTermAttribute.class);
+        tokenizerPayloadAtt = tokenizer.addAttribute(PayloadAttribute.class);
+        analyzer = new NLPAnalyzer();
+    }
+
+    @TearDown
+    public void tearDown() {
+        analyzer.close();
+    }
+
+    @Benchmark
+    public int tokenize(Blackhole bh) throws IOException {
+        tokenizer.setReader(new StringReader(text));
+        tokenizer.reset();
+        int count = 0;
+        while (tokenizer.incrementToken()) {
+            bh.consume(tokenizerTermAtt);
+            bh.consume(tokenizerPayloadAtt.getPayload());
+            count++;
+        }
+        tokenizer.end();
+        tokenizer.close();
+        return count;
+    }
+
+    @Benchmark
+    public int analyze(Blackhole bh) throws IOException {
+        int count = 0;
+        try (TokenStream stream = analyzer.tokenStream("text", text)) {
+            CharTermAttribute termAtt = stream.addAttribute(CharTermAttribute.class);
+            PayloadAttribute payloadAtt = stream.addAttribute(PayloadAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                bh.consume(termAtt);
+                bh.consume(payloadAtt.getPayload());
+                count++;
+            }
+            stream.end();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ *  Copyright: (c) 2019 Mayo Foundation for Medical Education and
+ *  Research (MFMER). All rights reserved. MAYO, MAYO CLINIC, and the
+ *  triple-shield Mayo logo are trademarks and service marks of MFMER.
+ *
+ *  Except as contained in the copyright notice above, or as used to identify
+ *  MFMER as the author of this software, the trade names, trademarks, service
+ *  marks, or product names of the copyright holder shall not be used in
+ *  advertising, promotion or otherwise in connection with this software without
+ *  prior written authorization of the copyright holder.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.lucene.search;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexReaderContext;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermState;
+import org.apache.lucene.index.TermStates;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.util.BytesRef;
+import org.ohnlp.elasticsearchnlp.payloads.NLPPayload;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Matches documents containing at least one occurrence of a term whose ConText status satisfies the given constraints,
+ * for use as a hard filter rather than as a scoring signal. Candidates are found on the term's postings alone, and
+ * payloads are only verified in {@link TwoPhaseIterator#matches()}, so that conjunctions can first intersect the
+ * postings of all (cheaper) clauses and only check the payloads of documents that match everything else. All matching
+ * documents receive a constant score.
+ */
+public class NLPContextFilterQuery extends Query {
+
+    // Cost estimates mirroring those of PhraseQuery: seeking to the positions of a document and reading one position
+    private static final int TERM_POSNS_SEEK_OPS_PER_DOC = 128;
+    private static final int TERM_OPS_PER_POS = 7;
+
+    private final Term term;
+    private final int required;
+    private final int excluded;
+    // Bit s is set if occurrences with the ConText status s satisfy the constraints
+    private final int accepted;
+
+    /**
+     * @param term     The term to match
+     * @param required ConText status bits, as in {@link NLPPayload}, that must be set on a matching occurrence
+     * @param excluded ConText status bits that must not be set on a matching occurrence
+     */
+    public NLPContextFilterQuery(Term term, int required, int excluded) {
+        this.term = Objects.requireNonNull(term);
+        this.required = required & 0xF;
+        this.excluded = excluded & 0xF;
+        int accepted = 0;
+        for (int status = 0; status < 16; status++) {
+            if ((status & this.required) == this.required && (status & this.excluded) == 0) {
+                accepted |= 1 << status;
+            }
+        }
+        this.accepted = accepted;
+    }
+
+    /**
+     * @param term   The term to match
+     * @param status The ConText status bits that matching occurrences must have exactly
+     * @return A query only matching occurrences with the given status
+     */
+    public static NLPContextFilterQuery exact(Term term, int status) {
+        return new NLPContextFilterQuery(term, status, ~status);
+    }
+
+    public Term getTerm() {
+        return term;
+    }
+
+    public int getRequired() {
+        return required;
+    }
+
+    public int getExcluded() {
+        return excluded;
+    }
+
+    @Override
+    public Query rewrite(IndexReader reader) throws IOException {
+        if (accepted == 0) {
+            return new MatchNoDocsQuery("Contradicting ConText constraints on " + term);
+        }
+        return super.rewrite(reader);
+    }
+
+    @Override
+    public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost) throws IOException {
+        final IndexReaderContext context = searcher.getTopReaderContext();
+        final TermStates termStates = TermStates.build(context, term, false);
+        return new ConstantScoreWeight(this, boost) {
+
+            @Override
+            public void extractTerms(Set<Term> terms) {
+                terms.add(term);
+            }
+
+            @Override
+            public Scorer scorer(LeafReaderContext context) throws IOException {
+                final TermState state = termStates.get(context);
+                if (state == null) { // term is not present in that reader
+                    return null;
+                }
+                final Terms terms = context.reader().terms(term.field());
+                final TermsEnum termsEnum = terms.iterator();
+                termsEnum.seekExact(term.bytes(), state);
+                if (accepted == 0xFFFF || !terms.hasPayloads()) {
+                    // Either every status is accepted, or all occurrences have the default status
+                    if ((accepted & 1) == 0) {
+                        return null;
+                    }
+                    return new ConstantScoreScorer(this, score(), scoreMode, termsEnum.postings(null, PostingsEnum.NONE));
+                }
+                final PostingsEnum postings = termsEnum.postings(null, PostingsEnum.PAYLOADS);
+                final float matchCost = matchCost(termsEnum);
+                return new ConstantScoreScorer(this, score(), scoreMode, new TwoPhaseIterator(postings) {
+                    @Override
+                    public boolean matches() throws IOException {
+                        int freq = postings.freq();
+                        for (int i = 0; i < freq; i++) {
+                            postings.nextPosition();
+                            BytesRef payload = postings.getPayload();
+                            if ((accepted & (1 << NLPPayload.getContextBits(payload))) != 0) {
+                                return true;
+                            }
+                            if (i == 0) {
+                                int summary = NLPPayload.getStateSummary(payload);
+                                // The summary covers the occurrences of a single field value, which is sufficient to
+                                // accept the document, but only rejects it if that value holds all occurrences
+                                if ((summary & accepted) != 0) {
+                                    return true;
+                                }
+                                if (summary != 0 && NLPPayload.getStateSummaryCount(payload) == freq) {
+                                    return false;
+                                }
+                            }
+                        }
+                        return false;
+                    }
+
+                    @Override
+                    public float matchCost() {
+                        return matchCost;
+                    }
+                });
+            }
+
+            /**
+             * Matching only depends on the postings of the term, so the matching documents of a segment can be cached
+             */
+            @Override
+            public boolean isCacheable(LeafReaderContext ctx) {
+                return true;
+            }
+        };
+    }
+
+    /**
+     * @return The expected cost of verifying a candidate document, which at worst reads the payloads of all of its
+     * occurrences of the term
+     */
+    private static float matchCost(TermsEnum termsEnum) throws IOException {
+        int docFreq = termsEnum.docFreq();
+        long totalTermFreq = termsEnum.totalTermFreq();
+        float expOccurrencesInMatchingDoc = totalTermFreq < docFreq ? 1 : totalTermFreq / (float) docFreq;
+        return TERM_POSNS_SEEK_OPS_PER_DOC + expOccurrencesInMatchingDoc * TERM_OPS_PER_POS;
+    }
+
+    @Override
+    public String toString(String field) {
+        StringBuilder buffer = new StringBuilder("NLP-Backed Context Filter Query on ");
+        if (!term.field().equals(field)) {
+            buffer.append(term.field()).append(':');
+        }
+        buffer.append(term.text());
+        buffer.append(" requiring ConText bits ").append(Integer.toBinaryString(required));
+        buffer.append(" excluding ConText bits ").append(Integer.toBinaryString(excluded));
+        return buffer.toString();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return sameClassAs(other) &&
+                term.equals(((NLPContextFilterQuery) other).term) &&
+                required == ((NLPContextFilterQuery) other).required &&
+                excluded == ((NLPContextFilterQuery) other).excluded;
+    }
+
+    @Override
+    public int hashCode() {
+        return classHash() ^ Objects.hash(term, required, excluded);
+    }
+}
@@ -1,479 +1,252 @@
-//package org.apache.lucene.search;
-//
-//import edu.mayo.nlp.elasticsearch.lucene.NLPTerm;
-//import org.apache.lucene.index.*;
-//import org.apache.lucene.search.similarities.Similarity;
-//import org.apache.lucene.util.ArrayUtil;
-//import org.apache.lucene.util.BytesRef;
-//
-//import java.io.IOException;
-//import java.util.*;
-//
-///**
-// * An adaptation of {@link org.apache.lucene.search.PhraseQuery} with support for {@link edu.mayo.nlp.elasticsearch.lucene.NLPTerm}
-// */
-//public class NLPPhraseQuery extends Query {
-//
-//    /** A builder for phrase queries. */
-//    public static class Builder {
-//
-//        private int slop;
-//        private final List<Term> terms;
-//        private final List<Integer> positions;
-//
-//        /** Sole constructor. */
-//        public Builder() {
-//            slop = 0;
-//            terms = new ArrayList<>();
-//            positions = new ArrayList<>();
-//        }
-//
-//        /**
-//         * Set the slop.
-//         * @see NLPPhraseQuery#getSlop()
-//         */
-//        public NLPPhraseQuery.Builder setSlop(int slop) {
-//            this.slop = slop;
-//            return this;
-//        }
-//
-//        /**
-//         * Adds a term to the end of the query phrase.
-//         * The relative position of the term is the one immediately after the last term added.
-//         */
-//        public NLPPhraseQuery.Builder add(Term term) {
-//            return add(term, positions.isEmpty() ? 0 : 1 + positions.get(positions.size() - 1));
-//        }
-//
-//        /**
-//         * Adds a term to the end of the query phrase.
-//         * The relative position of the term within the phrase is specified explicitly, but must be greater than
-//         * or equal to that of the previously added term.
-//         * A greater position allows phrases with gaps (e.g. in connection with stopwords).
-//         * If the position is equal, you most likely should be using
-//         * {@link MultiPhraseQuery} instead which only requires one term at each position to match; this class requires
-//         * all of them.
-//         */
-//        public NLPPhraseQuery.Builder add(Term term, int position) {
-//            if (position < 0) {
-//                throw new IllegalArgumentException("Positions must be >= 0, got " + position);
-//            }
-//            if (positions.isEmpty() == false) {
-//                final int lastPosition = positions.get(positions.size() - 1);
-//                if (position < lastPosition) {
-//                    throw new IllegalArgumentException("Positions must be added in order, got " + position + " after " + lastPosition);
-//                }
-//            }
-//            if (terms.isEmpty() == false && term.field().equals(terms.get(0).field()) == false) {
-//                throw new IllegalArgumentException("All terms must be on the same field, got " + term.field() + " and " + terms.get(0).field());
-//            }
-//            terms.add(term);
-//            positions.add(position);
-//            return this;
-//        }
-//
-//        /**
-//         * Build a phrase query based on the terms that have been added.
-//         */
-//        public NLPPhraseQuery build() {
-//            Term[] terms = this.terms.toArray(new Term[this.terms.size()]);
-//            int[] positions = new int[this.positions.size()];
-//            for (int i = 0; i < positions.length; ++i) {
-//                positions[i] = this.positions.get(i);
-//            }
-//            return new NLPPhraseQuery(slop, terms, positions);
-//        }
-//
-//    }
-//
-//    private final int slop;
-//    private final String field;
-//    private final Term[] terms;
-//    private final int[] positions;
-//
-//    private NLPPhraseQuery(int slop, Term[] terms, int[] positions) {
-//        if (terms.length != positions.length) {
-//            throw new IllegalArgumentException("Must have as many terms as positions");
-//        }
-//        if (slop < 0) {
-//            throw new IllegalArgumentException("Slop must be >= 0, got " + slop);
-//        }
-//        for (int i = 1; i < terms.length; ++i) {
-//            if (terms[i-1].field().equals(terms[i].field()) == false) {
-//                throw new IllegalArgumentException("All terms should have the same field");
-//            }
-//        }
-//        for (int position : positions) {
-//            if (position < 0) {
-//                throw new IllegalArgumentException("Positions must be >= 0, got " + position);
-//            }
-//        }
-//        for (int i = 1; i < positions.length; ++i) {
-//            if (positions[i] < positions[i - 1]) {
-//                throw new IllegalArgumentException("Positions should not go backwards, got "
-//                        + positions[i-1] + " before " + positions[i]);
-//            }
-//        }
-//        this.slop = slop;
-//        this.terms = terms;
-//        this.positions = positions;
-//        this.field = terms.length == 0 ? null : terms[0].field();
-//    }
-//
-//    private static int[] incrementalPositions(int length) {
-//        int[] positions = new int[length];
-//        for (int i = 0; i < length; ++i) {
-//            positions[i] = i;
-//        }
-//        return positions;
-//    }
-//
-//    private static Term[] toTerms(String field, String... termStrings) {
-//        Term[] terms = new Term[termStrings.length];
-//        for (int i = 0; i < terms.length; ++i) {
-//            terms[i] = new Term(field, termStrings[i]);
-//        }
-//        return terms;
-//    }
-//
-//    private static Term[] toTerms(String field, BytesRef... termBytes) {
-//        Term[] terms = new Term[termBytes.length];
-//        for (int i = 0; i < terms.length; ++i) {
-//            terms[i] = new Term(field, termBytes[i]);
-//        }
-//        return terms;
-//    }
-//
-//    /**
-//     * Create a phrase query which will match documents that contain the given
-//     * list of terms at consecutive positions in {@code field}, and at a
-//     * maximum edit distance of {@code slop}. For more complicated use-cases,
-//     * use {@link NLPPhraseQuery.Builder}.
-//     * @see #getSlop()
-//     */
-//    public NLPPhraseQuery(int slop, String field, String... terms) {
-//        this(slop, toTerms(field, terms), incrementalPositions(terms.length));
-//    }
-//
-//    /**
-//     * Create a phrase query which will match documents that contain the given
-//     * list of terms at consecutive positions in {@code field}.
-//     */
-//    public NLPPhraseQuery(String field, String... terms) {
-//        this(0, field, terms);
-//    }
-//
-//    /**
-//     * Create a phrase query which will match documents that contain the given
-//     * list of terms at consecutive positions in {@code field}, and at a
-//     * maximum edit distance of {@code slop}. For more complicated use-cases,
-//     * use {@link NLPPhraseQuery.Builder}.
-//     * @see #getSlop()
-//     */
-//    public NLPPhraseQuery(int slop, String field, BytesRef... terms) {
-//        this(slop, toTerms(field, terms), incrementalPositions(terms.length));
-//    }
-//
-//    /**
-//     * Create a phrase query which will match documents that contain the given
-//     * list of terms at consecutive positions in {@code field}.
-//     */
-//    public NLPPhraseQuery(String field, BytesRef... terms) {
-//        this(0, field, terms);
-//    }
-//
-//    /**
-//     * Return the slop for this {@link NLPPhraseQuery}.
-//     *
-//     * <p>The slop is an edit distance between respective positions of terms as
-//     * defined in this {@link NLPPhraseQuery} and the positions of terms in a
-//     * document.
-//     *
-//     * <p>For instance, when searching for {@code "quick fox"}, it is expected that
-//     * the difference between the positions of {@code fox} and {@code quick} is 1.
-//     * So {@code "a quick brown fox"} would be at an edit distance of 1 since the
-//     * difference of the positions of {@code fox} and {@code quick} is 2.
-//     * Similarly, {@code "the fox is quick"} would be at an edit distance of 3
-//     * since the difference of the positions of {@code fox} and {@code quick} is -2.
-//     * The slop defines the maximum edit distance for a document to match.
-//     *
-//     * <p>More exact matches are scored higher than sloppier matches, thus search
-//     * results are sorted by exactness.
-//     */
-//    public int getSlop() { return slop; }
-//
-//    /** Returns the list of terms in this phrase. */
-//    public Term[] getTerms() {
-//        return terms;
-//    }
-//
-//    /**
-//     * Returns the relative positions of terms in this phrase.
-//     */
-//    public int[] getPositions() {
-//        return positions;
-//    }
-//
-//    @Override
-//    public Query rewrite(IndexReader reader) throws IOException {
-//        if (terms.length == 0) {
-//            return new MatchNoDocsQuery("empty PhraseQuery");
-//        } else if (terms.length == 1) {
-//            return new TermQuery(terms[0]);
-//        } else if (positions[0] != 0) {
-//            int[] newPositions = new int[positions.length];
-//            for (int i = 0; i < positions.length; ++i) {
-//                newPositions[i] = positions[i] - positions[0];
-//            }
-//            return new NLPPhraseQuery(slop, terms, newPositions);
-//        } else {
-//            return super.rewrite(reader);
-//        }
-//    }
-//
-//    static class NLPPostingsAndFreq extends PhraseQuery.PostingsAndFreq {
-//        final PostingsEnum postings;
-//        final int position;
-//        final NLPTerm[] terms;
-//        final int nTerms; // for faster comparisons
-//
-//        public NLPPostingsAndFreq(PostingsEnum postings, int position, NLPTerm... terms) {
-//            super(postings, position);
-//            this.postings = postings;
-//            this.position = position;
-//            nTerms = terms==null ? 0 : terms.length;
-//            if (nTerms>0) {
-//                if (terms.length==1) {
-//                    this.terms = terms;
-//                } else {
-//                    NLPTerm[] terms2 = new NLPTerm[terms.length];
-//                    System.arraycopy(terms, 0, terms2, 0, terms.length);
-//                    Arrays.sort(terms2);
-//                    this.terms = terms2;
-//                }
-//            } else {
-//                this.terms = null;
-//            }
-//        }
-//
-//        @Override
-//        public int compareTo(PhraseQuery.PostingsAndFreq other) {
-//            if (position != other.position) {
-//                return position - other.position;
-//            }
-//            if (nTerms != other.nTerms) {
-//                return nTerms - other.nTerms;
-//            }
-//            if (nTerms == 0) {
-//                return 0;
-//            }
-//            for (int i=0; i<terms.length; i++) {
-//                int res = terms[i].compareTo(other.terms[i]);
-//                if (res!=0) return res;
-//            }
-//            return 0;
-//        }
-//
-//        @Override
-//        public int hashCode() {
-//            final int prime = 31;
-//            int result = 1;
-//            result = prime * result + position;
-//            for (int i=0; i<nTerms; i++) {
-//                result = prime * result + terms[i].hashCode();
-//            }
-//            return result;
-//        }
-//
-//        @Override
-//        public boolean equals(Object obj) {
-//            if (this == obj) return true;
-//            if (obj == null) return false;
-//            if (getClass() != obj.getClass()) return false;
-//            PhraseQuery.PostingsAndFreq other = (PhraseQuery.PostingsAndFreq) obj;
-//            if (position != other.position) return false;
-//            if (terms == null) return other.terms == null;
-//            return Arrays.equals(terms, other.terms);
-//        }
-//    }
-//
-//    private static final int TERM_POSNS_SEEK_OPS_PER_DOC = 128;
-//
-//    private static final int TERM_OPS_PER_POS = 7;
-//
-//    /** Returns an expected cost in simple operations
-//     *  of processing the occurrences of a term
-//     *  in a document that contains the term.
-//     *  This is for use by {@link TwoPhaseIterator#matchCost} implementations.
-//     *  <br>This may be inaccurate when {@link TermsEnum#totalTermFreq()} is not available.
-//     *  @param termsEnum The term is the term at which this TermsEnum is positioned.
-//     */
-//    static float termPositionsCost(TermsEnum termsEnum) throws IOException {
-//        int docFreq = termsEnum.docFreq();
-//        assert docFreq > 0;
-//        long totalTermFreq = termsEnum.totalTermFreq(); // -1 when not available
-//        float expOccurrencesInMatchingDoc = (totalTermFreq < docFreq) ? 1 : (totalTermFreq / (float) docFreq);
-//        return TERM_POSNS_SEEK_OPS_PER_DOC + expOccurrencesInMatchingDoc * TERM_OPS_PER_POS;
-//    }
-//
-//    @Override
-//    public Weight createWeight(IndexSearcher searcher, boolean needsScores, float boost) throws IOException {
-//        return new PhraseWeight(this, field, searcher, needsScores) {
-//
-//            private transient TermContext states[];
-//
-//            @Override
-//            protected Similarity.SimWeight getStats(IndexSearcher searcher) throws IOException {
-//                final int[] positions = NLPPhraseQuery.this.getPositions();
-//                if (positions.length < 2) {
-//                    throw new IllegalStateException("PhraseWeight does not support less than 2 terms, call rewrite first");
-//                } else if (positions[0] != 0) {
-//                    throw new IllegalStateException("PhraseWeight requires that the first position is 0, call rewrite first");
-//                }
-//                final IndexReaderContext context = searcher.getTopReaderContext();
-//                states = new TermContext[terms.length];
-//                TermStatistics termStats[] = new TermStatistics[terms.length];
-//                int termUpTo = 0;
-//                for (int i = 0; i < terms.length; i++) {
-//                    final Term term = terms[i];
-//                    states[i] = TermContext.build(context, term);
-//                    if (needsScores) {
-//                        TermStatistics termStatistics = searcher.termStatistics(term, states[i]);
-//                        if (termStatistics != null) {
-//                            termStats[termUpTo++] = termStatistics;
-//                        }
-//                    }
-//                }
-//                if (termUpTo > 0) {
-//                    return similarity.computeWeight(boost, searcher.collectionStatistics(field), ArrayUtil.copyOfSubArray(termStats, 0, termUpTo));
-//                } else {
-//                    return null; // no terms at all, we won't use similarity
-//                }
-//            }
-//
-//            @Override
-//            protected PhraseMatcher getPhraseMatcher(LeafReaderContext context, boolean exposeOffsets) throws IOException {
-//                assert terms.length > 0;
-//                final LeafReader reader = context.reader();
-//                NLPPostingsAndFreq[] postingsFreqs = new NLPPostingsAndFreq[terms.length];
-//
-//                final Terms fieldTerms = reader.terms(field);
-//                if (fieldTerms == null) {
-//                    return null;
-//                }
-//
-//                if (fieldTerms.hasPositions() == false) {
-//                    throw new IllegalStateException("field \"" + field + "\" was indexed without position data; cannot run PhraseQuery (phrase=" + getQuery() + ")");
-//                }
-//
-//                // Reuse single TermsEnum below:
-//                final TermsEnum te = fieldTerms.iterator();
-//                float totalMatchCost = 0;
-//
-//                for (int i = 0; i < terms.length; i++) {
-//                    final Term t = terms[i];
-//                    final TermState state = states[i].get(context.ord);
-//                    if (state == null) { /* term doesnt exist in this segment */
-//                        assert termNotInReader(reader, t): "no termstate found but term exists in reader";
-//                        return null;
-//                    }
-//                    te.seekExact(t.bytes(), state);
-//                    PostingsEnum postingsEnum = te.postings(null, exposeOffsets ? PostingsEnum.ALL : PostingsEnum.POSITIONS);
-//                    postingsFreqs[i] = new NLPPostingsAndFreq(postingsEnum, positions[i], t);
-//                    totalMatchCost += termPositionsCost(te);
-//                }
-//
-//                // sort by increasing docFreq order
-//                if (slop == 0) {
-//                    ArrayUtil.timSort(postingsFreqs);
-//                    return new ExactPhraseMatcher(postingsFreqs, totalMatchCost);
-//                }
-//                else {
-//                    return new SloppyPhraseMatcher(postingsFreqs, slop, totalMatchCost, exposeOffsets);
-//                }
-//            }
-//
-//            @Override
-//            public void extractTerms(Set<Term> queryTerms) {
-//                Collections.addAll(queryTerms, terms);
-//            }
-//        };
-//    }
-//
-//    // only called from assert
-//    private static boolean termNotInReader(LeafReader reader, Term term) throws IOException {
-//        return reader.docFreq(term) == 0;
-//    }
-//
-//    /** Prints a user-readable version of this query. */
-//    @Override
-//    public String toString(String f) {
-//        StringBuilder buffer = new StringBuilder();
-//        if (field != null && !field.equals(f)) {
-//            buffer.append(field);
-//            buffer.append(":");
-//        }
-//
-//        buffer.append("\"");
-//        final int maxPosition;
-//        if (positions.length == 0) {
-//            maxPosition = -1;
-//        } else {
-//            maxPosition = positions[positions.length - 1];
-//        }
-//        String[] pieces = new String[maxPosition + 1];
-//        for (int i = 0; i < terms.length; i++) {
-//            int pos = positions[i];
-//            String s = pieces[pos];
-//            if (s == null) {
-//                s = (terms[i]).text();
-//            } else {
-//                s = s + "|" + (terms[i]).text();
-//            }
-//            pieces[pos] = s;
-//        }
-//        for (int i = 0; i < pieces.length; i++) {
-//            if (i > 0) {
-//                buffer.append(' ');
-//            }
-//            String s = pieces[i];
-//            if (s == null) {
-//                buffer.append('?');
-//            } else {
-//                buffer.append(s);
-//            }
-//        }
-//        buffer.append("\"");
-//
-//        if (slop != 0) {
-//            buffer.append("~");
-//            buffer.append(slop);
-//        }
-//
-//        return buffer.toString();
-//    }
-//
-//    /** Returns true iff <code>o</code> is equal to this. */
-//    @Override
-//    public boolean equals(Object other) {
-//        return sameClassAs(other) &&
-//                equalsTo(getClass().cast(other));
-//    }
-//
-//    private boolean equalsTo(NLPPhraseQuery other) {
-//        return slop == other.slop &&
-//                Arrays.equals(terms, other.terms) &&
-//                Arrays.equals(positions, other.positions);
-//    }
-//
-//    /** Returns a hash code value for this object.*/
-//    @Override
-//    public int hashCode() {
-//        int h = classHash();
-//        h = 31 * h + slop;
-//        h = 31 * h + Arrays.hashCode(terms);
-//        h = 31 * h + Arrays.hashCode(positions);
-//        return h;
-//    }
-//
-//}
+/*
+ *  Copyright: (c) 2019 Mayo Foundation for Medical Education and
+ *  Research (MFMER). All rights reserved. MAYO, MAYO CLINIC, and the
+ *  triple-shield Mayo logo are trademarks and service marks of MFMER.
+ *
+ *  Except as contained in the copyright notice above, or as used to identify
+ *  MFMER as the author of this software, the trade names, trademarks, service
+ *  marks, or product names of the copyright holder shall not be used in
+ *  advertising, promotion or otherwise in connection with this software without
+ *  prior written authorization of the copyright holder.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.lucene.search;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.components.NLPPhraseWeight;
+import org.ohnlp.elasticsearchnlp.ElasticsearchNLPPlugin;
+import org.ohnlp.elasticsearchnlp.lucene.NLPTerm;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An adaptation of {@link org.apache.lucene.search.PhraseQuery} with support for {@link NLPTerm}s. Phrases are matched
+ * on positions as by {@link PhraseQuery}, and each match is then weighted by the ConText payloads at its positions
+ * against those of the query terms, as {@link NLPTermQuery} does for individual occurrences. Matches that receive no
+ * positive weight do not count, and documents without any counted match are not matched at all.<br/>
+ * As with {@link NLPTermQuery}, the {@link org.ohnlp.elasticsearchnlp.config.Config#getVersion() config version} at
+ * construction is part of the query's identity.
+ */
+public class NLPPhraseQuery extends Query {
+
+    /** A builder for phrase queries. */
+    public static class Builder {
+
+        private int slop;
+        private final List<NLPTerm> terms;
+        private final List<Integer> positions;
+
+        /** Sole constructor. */
+        public Builder() {
+            slop = 0;
+            terms = new ArrayList<>();
+            positions = new ArrayList<>();
+        }
+
+        /**
+         * Set the slop.
+         * @see NLPPhraseQuery#getSlop()
+         */
+        public NLPPhraseQuery.Builder setSlop(int slop) {
+            this.slop = slop;
+            return this;
+        }
+
+        /**
+         * Adds a term to the end of the query phrase.
+         * The relative position of the term is the one immediately after the last term added.
+         */
+        public NLPPhraseQuery.Builder add(NLPTerm term) {
+            return add(term, positions.isEmpty() ? 0 : 1 + positions.get(positions.size() - 1));
+        }
+
+        /**
+         * Adds a term to the end of the query phrase.
+         * The relative position of the term within the phrase is specified explicitly, but must be greater than
+         * that of the previously added term.
+         * A greater position allows phrases with gaps (e.g. in connection with stopwords).
+         */
+        public NLPPhraseQuery.Builder add(NLPTerm term, int position) {
+            if (position < 0) {
+                throw new IllegalArgumentException("Positions must be >= 0, got " + position);
+            }
+            if (positions.isEmpty() == false) {
+                final int lastPosition = positions.get(positions.size() - 1);
+                if (position <= lastPosition) {
+                    throw new IllegalArgumentException("Positions must be added in increasing order, got " + position + " after " + lastPosition);
+                }
+            }
+            if (terms.isEmpty() == false && term.getTerm().field().equals(terms.get(0).getTerm().field()) == false) {
+                throw new IllegalArgumentException("All terms must be on the same field, got " + term.getTerm().field() + " and " + terms.get(0).getTerm().field());
+            }
+            terms.add(term);
+            positions.add(position);
+            return this;
+        }
+
+        /**
+         * Build a phrase query based on the terms that have been added.
+         */
+        public NLPPhraseQuery build() {
+            NLPTerm[] terms = this.terms.toArray(new NLPTerm[0]);
+            int[] positions = new int[this.positions.size()];
+            for (int i = 0; i < positions.length; ++i) {
+                positions[i] = this.positions.get(i);
+            }
+            return new NLPPhraseQuery(slop, terms, positions);
+        }
+
+    }
+
+    private final int slop;
+    private final String field;
+    private final NLPTerm[] terms;
+    private final int[] positions;
+    private final long configVersion;
+
+    private NLPPhraseQuery(int slop, NLPTerm[] terms, int[] positions) {
+        this(slop, terms, positions, ElasticsearchNLPPlugin.CONFIG.getVersion());
+    }
+
+    private NLPPhraseQuery(int slop, NLPTerm[] terms, int[] positions, long configVersion) {
+        if (terms.length != positions.length) {
+            throw new IllegalArgumentException("Must have as many terms as positions");
+        }
+        if (slop < 0) {
+            throw new IllegalArgumentException("Slop must be >= 0, got " + slop);
+        }
+        this.slop = slop;
+        this.terms = terms;
+        this.positions = positions;
+        this.field = terms.length == 0 ? null : terms[0].getTerm().field();
+        this.configVersion = configVersion;
+    }
+
+    /**
+     * Return the slop for this {@link NLPPhraseQuery}, the maximum edit distance between the positions of the terms
+     * in the query and in a document for the document to match, see {@link PhraseQuery#getSlop()}. More exact
+     * matches are scored higher than sloppier ones.
+     */
+    public int getSlop() {
+        return slop;
+    }
+
+    /** Returns the field this query applies to */
+    public String getField() {
+        return field;
+    }
+
+    /** Returns the list of terms in this phrase. */
+    public NLPTerm[] getTerms() {
+        return terms;
+    }
+
+    /**
+     * Returns the relative positions of terms in this phrase.
+     */
+    public int[] getPositions() {
+        return positions;
+    }
+
+    /**
+     * @return The version of the config this query was built against
+     */
+    public long getConfigVersion() {
+        return configVersion;
+    }
+
+    @Override
+    public Query rewrite(IndexReader reader) throws IOException {
+        if (terms.length == 0) {
+            return new MatchNoDocsQuery("empty NLPPhraseQuery");
+        } else if (terms.length == 1) {
+            return new NLPTermQuery(terms[0], configVersion);
+        } else if (positions[0] != 0) {
+            int[] newPositions = new int[positions.length];
+            for (int i = 0; i < positions.length; ++i) {
+                newPositions[i] = positions[i] - positions[0];
+            }
+            return new NLPPhraseQuery(slop, terms, newPositions, configVersion);
+        } else {
+            return super.rewrite(reader);
+        }
+    }
+
+    @Override
+    public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost) throws IOException {
+        return new NLPPhraseWeight(this, searcher, scoreMode, boost);
+    }
+
+    /** Prints a user-readable version of this query. */
+    @Override
+    public String toString(String f) {
+        StringBuilder buffer = new StringBuilder("NLP-Backed Phrase Query on ");
+        if (field != null && !field.equals(f)) {
+            buffer.append(field);
+            buffer.append(":");
+        }
+        buffer.append("\"");
+        int lastPosition = positions.length == 0 ? 0 : positions[0];
+        for (int i = 0; i < terms.length; i++) {
+            if (i > 0) {
+                buffer.append(' ');
+                for (int gap = lastPosition + 1; gap < positions[i]; gap++) {
+                    buffer.append("? ");
+                }
+            }
+            buffer.append(terms[i].getTerm().text());
+            lastPosition = positions[i];
+        }
+        buffer.append("\"");
+        if (slop != 0) {
+            buffer.append("~");
+            buffer.append(slop);
+        }
+        buffer.append(" with nlp payloads of ");
+        for (int i = 0; i < terms.length; i++) {
+            buffer.append(i == 0 ? "" : ", ").append(terms[i].getPyld());
+        }
+        return buffer.toString();
+    }
+
+    /** Returns true iff <code>o</code> is equal to this. */
+    @Override
+    public boolean equals(Object other) {
+        return sameClassAs(other) &&
+                equalsTo(getClass().cast(other));
+    }
+
+    private boolean equalsTo(NLPPhraseQuery other) {
+        return slop == other.slop &&
+                configVersion == other.configVersion &&
+                Arrays.equals(terms, other.terms) &&
+                Arrays.equals(positions, other.positions);
+    }
+
+    /** Returns a hash code value for this object.*/
+    @Override
+    public int hashCode() {
+        int h = classHash();
+        h = 31 * h + slop;
+        h = 31 * h + Arrays.hashCode(terms);
+        h = 31 * h + Arrays.hashCode(positions);
+        h = 31 * h + Long.hashCode(configVersion);
+        return h;
+    }
+
+}
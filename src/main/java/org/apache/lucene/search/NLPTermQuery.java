@@ -26,23 +26,49 @@ package org.apache.lucene.search;
 import org.apache.lucene.index.IndexReaderContext;
 import org.apache.lucene.index.TermStates;
 import org.apache.lucene.search.components.NLPQueryWeight;
+import org.ohnlp.elasticsearchnlp.ElasticsearchNLPPlugin;
 import org.ohnlp.elasticsearchnlp.lucene.NLPTerm;
 
 import java.io.IOException;
 import java.util.Objects;
 
 /**
- * Much of this is copied from lucene with provisions for NLPTerms
+ * Much of this is copied from lucene with provisions for NLPTerms. As scores depend on the configured ConText weights,
+ * the {@link org.ohnlp.elasticsearchnlp.config.Config#getVersion() config version} at construction is part of the
+ * query's identity, so that cached results are not reused across config changes.
  */
 public class NLPTermQuery extends Query {
 
     private final NLPTerm term;
     private final TermStates perReaderTermState;
+    private final long configVersion;
 
 
     public NLPTermQuery(NLPTerm t) {
         term = Objects.requireNonNull(t);
         perReaderTermState = null;
+        configVersion = ElasticsearchNLPPlugin.CONFIG.getVersion();
+    }
+
+    /**
+     * @param t             The term to match
+     * @param configVersion The version of the config the query this one rewrites from was built against
+     */
+    NLPTermQuery(NLPTerm t, long configVersion) {
+        term = Objects.requireNonNull(t);
+        perReaderTermState = null;
+        this.configVersion = configVersion;
+    }
+
+    public NLPTerm getTerm() {
+        return term;
+    }
+
+    /**
+     * @return The version of the config this query was built against
+     */
+    public long getConfigVersion() {
+        return configVersion;
     }
 
     @Override
@@ -67,11 +93,12 @@ public class NLPTermQuery extends Query {
     @Override
     public boolean equals(Object other) {
         return sameClassAs(other) &&
-                term.equals(((NLPTermQuery) other).term);
+                term.equals(((NLPTermQuery) other).term) &&
+                configVersion == ((NLPTermQuery) other).configVersion;
     }
 
     @Override
     public int hashCode() {
-        return classHash() ^ term.hashCode();
+        return classHash() ^ term.hashCode() ^ Long.hashCode(configVersion);
     }
 }
@@ -0,0 +1,259 @@
+/*
+ *  Copyright: (c) 2019 Mayo Foundation for Medical Education and
+ *  Research (MFMER). All rights reserved. MAYO, MAYO CLINIC, and the
+ *  triple-shield Mayo logo are trademarks and service marks of MFMER.
+ *
+ *  Except as contained in the copyright notice above, or as used to identify
+ *  MFMER as the author of this software, the trade names, trademarks, service
+ *  marks, or product names of the copyright holder shall not be used in
+ *  advertising, promotion or otherwise in connection with this software without
+ *  prior written authorization of the copyright holder.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.lucene.search.components;
+
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.search.ConjunctionDISI;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Explanation;
+import org.apache.lucene.search.LeafSimScorer;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TwoPhaseIterator;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.ArrayUtil;
+import org.ohnlp.elasticsearchnlp.lucene.NLPTerm;
+import org.ohnlp.elasticsearchnlp.payloads.NLPPayload;
+import org.ohnlp.elasticsearchnlp.scoring.NLPPayloadScoringWeightFunction;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Scorer of an {@link org.apache.lucene.search.NLPPhraseQuery}. Documents containing all terms are found by
+ * intersecting their postings, and phrases are only matched in {@link TwoPhaseIterator#matches()}.<br/>
+ * Each phrase match is weighted by the smallest ConText weight of its terms, i.e. a match only counts as far as all of
+ * its terms have the queried status. As for {@link NLPTermScorer}, matches without a positive weight are discarded and
+ * the weights of the remaining matches are averaged. Exact matches add 1 to the phrase frequency, sloppy matches
+ * <code>1 / (1 + distance)</code>.
+ */
+public class NLPPhraseScorer extends Scorer {
+
+    private final PostingsEnum[] postings;
+    private final int[] offsets;
+    // The row of each query term's payload in the weight table
+    private final int[] rows;
+    // For sloppy matching, the index of an earlier query term with the same text, or -1
+    private final int[] repeatOf;
+    private final int slop;
+    private final double[] weights;
+    private final LeafSimScorer docScorer;
+    private final float matchCost;
+    private final float maxScore;
+    private final DocIdSetIterator approximation;
+    private final TwoPhaseIterator twoPhase;
+
+    // Positions and ConText weights of the occurrences of each term in the current document
+    private final int[][] positions;
+    private final double[][] values;
+    private final int[] freqs;
+    private final int[] upto;
+
+    private float phraseFreq;
+    private double weightSum;
+    private int matchCount;
+
+    public NLPPhraseScorer(Weight weight, NLPTerm[] terms, int[] offsets, int slop, PostingsEnum[] postings,
+                           double[] weights, LeafSimScorer docScorer, float matchCost, float maxScore) {
+        super(weight);
+        this.postings = postings;
+        this.offsets = offsets;
+        this.slop = slop;
+        this.weights = weights;
+        this.docScorer = docScorer;
+        this.matchCost = matchCost;
+        this.maxScore = maxScore;
+        int n = terms.length;
+        this.rows = new int[n];
+        this.repeatOf = new int[n];
+        for (int i = 0; i < n; i++) {
+            rows[i] = NLPPayloadScoringWeightFunction.getTableIndex(terms[i].getPyld(), null);
+            repeatOf[i] = -1;
+            for (int j = 0; j < i; j++) {
+                if (terms[i].getTerm().equals(terms[j].getTerm())) {
+                    repeatOf[i] = j;
+                }
+            }
+        }
+        this.positions = new int[n][];
+        this.values = new double[n][];
+        this.freqs = new int[n];
+        this.upto = new int[n];
+        for (int i = 0; i < n; i++) {
+            positions[i] = new int[4];
+            values[i] = new double[4];
+        }
+        List<DocIdSetIterator> iterators = new ArrayList<>(Arrays.asList(postings));
+        this.approximation = ConjunctionDISI.intersectIterators(iterators);
+        this.twoPhase = new TwoPhaseIterator(approximation) {
+            @Override
+            public boolean matches() throws IOException {
+                return matchPhrases();
+            }
+
+            @Override
+            public float matchCost() {
+                return NLPPhraseScorer.this.matchCost;
+            }
+        };
+    }
+
+    /**
+     * Reads the positions of all terms in the current document and counts their phrase matches
+     * @return True if the document has at least one match with a positive ConText weight
+     */
+    private boolean matchPhrases() throws IOException {
+        for (int i = 0; i < postings.length; i++) {
+            PostingsEnum p = postings[i];
+            int freq = p.freq();
+            positions[i] = ArrayUtil.grow(positions[i], freq);
+            values[i] = ArrayUtil.grow(values[i], freq);
+            for (int k = 0; k < freq; k++) {
+                positions[i][k] = p.nextPosition();
+                values[i][k] = weights[rows[i] | NLPPayload.getContextBits(p.getPayload())];
+            }
+            freqs[i] = freq;
+        }
+        phraseFreq = 0;
+        weightSum = 0;
+        matchCount = 0;
+        Arrays.fill(upto, 0);
+        if (slop == 0) {
+            matchExact();
+        } else {
+            matchSloppy();
+        }
+        return matchCount > 0;
+    }
+
+    private void matchExact() {
+        outer:
+        for (int k = 0; k < freqs[0]; k++) {
+            int start = positions[0][k];
+            double value = values[0][k];
+            for (int i = 1; i < postings.length; i++) {
+                int target = start + offsets[i];
+                int u = upto[i];
+                while (u < freqs[i] && positions[i][u] < target) {
+                    u++;
+                }
+                upto[i] = u;
+                if (u == freqs[i]) {
+                    return;
+                }
+                if (positions[i][u] != target) {
+                    continue outer;
+                }
+                value = Math.min(value, values[i][u]);
+            }
+            count(value, 1f);
+        }
+    }
+
+    /**
+     * Slides a window over the occurrences of all terms, always advancing the term that is furthest behind its place
+     * in the phrase, and counts every window whose terms are at most {@link #slop} positions out of place
+     */
+    private void matchSloppy() {
+        while (true) {
+            int lead = 0;
+            int minPosition = Integer.MAX_VALUE;
+            int maxPosition = Integer.MIN_VALUE;
+            double value = Double.MAX_VALUE;
+            boolean collides = false;
+            for (int i = 0; i < postings.length; i++) {
+                int position = positions[i][upto[i]] - offsets[i];
+                if (position < minPosition) {
+                    minPosition = position;
+                    lead = i;
+                }
+                maxPosition = Math.max(maxPosition, position);
+                value = Math.min(value, values[i][upto[i]]);
+                // Repeated terms in the phrase must match different occurrences
+                int j = repeatOf[i];
+                collides |= j >= 0 && positions[i][upto[i]] == positions[j][upto[j]];
+            }
+            int matchLength = maxPosition - minPosition;
+            if (matchLength <= slop && !collides) {
+                count(value, 1f / (1f + matchLength));
+            }
+            if (++upto[lead] == freqs[lead]) {
+                return;
+            }
+        }
+    }
+
+    private void count(double value, float sloppyWeight) {
+        if (value > 0) {
+            phraseFreq += sloppyWeight;
+            weightSum += value;
+            matchCount++;
+        }
+    }
+
+    @Override
+    public int docID() {
+        return approximation.docID();
+    }
+
+    @Override
+    public DocIdSetIterator iterator() {
+        return TwoPhaseIterator.asDocIdSetIterator(twoPhase);
+    }
+
+    @Override
+    public TwoPhaseIterator twoPhaseIterator() {
+        return twoPhase;
+    }
+
+    @Override
+    public float getMaxScore(int upTo) {
+        return maxScore;
+    }
+
+    @Override
+    public float score() throws IOException {
+        return docScorer.score(docID(), phraseFreq) * (float) (weightSum / matchCount);
+    }
+
+    /**
+     * Explains the score of the current document, which must have been matched
+     */
+    public Explanation explain() throws IOException {
+        double weight = weightSum / matchCount;
+        Explanation freq = Explanation.match(phraseFreq, "phraseFreq=" + phraseFreq + ", from " + matchCount
+                + " matches with a positive nlp context weight");
+        Explanation base = docScorer.explain(docID(), freq);
+        return Explanation.match(base.getValue().floatValue() * (float) weight,
+                "score(" + weight + "), product of:",
+                Explanation.match(base.getValue(), docScorer.getSimScorer().getClass().getSimpleName() + ": " + base.getDescription(), base.getDetails()),
+                Explanation.match(weight, "nlp context weight, averaged over matches, each weighted by its least matching term"));
+    }
+
+    @Override
+    public String toString() {
+        return "scorer(" + weight + ")[" + super.toString() + "]";
+    }
+}
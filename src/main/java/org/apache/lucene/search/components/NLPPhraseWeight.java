@@ -0,0 +1,194 @@
+/*
+ *  Copyright: (c) 2019 Mayo Foundation for Medical Education and
+ *  Research (MFMER). All rights reserved. MAYO, MAYO CLINIC, and the
+ *  triple-shield Mayo logo are trademarks and service marks of MFMER.
+ *
+ *  Except as contained in the copyright notice above, or as used to identify
+ *  MFMER as the author of this software, the trade names, trademarks, service
+ *  marks, or product names of the copyright holder shall not be used in
+ *  advertising, promotion or otherwise in connection with this software without
+ *  prior written authorization of the copyright holder.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.lucene.search.components;
+
+import org.apache.lucene.index.IndexReaderContext;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermState;
+import org.apache.lucene.index.TermStates;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.CollectionStatistics;
+import org.apache.lucene.search.Explanation;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LeafSimScorer;
+import org.apache.lucene.search.NLPPhraseQuery;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TermStatistics;
+import org.apache.lucene.search.TwoPhaseIterator;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.search.similarities.Similarity;
+import org.apache.lucene.util.ArrayUtil;
+import org.ohnlp.elasticsearchnlp.lucene.NLPTerm;
+import org.ohnlp.elasticsearchnlp.scoring.NLPPayloadScoringWeightFunction;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Weight of an {@link NLPPhraseQuery}. Like {@link NLPQueryWeight}, the ConText weights are snapshot once so that all
+ * segments are scored against the same config.
+ */
+public class NLPPhraseWeight extends Weight {
+
+    // Cost estimates mirroring those of PhraseQuery: seeking to the positions of a document and reading one position
+    private static final int TERM_POSNS_SEEK_OPS_PER_DOC = 128;
+    private static final int TERM_OPS_PER_POS = 7;
+
+    private final NLPPhraseQuery query;
+    private final String field;
+    private final ScoreMode scoreMode;
+    private final TermStates[] states;
+    private final Similarity.SimScorer stats;
+    private final double[] weights;
+    private final float maxWeight;
+
+    public NLPPhraseWeight(NLPPhraseQuery query, IndexSearcher searcher, ScoreMode scoreMode, float boost) throws IOException {
+        super(query);
+        final int[] positions = query.getPositions();
+        if (positions.length < 2) {
+            throw new IllegalStateException("NLPPhraseWeight does not support less than 2 terms, call rewrite first");
+        } else if (positions[0] != 0) {
+            throw new IllegalStateException("NLPPhraseWeight requires that the first position is 0, call rewrite first");
+        }
+        this.query = query;
+        this.field = query.getField();
+        this.scoreMode = scoreMode;
+
+        final NLPTerm[] terms = query.getTerms();
+        final IndexReaderContext context = searcher.getTopReaderContext();
+        states = new TermStates[terms.length];
+        TermStatistics[] termStats = new TermStatistics[terms.length];
+        int termUpTo = 0;
+        for (int i = 0; i < terms.length; i++) {
+            final Term term = terms[i].getTerm();
+            states[i] = TermStates.build(context, term, scoreMode.needsScores());
+            if (scoreMode.needsScores()) {
+                TermStatistics termStatistics = searcher.termStatistics(term, states[i]);
+                if (termStatistics != null) {
+                    termStats[termUpTo++] = termStatistics;
+                }
+            }
+        }
+        if (scoreMode.needsScores() == false) {
+            // we do not need the actual stats, use fake stats with docFreq=maxDoc=ttf=1
+            stats = searcher.getSimilarity().scorer(boost, new CollectionStatistics(field, 1, 1, 1, 1),
+                    new TermStatistics(terms[0].getTerm().bytes(), 1, 1));
+        } else if (termUpTo > 0) {
+            stats = searcher.getSimilarity().scorer(boost, searcher.collectionStatistics(field),
+                    ArrayUtil.copyOfSubArray(termStats, 0, termUpTo));
+        } else {
+            stats = null; // no terms at all, we won't use similarity
+        }
+
+        // A match is weighted by its worst matching term, so it can never exceed the smallest of the terms' maxima
+        this.weights = NLPPayloadScoringWeightFunction.getWeights();
+        double maxMultiplier = Double.MAX_VALUE;
+        for (NLPTerm term : terms) {
+            maxMultiplier = Math.min(maxMultiplier, NLPPayloadScoringWeightFunction.getMaxScoreMultiplier(weights, term.getPyld()));
+        }
+        this.maxWeight = maxMultiplier > 0 ? Math.nextUp((float) maxMultiplier) : 0;
+    }
+
+    @Override
+    public void extractTerms(Set<Term> queryTerms) {
+        for (NLPTerm term : query.getTerms()) {
+            queryTerms.add(term.getTerm());
+        }
+    }
+
+    @Override
+    public Explanation explain(LeafReaderContext context, int doc) throws IOException {
+        NLPPhraseScorer scorer = (NLPPhraseScorer) scorer(context);
+        if (scorer != null) {
+            // Phrases are matched only once per document, so advance the approximation and match explicitly
+            TwoPhaseIterator twoPhase = scorer.twoPhaseIterator();
+            int newDoc = twoPhase.approximation().advance(doc);
+            if (newDoc == doc && twoPhase.matches()) {
+                return scorer.explain();
+            }
+        }
+        return Explanation.noMatch("no matching phrase");
+    }
+
+    @Override
+    public Scorer scorer(LeafReaderContext context) throws IOException {
+        if (stats == null) {
+            return null;
+        }
+        final LeafReader reader = context.reader();
+        final Terms fieldTerms = reader.terms(field);
+        if (fieldTerms == null) {
+            return null;
+        }
+        if (fieldTerms.hasPositions() == false) {
+            throw new IllegalStateException("field \"" + field + "\" was indexed without position data; cannot run NLPPhraseQuery (phrase=" + getQuery() + ")");
+        }
+
+        final NLPTerm[] terms = query.getTerms();
+        final PostingsEnum[] postings = new PostingsEnum[terms.length];
+        // Reuse single TermsEnum below:
+        final TermsEnum te = fieldTerms.iterator();
+        float totalMatchCost = 0;
+        for (int i = 0; i < terms.length; i++) {
+            final Term t = terms[i].getTerm();
+            final TermState state = states[i].get(context);
+            if (state == null) { // term doesnt exist in this segment
+                return null;
+            }
+            te.seekExact(t.bytes(), state);
+            postings[i] = te.postings(null, PostingsEnum.PAYLOADS);
+            totalMatchCost += termPositionsCost(te);
+        }
+        LeafSimScorer docScorer = new LeafSimScorer(stats, reader, field, scoreMode.needsScores());
+        return new NLPPhraseScorer(this, terms, query.getPositions(), query.getSlop(), postings, weights, docScorer,
+                totalMatchCost, docScorer.getSimScorer().score(Integer.MAX_VALUE, 1L) * maxWeight);
+    }
+
+    /**
+     * Returns an expected cost in simple operations of processing the occurrences of a term in a document that
+     * contains the term, see {@link org.apache.lucene.search.TwoPhaseIterator#matchCost()}
+     */
+    private static float termPositionsCost(TermsEnum termsEnum) throws IOException {
+        int docFreq = termsEnum.docFreq();
+        long totalTermFreq = termsEnum.totalTermFreq(); // -1 when not available
+        float expOccurrencesInMatchingDoc = (totalTermFreq < docFreq) ? 1 : (totalTermFreq / (float) docFreq);
+        return TERM_POSNS_SEEK_OPS_PER_DOC + expOccurrencesInMatchingDoc * TERM_OPS_PER_POS;
+    }
+
+    /**
+     * Matching depends on the configured ConText weights as well as the postings of the terms, as
+     * {@link NLPPhraseScorer} drops phrase matches without a positive weight. Caching is only safe because the config
+     * version is part of {@link NLPPhraseQuery#equals(Object)}, such that cache entries of an outdated config are never
+     * looked up; it must therefore not be removed from query equality
+     */
+    @Override
+    public boolean isCacheable(LeafReaderContext ctx) {
+        return true;
+    }
+}
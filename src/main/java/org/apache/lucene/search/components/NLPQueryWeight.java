@@ -32,7 +32,6 @@ import org.apache.lucene.search.similarities.Similarity;
 import org.apache.lucene.util.BytesRef;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Set;
 
 /**
@@ -67,16 +66,13 @@ public class NLPQueryWeight extends Weight {
         this.scoreMode = scoreMode;
 
         // Initialize underlying stats - copied from ES
-        final CollectionStatistics collectionStats;
-        final TermStatistics termStats;
-        if (scoreMode.needsScores()) {
-            collectionStats = searcher.collectionStatistics(term.field());
-            termStats = searcher.termStatistics(term, termStates);
-        } else {
-            // we do not need the actual stats, use fake stats with docFreq=maxDoc=ttf=1
-            collectionStats = new CollectionStatistics(term.field(), 1, 1, 1, 1);
-            termStats = new TermStatistics(term.bytes(), 1, 1);
+        if (scoreMode.needsScores() == false) {
+            // Matching does not depend on payloads, so no doc scorer is needed, see scorer(LeafReaderContext)
+            this.stats = null;
+            return;
         }
+        final CollectionStatistics collectionStats = searcher.collectionStatistics(term.field());
+        final TermStatistics termStats = searcher.termStatistics(term, termStates);
 
         if (termStats == null) {
             this.stats = null; // term doesn't exist in any segment, we won't use similarity at all
@@ -94,13 +90,21 @@ public class NLPQueryWeight extends Weight {
 
     @Override
     public Explanation explain(LeafReaderContext context, int doc) throws IOException {
+        if (scoreMode.needsScores() == false) {
+            // Non-scoring weights match on doc ids alone, see scorer(LeafReaderContext)
+            Scorer scorer = scorer(context);
+            if (scorer != null && scorer.iterator().advance(doc) == doc) {
+                return Explanation.match(boost, getQuery().toString() + " (constant score, scores not needed)");
+            }
+            return Explanation.noMatch("No matching term");
+        }
         NLPTermScorer scorer = (NLPTermScorer) scorer(context);
         if (scorer != null) {
             int newDoc = scorer.iterator().advance(doc);
             if (newDoc == doc) {
                 float freq = scorer.freq();
                 Explanation freqExplanation = Explanation.match(freq, "termFreq=" + freq);
-                return scorer.docScorer.explain(freqExplanation, scorer.getNormValue(doc));
+                return scorer.explain(freqExplanation);
             }
         }
         return Explanation.noMatch("No matching term");
@@ -112,18 +116,21 @@ public class NLPQueryWeight extends Weight {
         if (termsEnum == null) {
             return null;
         }
-        ArrayList<TermStatistics> allTermStats = new ArrayList<>();
-
-        if (scoreMode.needsScores()) {
-            TermStatistics termStatistics = searcher.termStatistics(term, termStates);
-            if (termStatistics != null) {
-                allTermStats.add(termStatistics);
-            }
+        if (scoreMode.needsScores() == false) {
+            // A document matches if it contains the term whatever its payloads, so plain doc ids suffice
+            return new ConstantScoreScorer(this, boost, scoreMode, termsEnum.postings(null, PostingsEnum.NONE));
+        }
+        // The doc scorer is shared across segments, so the postings it reads are owned by the per-segment scorer
+        NLPDocScorer docScorer = (NLPDocScorer) stats;
+        if (scoreMode == ScoreMode.TOP_SCORES) {
+            // Positions and payloads are still needed to score the documents that are not skipped
+            ImpactsEnum impacts = termsEnum.impacts(PostingsEnum.PAYLOADS);
+            return new NLPTermScorer(this, impacts, docScorer, context.reader(), field);
         }
-        PostingsEnum docs = termsEnum.postings(null, PostingsEnum.ALL);
+        // Scoring reads payloads but never offsets
+        PostingsEnum docs = termsEnum.postings(null, PostingsEnum.PAYLOADS);
         assert docs != null;
-        ((NLPDocScorer)stats).setPostings(docs);
-        return new NLPTermScorer(this, docs, (NLPDocScorer) stats, context.reader(), field);
+        return new NLPTermScorer(this, docs, docScorer, context.reader(), field);
     }
 
     // Mostly copied from elasticsearch
@@ -141,8 +148,11 @@ public class NLPQueryWeight extends Weight {
         return termsEnum;
     }
 
+    /**
+     * Matching only depends on the postings of the term, so the matching documents of a segment can be cached
+     */
     @Override
     public boolean isCacheable(LeafReaderContext ctx) {
-        return false;
+        return true;
     }
 }
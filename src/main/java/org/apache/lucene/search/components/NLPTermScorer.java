@@ -23,11 +23,15 @@
 
 package org.apache.lucene.search.components;
 
+import org.apache.lucene.index.ImpactsEnum;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SlowImpactsEnum;
 import org.ohnlp.elasticsearchnlp.lucene.similarity.NLPDocScorer;
 import org.apache.lucene.index.PostingsEnum;
 import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Explanation;
+import org.apache.lucene.search.ImpactsDISI;
 import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.Weight;
 
@@ -35,11 +39,14 @@ import java.io.IOException;
 
 public class NLPTermScorer extends Scorer {
     private final PostingsEnum postingsEnum;
+    private final DocIdSetIterator iterator;
+    private final ImpactsDISI impactsDisi;
     public final NLPDocScorer docScorer;
     private final NumericDocValues norms;
+    private float minCompetitiveScore = 0;
 
     /**
-     * Construct a <code>TermScorer</code>.
+     * Construct a <code>TermScorer</code> that visits every matching document.
      *
      * @param weight     The weight of the <code>Term</code> in the query.
      * @param td         An iterator over the documents matching the <code>Term</code>.
@@ -51,6 +58,28 @@ public class NLPTermScorer extends Scorer {
         super(weight);
         this.docScorer = docScorer;
         this.postingsEnum = td;
+        this.iterator = td;
+        ImpactsEnum impactsEnum = new SlowImpactsEnum(td);
+        this.impactsDisi = new ImpactsDISI(impactsEnum, impactsEnum, docScorer);
+        this.norms = reader.getNormValues(field);
+    }
+
+    /**
+     * Construct a <code>TermScorer</code> that skips blocks of documents which cannot reach the minimum competitive
+     * score, as bounded by the block's impacts and the largest ConText weight the query term can receive.
+     *
+     * @param weight     The weight of the <code>Term</code> in the query.
+     * @param impactsEnum An iterator over the documents matching the <code>Term</code>, with impacts.
+     * @param docScorer  The <code>Similarity.SimScorer</code> implementation
+     *                   to be used for score computations.
+     * @param reader
+     */
+    public NLPTermScorer(Weight weight, ImpactsEnum impactsEnum, NLPDocScorer docScorer, LeafReader reader, String field) throws IOException {
+        super(weight);
+        this.docScorer = docScorer;
+        this.postingsEnum = impactsEnum;
+        this.impactsDisi = new ImpactsDISI(impactsEnum, impactsEnum, docScorer);
+        this.iterator = impactsDisi;
         this.norms = reader.getNormValues(field);
     }
 
@@ -65,19 +94,49 @@ public class NLPTermScorer extends Scorer {
 
     @Override
     public DocIdSetIterator iterator() {
-        return postingsEnum;
+        return iterator;
+    }
+
+    @Override
+    public int advanceShallow(int target) throws IOException {
+        return impactsDisi.advanceShallow(target);
     }
 
     @Override
     public float getMaxScore(int upTo) throws IOException {
-        return Float.POSITIVE_INFINITY;
+        return impactsDisi.getMaxScore(upTo);
+    }
+
+    @Override
+    public void setMinCompetitiveScore(float minScore) {
+        this.minCompetitiveScore = minScore;
+        impactsDisi.setMinCompetitiveScore(minScore);
     }
 
+    /**
+     * Scores the current document. Documents whose upper bound from their frequency and norm, see
+     * {@link NLPDocScorer#score(float, long)}, cannot reach the minimum competitive score are not competitive whatever
+     * their payloads, so that bound is returned without reading positions.
+     */
     @Override
     public float score() throws IOException {
         assert docID() != DocIdSetIterator.NO_MORE_DOCS;
-        // get payload here instead?
-        return docScorer.score(postingsEnum.freq(), getNormValue(docID()));
+        long norm = getNormValue(docID());
+        if (minCompetitiveScore > 0) {
+            float maxScore = docScorer.score(postingsEnum.freq(), norm);
+            if (maxScore < minCompetitiveScore) {
+                return maxScore;
+            }
+        }
+        return docScorer.score(postingsEnum, norm);
+    }
+
+    /**
+     * Explains the score of the current document
+     * @param freq An explanation of the term frequency of the current document
+     */
+    public Explanation explain(Explanation freq) throws IOException {
+        return docScorer.explain(postingsEnum, freq, getNormValue(docID()));
     }
 
     public long getNormValue(int doc) throws IOException {
@@ -30,6 +30,7 @@ import org.apache.lucene.analysis.Analyzer;
 import org.elasticsearch.common.ParseField;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.analysis.AnalyzerProvider;
+import org.elasticsearch.index.analysis.TokenFilterFactory;
 import org.elasticsearch.index.analysis.TokenizerFactory;
 import org.elasticsearch.indices.analysis.AnalysisModule;
 import org.elasticsearch.plugins.AnalysisPlugin;
@@ -37,9 +38,13 @@ import org.elasticsearch.plugins.Plugin;
 import org.elasticsearch.plugins.ScriptPlugin;
 import org.elasticsearch.plugins.SearchPlugin;
 import org.ohnlp.elasticsearchnlp.analyzers.NLPAnalyzerProvider;
+import org.ohnlp.elasticsearchnlp.analyzers.NLPContextShadowFilterFactory;
+import org.ohnlp.elasticsearchnlp.analyzers.NLPModelRegistry;
 import org.ohnlp.elasticsearchnlp.analyzers.NLPTokenizer;
 import org.ohnlp.elasticsearchnlp.config.Config;
+import org.ohnlp.elasticsearchnlp.elasticsearch.NLPContextFilterESQueryBuilder;
 import org.ohnlp.elasticsearchnlp.elasticsearch.NLPNaiveBooleanESQueryBuilder;
+import org.ohnlp.elasticsearchnlp.elasticsearch.NLPPhraseESQueryBuilder;
 
 import java.io.File;
 import java.io.IOException;
@@ -47,6 +52,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -77,11 +83,24 @@ public class ElasticsearchNLPPlugin extends Plugin implements AnalysisPlugin, Sc
                 return null;
             }
         });
+        // Load shared models and ConText rules once per node rather than on first tokenizer construction
+        NLPModelRegistry.initialize();
     }
 
     @Override
     public Map<String, AnalysisModule.AnalysisProvider<TokenizerFactory>> getTokenizers() {
-        return Collections.singletonMap("nlp", (indexSettings, env, name, settings) -> NLPTokenizer::new);
+        return Collections.singletonMap("nlp", (indexSettings, env, name, settings) -> {
+            int scopeWindow = NLPAnalyzerProvider.getScopeWindow(settings);
+            int streamingBufferSize = NLPAnalyzerProvider.getStreamingBufferSize(settings);
+            boolean omitDefaultPayloads = NLPAnalyzerProvider.getOmitDefaultPayloads(settings);
+            boolean compactPayloads = NLPAnalyzerProvider.getCompactPayloads(settings);
+            return () -> new NLPTokenizer(scopeWindow, streamingBufferSize, omitDefaultPayloads, compactPayloads);
+        });
+    }
+
+    @Override
+    public Map<String, AnalysisModule.AnalysisProvider<TokenFilterFactory>> getTokenFilters() {
+        return Collections.singletonMap(NLPContextShadowFilterFactory.NAME, (indexSettings, env, name, settings) -> new NLPContextShadowFilterFactory(indexSettings, name, settings));
     }
 
     @Override
@@ -91,8 +110,10 @@ public class ElasticsearchNLPPlugin extends Plugin implements AnalysisPlugin, Sc
 
     @Override
     public List<QuerySpec<?>> getQueries() {
-        return Collections.singletonList(
-                new QuerySpec<>(new ParseField(NLPNaiveBooleanESQueryBuilder.NAME), NLPNaiveBooleanESQueryBuilder::new, NLPNaiveBooleanESQueryBuilder::fromXContent)
+        return Arrays.asList(
+                new QuerySpec<>(new ParseField(NLPNaiveBooleanESQueryBuilder.NAME), NLPNaiveBooleanESQueryBuilder::new, NLPNaiveBooleanESQueryBuilder::fromXContent),
+                new QuerySpec<>(new ParseField(NLPContextFilterESQueryBuilder.NAME), NLPContextFilterESQueryBuilder::new, NLPContextFilterESQueryBuilder::fromXContent),
+                new QuerySpec<>(new ParseField(NLPPhraseESQueryBuilder.NAME), NLPPhraseESQueryBuilder::new, NLPPhraseESQueryBuilder::fromXContent)
         );
     }
 }
@@ -28,15 +28,53 @@ import org.apache.lucene.analysis.en.EnglishAnalyzer;
 import org.ohnlp.elasticsearchnlp.ElasticsearchNLPPlugin;
 
 public class NLPAnalyzer extends Analyzer {
+    private final int scopeWindow;
+    private final int streamingBufferSize;
+    private final boolean omitDefaultPayloads;
+    private final boolean compactPayloads;
+    private final boolean stateSummary;
+
+    public NLPAnalyzer() {
+        this(ElasticsearchNLPPlugin.CONFIG.getConTextScopeWindow(), ElasticsearchNLPPlugin.CONFIG.getStreamingBufferSize(),
+                ElasticsearchNLPPlugin.CONFIG.getOmitDefaultPayloads(), ElasticsearchNLPPlugin.CONFIG.getCompactPayloads(),
+                ElasticsearchNLPPlugin.CONFIG.enableConTextStateSummary());
+    }
+
+    /**
+     * @param scopeWindow         The maximum number of tokens covered by the scope of a ConText trigger, or -1 to scope
+     *                            to the sentence boundary
+     * @param streamingBufferSize The number of characters to buffer before tokenizing in batches of complete
+     *                            sentences, or -1 to tokenize fields in their entirety
+     * @param omitDefaultPayloads Whether tokens with the default payload should be emitted without a payload
+     * @param compactPayloads     Whether payloads should use the single byte format
+     * @param stateSummary        Whether the first occurrence of each term should carry a summary of the ConText
+     *                            statuses of all of its occurrences, see {@link NLPContextSummaryFilter}
+     */
+    public NLPAnalyzer(int scopeWindow, int streamingBufferSize, boolean omitDefaultPayloads, boolean compactPayloads,
+                       boolean stateSummary) {
+        this.scopeWindow = scopeWindow;
+        this.streamingBufferSize = streamingBufferSize;
+        this.omitDefaultPayloads = omitDefaultPayloads;
+        this.compactPayloads = compactPayloads;
+        this.stateSummary = stateSummary;
+    }
+
     // Denotes the analysis pipeline to use for a given field
     protected TokenStreamComponents createComponents(final String fieldName) {
         // First add ConText payloads and perform tokenization
-        Tokenizer tokens = new NLPTokenizer();
+        Tokenizer tokens = new NLPTokenizer(scopeWindow, streamingBufferSize, omitDefaultPayloads, compactPayloads);
         TokenStream pipeline = new LowerCaseFilter(tokens);
         pipeline = new StopFilter(pipeline, EnglishAnalyzer.ENGLISH_STOP_WORDS_SET);
         if (ElasticsearchNLPPlugin.CONFIG.enableClinicalStopwords()) {
             pipeline = new StopFilter(pipeline, StopFilter.makeStopSet(CLINICAL_STOPWORDS));
         }
+        // Summaries require buffering the entire field, which streaming mode exists to avoid
+        if (stateSummary && streamingBufferSize <= 0) {
+            pipeline = new NLPContextSummaryFilter(pipeline);
+        }
+        if (ElasticsearchNLPPlugin.CONFIG.enableConTextShadowTerms()) {
+            pipeline = new NLPContextShadowFilter(pipeline);
+        }
         return new TokenStreamComponents(tokens, pipeline);
     }
 
@@ -23,22 +23,122 @@
 
 package org.ohnlp.elasticsearchnlp.analyzers;
 
+import org.apache.lucene.analysis.Analyzer;
+import org.ohnlp.elasticsearchnlp.ElasticsearchNLPPlugin;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.analysis.AbstractIndexAnalyzerProvider;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.query.QueryShardContext;
 
 public class NLPAnalyzerProvider extends AbstractIndexAnalyzerProvider<NLPAnalyzer> {
 
+    public static final String SCOPE_WINDOW_SETTING = "scope_window";
+    public static final String STREAMING_BUFFER_SIZE_SETTING = "streaming_buffer_size";
+    public static final String OMIT_DEFAULT_PAYLOADS_SETTING = "omit_default_payloads";
+    public static final String COMPACT_PAYLOADS_SETTING = "compact_payloads";
+    public static final String STATE_SUMMARY_SETTING = "state_summary";
+
     public static final NLPAnalyzer ANALYZER = new NLPAnalyzer();
+    /** Analyzed query text, shared by the query builders. {@link #ANALYZER} is used unless another one is given */
+    public static final NLPQueryAnalysisCache QUERY_ANALYSIS_CACHE = new NLPQueryAnalysisCache(ANALYZER);
+
+    private final NLPAnalyzer analyzer;
 
     public NLPAnalyzerProvider(IndexSettings indexSettings, String name, Settings settings) {
         super(indexSettings, name, settings);
+        // Only analyzers that override node-wide settings require their own instance
+        if (settings.hasValue(SCOPE_WINDOW_SETTING) || settings.hasValue(STREAMING_BUFFER_SIZE_SETTING)
+                || settings.hasValue(OMIT_DEFAULT_PAYLOADS_SETTING) || settings.hasValue(COMPACT_PAYLOADS_SETTING)
+                || settings.hasValue(STATE_SUMMARY_SETTING)) {
+            this.analyzer = new NLPAnalyzer(getScopeWindow(settings), getStreamingBufferSize(settings),
+                    getOmitDefaultPayloads(settings), getCompactPayloads(settings), getStateSummary(settings));
+        } else {
+            this.analyzer = ANALYZER;
+        }
     }
 
     @Override
     public NLPAnalyzer get() {
-        return ANALYZER;
+        return analyzer;
+    }
+
+    /**
+     * Reads the scope window of an nlp analyzer or tokenizer definition
+     *
+     * @param settings The analyzer or tokenizer settings
+     * @return The configured scope window, or the node-wide default if none is set
+     * @throws IllegalArgumentException if the scope window is less than -1
+     */
+    public static int getScopeWindow(Settings settings) {
+        int scopeWindow = settings.getAsInt(SCOPE_WINDOW_SETTING, ElasticsearchNLPPlugin.CONFIG.getConTextScopeWindow());
+        if (scopeWindow < -1) {
+            throw new IllegalArgumentException("[" + SCOPE_WINDOW_SETTING + "] must be -1 or >= 0, got " + scopeWindow);
+        }
+        return scopeWindow;
     }
 
+    /**
+     * Reads the streaming buffer size of an nlp analyzer or tokenizer definition
+     *
+     * @param settings The analyzer or tokenizer settings
+     * @return The configured streaming buffer size, or the node-wide default if none is set
+     * @throws IllegalArgumentException if the streaming buffer size is neither -1 nor at least
+     *                                  {@link NLPTokenizer#MIN_STREAMING_BUFFER_SIZE}
+     */
+    public static int getStreamingBufferSize(Settings settings) {
+        int streamingBufferSize = settings.getAsInt(STREAMING_BUFFER_SIZE_SETTING, ElasticsearchNLPPlugin.CONFIG.getStreamingBufferSize());
+        if (streamingBufferSize != -1 && streamingBufferSize < NLPTokenizer.MIN_STREAMING_BUFFER_SIZE) {
+            throw new IllegalArgumentException("[" + STREAMING_BUFFER_SIZE_SETTING + "] must be -1 or >= "
+                    + NLPTokenizer.MIN_STREAMING_BUFFER_SIZE + ", got " + streamingBufferSize);
+        }
+        return streamingBufferSize;
+    }
+
+    /**
+     * Reads whether an nlp analyzer or tokenizer definition omits default payloads
+     *
+     * @param settings The analyzer or tokenizer settings
+     * @return The configured omit default payloads setting, or the node-wide default if none is set
+     */
+    public static boolean getOmitDefaultPayloads(Settings settings) {
+        return settings.getAsBoolean(OMIT_DEFAULT_PAYLOADS_SETTING, ElasticsearchNLPPlugin.CONFIG.getOmitDefaultPayloads());
+    }
+
+    /**
+     * Reads whether an nlp analyzer or tokenizer definition writes compact payloads
+     *
+     * @param settings The analyzer or tokenizer settings
+     * @return The configured compact payloads setting, or the node-wide default if none is set
+     */
+    public static boolean getCompactPayloads(Settings settings) {
+        return settings.getAsBoolean(COMPACT_PAYLOADS_SETTING, ElasticsearchNLPPlugin.CONFIG.getCompactPayloads());
+    }
+
+    /**
+     * Reads whether an nlp analyzer definition writes ConText state summaries
+     *
+     * @param settings The analyzer settings
+     * @return The configured state summary setting, or the node-wide default if none is set
+     */
+    public static boolean getStateSummary(Settings settings) {
+        return settings.getAsBoolean(STATE_SUMMARY_SETTING, ElasticsearchNLPPlugin.CONFIG.enableConTextStateSummary());
+    }
+
+    /**
+     * Resolves the analyzer with which to analyze query text against a field, such that query payloads are produced
+     * with the same settings (e.g. the scope window) as the indexed ones
+     *
+     * @param context   The shard context of the query
+     * @param fieldName The queried field
+     * @return The search analyzer of the field, or the default nlp analyzer if the field is not mapped
+     */
+    public static Analyzer getSearchAnalyzer(QueryShardContext context, String fieldName) {
+        MappedFieldType fieldType = context.fieldMapper(fieldName);
+        if (fieldType == null) {
+            return ANALYZER;
+        }
+        return context.getSearchAnalyzer(fieldType);
+    }
 
 }
@@ -0,0 +1,135 @@
+/*
+ *  Copyright: (c) 2019 Mayo Foundation for Medical Education and
+ *  Research (MFMER). All rights reserved. MAYO, MAYO CLINIC, and the
+ *  triple-shield Mayo logo are trademarks and service marks of MFMER.
+ *
+ *  Except as contained in the copyright notice above, or as used to identify
+ *  MFMER as the author of this software, the trade names, trademarks, service
+ *  marks, or product names of the copyright holder shall not be used in
+ *  advertising, promotion or otherwise in connection with this software without
+ *  prior written authorization of the copyright holder.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.ohnlp.elasticsearchnlp.analyzers;
+
+import org.apache.lucene.analysis.TokenFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.PayloadAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.ohnlp.elasticsearchnlp.payloads.NLPPayload;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Follows each token with a shadow term at the same position that encodes the token's ConText status, e.g.
+ * <code>heartburn|neg</code> or <code>heartburn|hist+fam</code>, or <code>heartburn|aff</code> for the default
+ * status. Strict context constraints can then be evaluated against plain postings, without decoding payloads, see
+ * {@link #getShadowTerms(String, int, int)}.<br/>
+ * Shadow terms carry no payload and have the type {@link #TYPE}.
+ */
+public final class NLPContextShadowFilter extends TokenFilter {
+
+    public static final String TYPE = "nlp_context";
+    public static final char SEPARATOR = '|';
+
+    // Names of the ConText status bits of NLPPayload, from lowest to highest
+    private static final String[] STATUS_NAMES = {"neg", "poss", "hist", "fam"};
+    private static final String DEFAULT_STATUS_NAME = "aff";
+    private static final String[] SIGNATURES = new String[16];
+
+    static {
+        for (int status = 0; status < 16; status++) {
+            StringBuilder signature = new StringBuilder();
+            for (int bit = 0; bit < STATUS_NAMES.length; bit++) {
+                if ((status & (1 << bit)) != 0) {
+                    signature.append(signature.length() == 0 ? "" : "+").append(STATUS_NAMES[bit]);
+                }
+            }
+            SIGNATURES[status] = status == 0 ? DEFAULT_STATUS_NAME : signature.toString();
+        }
+    }
+
+    private final CharTermAttribute termAtt = addAttribute(CharTermAttribute.class);
+    private final PayloadAttribute payloadAtt = addAttribute(PayloadAttribute.class);
+    private final PositionIncrementAttribute posIncAtt = addAttribute(PositionIncrementAttribute.class);
+    private final TypeAttribute typeAtt = addAttribute(TypeAttribute.class);
+
+    private char[] pendingTerm = new char[16];
+    private int pendingTermLength = -1;
+    private int pendingStatus;
+
+    public NLPContextShadowFilter(TokenStream input) {
+        super(input);
+    }
+
+    @Override
+    public boolean incrementToken() throws IOException {
+        if (pendingTermLength >= 0) {
+            // Other attributes, such as offsets, are still those of the original token
+            termAtt.copyBuffer(pendingTerm, 0, pendingTermLength);
+            termAtt.append(SEPARATOR).append(SIGNATURES[pendingStatus]);
+            posIncAtt.setPositionIncrement(0);
+            payloadAtt.setPayload(null);
+            typeAtt.setType(TYPE);
+            pendingTermLength = -1;
+            return true;
+        }
+        if (!input.incrementToken()) {
+            return false;
+        }
+        pendingTerm = ArrayUtil.grow(pendingTerm, termAtt.length());
+        System.arraycopy(termAtt.buffer(), 0, pendingTerm, 0, termAtt.length());
+        pendingTermLength = termAtt.length();
+        pendingStatus = NLPPayload.getContextBits(payloadAtt.getPayload());
+        return true;
+    }
+
+    @Override
+    public void reset() throws IOException {
+        super.reset();
+        pendingTermLength = -1;
+    }
+
+    /**
+     * @param term   The (analyzed) term text
+     * @param status The ConText status bits, as in {@link NLPPayload}
+     * @return The shadow term emitted for occurrences of the term with exactly the given status
+     */
+    public static String getShadowTerm(String term, int status) {
+        return term + SEPARATOR + SIGNATURES[status & 0xF];
+    }
+
+    /**
+     * @param term     The (analyzed) term text
+     * @param required ConText status bits that must be set, e.g. 0x8 for "family history only"
+     * @param excluded ConText status bits that must not be set, e.g. 0x1 for "positive mentions only"
+     * @return The shadow terms of all statuses satisfying the constraints, for use in e.g. a
+     * {@link org.apache.lucene.search.TermInSetQuery}
+     */
+    public static List<BytesRef> getShadowTerms(String term, int required, int excluded) {
+        List<BytesRef> ret = new ArrayList<>();
+        for (int status = 0; status < 16; status++) {
+            if ((status & required) == required && (status & excluded) == 0) {
+                ret.add(new BytesRef(getShadowTerm(term, status)));
+            }
+        }
+        return ret;
+    }
+}
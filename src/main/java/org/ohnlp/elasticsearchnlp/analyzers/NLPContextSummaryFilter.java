@@ -0,0 +1,288 @@
+/*
+ *  Copyright: (c) 2019 Mayo Foundation for Medical Education and
+ *  Research (MFMER). All rights reserved. MAYO, MAYO CLINIC, and the
+ *  triple-shield Mayo logo are trademarks and service marks of MFMER.
+ *
+ *  Except as contained in the copyright notice above, or as used to identify
+ *  MFMER as the author of this software, the trade names, trademarks, service
+ *  marks, or product names of the copyright holder shall not be used in
+ *  advertising, promotion or otherwise in connection with this software without
+ *  prior written authorization of the copyright holder.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.ohnlp.elasticsearchnlp.analyzers;
+
+import org.apache.lucene.analysis.TokenFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PayloadAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.ohnlp.elasticsearchnlp.payloads.NLPPayload;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Appends a summary of the ConText statuses of all occurrences of a term within the field value to the payload of its
+ * first occurrence, as described in {@link NLPPayload}. This allows scoring to compute the NLP weight of a document from
+ * the first payload alone whenever all occurrences share a single status. The summary records how many occurrences it
+ * covers, as it cannot cover the occurrences in other values of a multi-valued field.<br/>
+ * As the whole field must be seen before the first token can be emitted, this buffers all tokens of the field and
+ * should therefore not be used in streaming mode. Tokens are buffered into primitive arrays that are reused across
+ * field values, such that no allocation takes place once these have grown to fit. Only the term, offsets, position
+ * increment and payload of tokens are kept, which are the only attributes set by the NLP analysis chain.
+ */
+public final class NLPContextSummaryFilter extends TokenFilter {
+
+    // Buffers grown beyond these sizes by an unusually large field value are released on reset
+    private static final int MAX_RETAINED_TOKENS = 1 << 16;
+    private static final int MAX_RETAINED_CHARS = 1 << 20;
+
+    private final CharTermAttribute termAtt = addAttribute(CharTermAttribute.class);
+    private final OffsetAttribute offsetAtt = addAttribute(OffsetAttribute.class);
+    private final PositionIncrementAttribute posIncAtt = addAttribute(PositionIncrementAttribute.class);
+    private final PayloadAttribute payloadAtt = addAttribute(PayloadAttribute.class);
+
+    // Buffered tokens: token i has the term termChars[termStarts[i], termStarts[i + 1]) and the payload
+    // payloadBytes[payloadStarts[i], payloadStarts[i + 1]), where an empty payload denotes the default
+    private int tokenCount = 0;
+    private int[] termStarts = new int[17];
+    private char[] termChars = new char[128];
+    private int[] startOffsets = new int[16];
+    private int[] endOffsets = new int[16];
+    private int[] positionIncrements = new int[16];
+    private int[] payloadStarts = new int[17];
+    private byte[] payloadBytes = new byte[32];
+    private int[] tokenTerms = new int[16];
+    private int endOffset;
+    private int endPositionIncrement;
+    private boolean buffered = false;
+
+    // Distinct terms, by id: the token of their first occurrence, their state summary and number of occurrences
+    private int distinctCount = 0;
+    private int[] firstTokens = new int[16];
+    private int[] summaries = new int[16];
+    private int[] occurrences = new int[16];
+    private int[] hashes = new int[16];
+    // Open addressing hash table of distinct term ids + 1, 0 denoting an empty slot
+    private int[] slots = new int[32];
+
+    private final BytesRef payload = new BytesRef(new byte[2 + NLPPayload.SUMMARY_BYTES]);
+    private int nextToken = 0;
+
+    public NLPContextSummaryFilter(TokenStream input) {
+        super(input);
+    }
+
+    @Override
+    public boolean incrementToken() throws IOException {
+        if (!buffered) {
+            bufferTokens();
+            buffered = true;
+        }
+        if (nextToken >= tokenCount) {
+            return false;
+        }
+        int token = nextToken++;
+        clearAttributes();
+        termAtt.copyBuffer(termChars, termStarts[token], termStarts[token + 1] - termStarts[token]);
+        offsetAtt.setOffset(startOffsets[token], endOffsets[token]);
+        posIncAtt.setPositionIncrement(positionIncrements[token]);
+        int payloadStart = payloadStarts[token];
+        int length = payloadStarts[token + 1] - payloadStart;
+        byte[] bytes = payload.bytes;
+        if (bytes.length < length + NLPPayload.SUMMARY_BYTES) {
+            bytes = payload.bytes = ArrayUtil.grow(bytes, length + NLPPayload.SUMMARY_BYTES);
+        }
+        System.arraycopy(payloadBytes, payloadStart, bytes, 0, length);
+        int term = tokenTerms[token];
+        if (firstTokens[term] == token) {
+            // Keep the format of the payload, absent payloads denote the default and are written as compact
+            if (length == 0) {
+                bytes[0] = 0;
+                length = 1;
+            }
+            int summary = summaries[term];
+            int count = Math.min(occurrences[term], 0xFFFF);
+            bytes[length] = (byte) summary;
+            bytes[length + 1] = (byte) (summary >>> 8);
+            bytes[length + 2] = (byte) count;
+            bytes[length + 3] = (byte) (count >>> 8);
+            length += NLPPayload.SUMMARY_BYTES;
+        }
+        if (length > 0) {
+            // The payload is reused across tokens, consumers must copy it if retained
+            payload.length = length;
+            payloadAtt.setPayload(payload);
+        }
+        return true;
+    }
+
+    private void bufferTokens() throws IOException {
+        int charCount = 0;
+        int byteCount = 0;
+        while (input.incrementToken()) {
+            if (tokenCount == startOffsets.length) {
+                int capacity = ArrayUtil.oversize(tokenCount + 1, Integer.BYTES);
+                startOffsets = Arrays.copyOf(startOffsets, capacity);
+                endOffsets = Arrays.copyOf(endOffsets, capacity);
+                positionIncrements = Arrays.copyOf(positionIncrements, capacity);
+                tokenTerms = Arrays.copyOf(tokenTerms, capacity);
+                termStarts = Arrays.copyOf(termStarts, capacity + 1);
+                payloadStarts = Arrays.copyOf(payloadStarts, capacity + 1);
+            }
+            int termLength = termAtt.length();
+            termChars = ArrayUtil.grow(termChars, charCount + termLength);
+            System.arraycopy(termAtt.buffer(), 0, termChars, charCount, termLength);
+            termStarts[tokenCount] = charCount;
+            termStarts[tokenCount + 1] = charCount + termLength;
+            startOffsets[tokenCount] = offsetAtt.startOffset();
+            endOffsets[tokenCount] = offsetAtt.endOffset();
+            positionIncrements[tokenCount] = posIncAtt.getPositionIncrement();
+            BytesRef tokenPayload = payloadAtt.getPayload();
+            payloadStarts[tokenCount] = byteCount;
+            if (!NLPPayload.isDefault(tokenPayload)) {
+                payloadBytes = ArrayUtil.grow(payloadBytes, byteCount + tokenPayload.length);
+                System.arraycopy(tokenPayload.bytes, tokenPayload.offset, payloadBytes, byteCount, tokenPayload.length);
+                byteCount += tokenPayload.length;
+            }
+            int term = findOrAddTerm(tokenCount);
+            tokenTerms[tokenCount] = term;
+            summaries[term] |= 1 << NLPPayload.getContextBits(tokenPayload);
+            occurrences[term]++;
+            charCount += termLength;
+            tokenCount++;
+        }
+        termStarts[tokenCount] = charCount;
+        payloadStarts[tokenCount] = byteCount;
+        input.end();
+        endOffset = offsetAtt.endOffset();
+        endPositionIncrement = posIncAtt.getPositionIncrement();
+    }
+
+    /**
+     * @param token A buffered token, the term of which is already in termChars
+     * @return The id of the distinct term of the token, which is added with the token as its first occurrence if new
+     */
+    private int findOrAddTerm(int token) {
+        int start = termStarts[token];
+        int end = termStarts[token + 1];
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + termChars[i];
+        }
+        int mask = slots.length - 1;
+        int slot = mix(hash) & mask;
+        for (int id; (id = slots[slot] - 1) >= 0; slot = (slot + 1) & mask) {
+            if (hashes[id] == hash && sameTerm(firstTokens[id], start, end)) {
+                return id;
+            }
+        }
+        int id = distinctCount++;
+        if (id == firstTokens.length) {
+            int capacity = ArrayUtil.oversize(id + 1, Integer.BYTES);
+            firstTokens = Arrays.copyOf(firstTokens, capacity);
+            summaries = Arrays.copyOf(summaries, capacity);
+            occurrences = Arrays.copyOf(occurrences, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+        }
+        firstTokens[id] = token;
+        summaries[id] = 0;
+        occurrences[id] = 0;
+        hashes[id] = hash;
+        slots[slot] = id + 1;
+        if (distinctCount * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        return id;
+    }
+
+    private boolean sameTerm(int token, int start, int end) {
+        int otherStart = termStarts[token];
+        if (termStarts[token + 1] - otherStart != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (termChars[i] != termChars[otherStart + i - start]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash(int size) {
+        slots = new int[size];
+        int mask = size - 1;
+        for (int id = 0; id < distinctCount; id++) {
+            int slot = mix(hashes[id]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+    }
+
+    // Spreads the bits of String-style hashes, which are poorly distributed in their low bits for short terms
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    @Override
+    public void end() throws IOException {
+        if (buffered) {
+            // The input was already ended while buffering, so replay its end state
+            endAttributes();
+            offsetAtt.setOffset(endOffset, endOffset);
+            posIncAtt.setPositionIncrement(endPositionIncrement);
+        } else {
+            super.end();
+        }
+    }
+
+    @Override
+    public void reset() throws IOException {
+        super.reset();
+        tokenCount = 0;
+        nextToken = 0;
+        buffered = false;
+        if (startOffsets.length > MAX_RETAINED_TOKENS) {
+            termStarts = new int[17];
+            startOffsets = new int[16];
+            endOffsets = new int[16];
+            positionIncrements = new int[16];
+            payloadStarts = new int[17];
+            tokenTerms = new int[16];
+        }
+        if (termChars.length > MAX_RETAINED_CHARS) {
+            termChars = new char[128];
+        }
+        if (payloadBytes.length > MAX_RETAINED_CHARS) {
+            payloadBytes = new byte[32];
+        }
+        if (firstTokens.length > MAX_RETAINED_TOKENS) {
+            firstTokens = new int[16];
+            summaries = new int[16];
+            occurrences = new int[16];
+            hashes = new int[16];
+            slots = new int[32];
+        } else if (distinctCount > 0) {
+            Arrays.fill(slots, 0);
+        }
+        distinctCount = 0;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ *  Copyright: (c) 2019 Mayo Foundation for Medical Education and
+ *  Research (MFMER). All rights reserved. MAYO, MAYO CLINIC, and the
+ *  triple-shield Mayo logo are trademarks and service marks of MFMER.
+ *
+ *  Except as contained in the copyright notice above, or as used to identify
+ *  MFMER as the author of this software, the trade names, trademarks, service
+ *  marks, or product names of the copyright holder shall not be used in
+ *  advertising, promotion or otherwise in connection with this software without
+ *  prior written authorization of the copyright holder.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.ohnlp.elasticsearchnlp.analyzers;
+
+import opennlp.tools.sentdetect.SentenceDetectorME;
+import opennlp.tools.sentdetect.SentenceModel;
+import opennlp.tools.tokenize.TokenizerME;
+import opennlp.tools.tokenize.TokenizerModel;
+import org.ohnlp.elasticsearchnlp.context.ConTexTSettings;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * <p>Node-level registry of the immutable resources backing NLP analysis, namely the OpenNLP tokenizer and sentence
+ * models as well as the compiled ConText rule sets.</p>
+ * <p>
+ * These resources are thread-safe and are loaded exactly once per node (eagerly by the plugin on startup, or lazily on
+ * first use otherwise), such that {@link NLPTokenizer} construction need only create the lightweight per-thread
+ * {@link TokenizerME} and {@link SentenceDetectorME} wrappers.
+ * </p>
+ */
+public final class NLPModelRegistry {
+
+    private static volatile NLPModelRegistry INSTANCE;
+
+    private final TokenizerModel tokenizerModel;
+    private final SentenceModel sentenceModel;
+    private final ConTexTSettings contextSettings;
+
+    private NLPModelRegistry() throws IOException {
+        try (InputStream tokModel = NLPModelRegistry.class.getResourceAsStream("/models/en-token.bin");
+             InputStream sentModel = NLPModelRegistry.class.getResourceAsStream("/models/en-sent.bin")) {
+            this.tokenizerModel = new TokenizerModel(tokModel);
+            this.sentenceModel = new SentenceModel(sentModel);
+        }
+        try (InputStream ruleStream = NLPModelRegistry.class.getResourceAsStream("/contextRule.txt")) {
+            this.contextSettings = new ConTexTSettings(ruleStream);
+        }
+    }
+
+    /**
+     * Loads all backing resources if not already loaded
+     */
+    public static void initialize() {
+        get();
+    }
+
+    /**
+     * @return The registry for this node, loading it if necessary
+     */
+    public static NLPModelRegistry get() {
+        NLPModelRegistry ret = INSTANCE;
+        if (ret == null) {
+            synchronized (NLPModelRegistry.class) {
+                ret = INSTANCE;
+                if (ret == null) {
+                    try {
+                        ret = new NLPModelRegistry();
+                    } catch (IOException e) {
+                        throw new RuntimeException("Failed to initialize backing NLP pipeline", e);
+                    }
+                    INSTANCE = ret;
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @return A new (non thread-safe) tokenizer backed by the shared tokenizer model
+     */
+    public TokenizerME newTokenizer() {
+        return new TokenizerME(tokenizerModel);
+    }
+
+    /**
+     * @return A new (non thread-safe) sentence detector backed by the shared sentence model
+     */
+    public SentenceDetectorME newSentenceDetector() {
+        return new SentenceDetectorME(sentenceModel);
+    }
+
+    /**
+     * @return {@link ConTexTSettings} that denote trigger terms and terminals of all priorities
+     */
+    public ConTexTSettings getContextSettings() {
+        return contextSettings;
+    }
+}
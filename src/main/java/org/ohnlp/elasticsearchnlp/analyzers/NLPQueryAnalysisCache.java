@@ -0,0 +1,249 @@
+/*
+ *  Copyright: (c) 2019 Mayo Foundation for Medical Education and
+ *  Research (MFMER). All rights reserved. MAYO, MAYO CLINIC, and the
+ *  triple-shield Mayo logo are trademarks and service marks of MFMER.
+ *
+ *  Except as contained in the copyright notice above, or as used to identify
+ *  MFMER as the author of this software, the trade names, trademarks, service
+ *  marks, or product names of the copyright holder shall not be used in
+ *  advertising, promotion or otherwise in connection with this software without
+ *  prior written authorization of the copyright holder.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.ohnlp.elasticsearchnlp.analyzers;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.PayloadAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.ohnlp.elasticsearchnlp.ElasticsearchNLPPlugin;
+import org.ohnlp.elasticsearchnlp.lucene.NLPTerm;
+import org.ohnlp.elasticsearchnlp.payloads.NLPPayload;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded LRU cache of analyzed query text, so that repeated queries do not run the full NLP pipeline on every
+ * shard. Entries are keyed by analyzer (by identity), field, text and
+ * {@link org.ohnlp.elasticsearchnlp.config.Config#getVersion() config version}, and evicted least recently used first once their estimated size exceeds
+ * {@link org.ohnlp.elasticsearchnlp.config.Config#getQueryAnalysisCacheSize()}.
+ */
+public class NLPQueryAnalysisCache implements Accountable {
+
+    private static final long ENTRY_OVERHEAD = RamUsageEstimator.NUM_BYTES_OBJECT_HEADER * 4L
+            + RamUsageEstimator.NUM_BYTES_OBJECT_REF * 8L + Long.BYTES;
+    private static final long TERM_OVERHEAD = RamUsageEstimator.NUM_BYTES_OBJECT_HEADER * 5L
+            + RamUsageEstimator.NUM_BYTES_OBJECT_REF * 6L + RamUsageEstimator.NUM_BYTES_ARRAY_HEADER * 2L + Integer.BYTES;
+
+    private final Analyzer analyzer;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long ramBytesUsed = 0;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    public NLPQueryAnalysisCache(Analyzer analyzer) {
+        this.analyzer = analyzer;
+    }
+
+    /**
+     * Analyzes the given query text with the default analyzer of this cache, or returns the cached result of a previous
+     * analysis
+     * @param field The field being queried
+     * @param text The query text
+     * @return An unmodifiable list of the analyzed terms with their payloads and positions, in token order. The returned
+     * terms are shared and must not be modified.
+     * @throws IOException If analysis fails
+     */
+    public List<NLPTerm> getTerms(String field, String text) throws IOException {
+        return getTerms(analyzer, field, text);
+    }
+
+    /**
+     * Analyzes the given query text, or returns the cached result of a previous analysis with the same analyzer
+     * @param analyzer The analyzer to use, typically the search analyzer of the queried field
+     * @param field The field being queried
+     * @param text The query text
+     * @return An unmodifiable list of the analyzed terms with their payloads, in token order. The returned terms are
+     * shared and must not be modified.
+     * @throws IOException If analysis fails
+     */
+    public List<NLPTerm> getTerms(Analyzer analyzer, String field, String text) throws IOException {
+        long maxSize = ElasticsearchNLPPlugin.CONFIG.getQueryAnalysisCacheSize();
+        if (maxSize <= 0) {
+            return analyze(analyzer, field, text);
+        }
+        Key key = new Key(analyzer, field, text, ElasticsearchNLPPlugin.CONFIG.getVersion());
+        synchronized (this) {
+            Entry cached = entries.get(key);
+            if (cached != null) {
+                hitCount.increment();
+                return cached.terms;
+            }
+        }
+        missCount.increment();
+        // Analyze outside of the lock, racing misses on the same key simply analyze twice
+        List<NLPTerm> terms = analyze(analyzer, field, text);
+        Entry entry = new Entry(terms, estimateSize(key, terms));
+        synchronized (this) {
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                ramBytesUsed -= previous.size;
+            }
+            ramBytesUsed += entry.size;
+            Iterator<Entry> it = entries.values().iterator();
+            while (ramBytesUsed > maxSize && it.hasNext()) {
+                ramBytesUsed -= it.next().size;
+                it.remove();
+                evictionCount.increment();
+            }
+        }
+        return terms;
+    }
+
+    private static List<NLPTerm> analyze(Analyzer analyzer, String field, String text) throws IOException {
+        List<NLPTerm> terms = new ArrayList<>();
+        try (TokenStream tokenStream = analyzer.tokenStream(field, text)) {
+            tokenStream.reset();
+            final CharTermAttribute termAtt = tokenStream.getAttribute(CharTermAttribute.class);
+            final PayloadAttribute payloadAtt = tokenStream.getAttribute(PayloadAttribute.class);
+            final TypeAttribute typeAtt = tokenStream.addAttribute(TypeAttribute.class);
+            final PositionIncrementAttribute posIncAtt = tokenStream.addAttribute(PositionIncrementAttribute.class);
+            int position = -1;
+            while (tokenStream.incrementToken()) {
+                // Removed stopwords leave gaps in positions, which phrase queries must preserve
+                position += posIncAtt.getPositionIncrement();
+                if (NLPContextShadowFilter.TYPE.equals(typeAtt.type())) {
+                    // Query terms carry their status in their payloads, shadow terms are derived when needed
+                    continue;
+                }
+                Term term = new Term(field, new String(termAtt.buffer(), 0, termAtt.length()));
+                // The tokenizer reuses its payload across tokens, so it must be copied. Default payloads may be
+                // omitted. State summaries describe indexed occurrences and are dropped should the analyzer write them
+                BytesRef payload = NLPPayload.withoutStateSummary(payloadAtt.getPayload());
+                NLPTerm nlpTerm = NLPPayload.isDefault(payload) ? new NLPTerm(term) : new NLPTerm(term, BytesRef.deepCopyOf(payload));
+                nlpTerm.setPosition(position);
+                terms.add(nlpTerm);
+            }
+            tokenStream.end();
+        }
+        return Collections.unmodifiableList(terms);
+    }
+
+    private static long estimateSize(Key key, List<NLPTerm> terms) {
+        long size = ENTRY_OVERHEAD + 2L * (key.field.length() + key.text.length());
+        for (NLPTerm term : terms) {
+            size += TERM_OVERHEAD + term.getTerm().bytes().length + term.getPyld().length;
+        }
+        return size;
+    }
+
+    /**
+     * Removes all cached entries. Statistics are retained.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        ramBytesUsed = 0;
+    }
+
+    /**
+     * @return The number of cached entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return The estimated size in bytes of all cached entries
+     */
+    @Override
+    public synchronized long ramBytesUsed() {
+        return ramBytesUsed;
+    }
+
+    /**
+     * @return The number of lookups that were served from the cache
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * @return The number of lookups that required the query text to be analyzed
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * @return The number of entries removed to keep the cache within its maximum size
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    private static final class Key {
+        private final Analyzer analyzer;
+        private final String field;
+        private final String text;
+        private final long configVersion;
+
+        private Key(Analyzer analyzer, String field, String text, long configVersion) {
+            this.analyzer = analyzer;
+            this.field = field;
+            this.text = text;
+            this.configVersion = configVersion;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return configVersion == key.configVersion &&
+                    analyzer == key.analyzer &&
+                    field.equals(key.field) &&
+                    text.equals(key.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(analyzer), field, text, configVersion);
+        }
+    }
+
+    private static final class Entry {
+        private final List<NLPTerm> terms;
+        private final long size;
+
+        private Entry(List<NLPTerm> terms, long size) {
+            this.terms = terms;
+            this.size = size;
+        }
+    }
+}
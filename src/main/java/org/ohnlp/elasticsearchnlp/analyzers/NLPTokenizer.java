@@ -24,6 +24,7 @@
 package org.ohnlp.elasticsearchnlp.analyzers;
 
 import org.ohnlp.elasticsearchnlp.ElasticsearchNLPPlugin;
+import org.ohnlp.elasticsearchnlp.context.ConTexTRule;
 import org.ohnlp.elasticsearchnlp.context.ConTexTSettings;
 import org.ohnlp.elasticsearchnlp.context.ConTexTStatus;
 import org.ohnlp.elasticsearchnlp.context.ConTexTTrigger;
@@ -32,21 +33,18 @@ import org.ohnlp.elasticsearchnlp.payloads.NLPPayload;
 import org.ohnlp.elasticsearchnlp.perf.AnnotationIndex;
 import org.ohnlp.elasticsearchnlp.perf.AnnotationRoot;
 import opennlp.tools.sentdetect.SentenceDetectorME;
-import opennlp.tools.sentdetect.SentenceModel;
 import opennlp.tools.tokenize.TokenizerME;
-import opennlp.tools.tokenize.TokenizerModel;
 import opennlp.tools.util.Span;
 import org.ahocorasick.trie.Emit;
 import org.apache.lucene.analysis.Tokenizer;
 import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
 import org.apache.lucene.analysis.tokenattributes.PayloadAttribute;
+import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.BytesRef;
 
 import java.io.*;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.regex.MatchResult;
 import java.util.regex.Matcher;
 
 /**
@@ -59,37 +57,118 @@ import java.util.regex.Matcher;
  * <li>Aggregation of all tokens in the document, in-order</li>
  * </ol>
  * </p>
+ * <p>
+ * By default, the entire field is read and processed upon {@link #reset()}. If a streaming buffer size is set, input
+ * is instead read and processed in batches of complete sentences once at least that many characters are buffered,
+ * such that memory use is bounded for very large fields. The last (possibly incomplete) sentence of each batch is
+ * carried over into the next one. A single sentence exceeding the buffer is split across batches: the rightward scopes
+ * active at the split carry over into the next batch, while leftward scopes look ahead by a quarter of the buffer.
+ * </p>
  */
 public final class NLPTokenizer extends Tokenizer {
 
-    private static final int[] RULE_PRIORITIES = {1, 2}; // TODO more robust solution that scans files
-
     /**
-     * {@link ConTexTSettings} that denote trigger terms and terminals, in priority order with lowest priority first
+     * {@link ConTexTSettings} that denote trigger terms and terminals of all priorities
      */
-    public Deque<ConTexTSettings> contextSettings = new LinkedList<>();
+    public final ConTexTSettings contextSettings;
     private StringBuilder str;
     private String document;
+    private int documentOffset;
+    private int consumed;
+    private int emitEnd;
+    private boolean inputExhausted;
+    // Rightward scope state captured at index captureAt of the current batch and carried over to the next batch
+    private int captureAt = -1;
+    private int captureIndex = -1;
+    private boolean scopesCaptured;
+    private boolean carryScopes;
+    private boolean seedScopes;
+    private short carriedScopes;
+    private final int[] carriedScopeTokens = new int[SCOPED_CONTEXTS.length];
     private char[] buffer;
-    public Deque<TokenPayloadPair> tokenQueue;
+    private short[] contextFlags = new short[0];
+    private short[] scopeOpenings = new short[0];
+    private short[] scopeTriggers = new short[0];
+    private final int[] scopeTokens = new int[SCOPED_CONTEXTS.length];
+    private byte[] tokenBoundaries = new byte[0];
+    // Per-token state of the current batch: offsets within the batch and the payload context/trigger bytes
+    private int[] tokenStarts = new int[0];
+    private int[] tokenEnds = new int[0];
+    private byte[] tokenContexts = new byte[0];
+    private byte[] tokenTriggers = new byte[0];
+    private int tokenCount;
+    private int nextToken;
+    private final BytesRef payload = new BytesRef(new byte[2]);
 
     private final CharTermAttribute termAtt;
     private final OffsetAttribute offsetAtt;
     private final PayloadAttribute payloadAtt;
-    private TokenizerME tokenizer;
-    private SentenceDetectorME sentenceDetector;
-    private static final int MAX_WIN_SIZE = -1;
+    private final TokenizerME tokenizer;
+    private final SentenceDetectorME sentenceDetector;
+    private static final byte TOKEN_START = 0x1;
+    private static final byte TOKEN_END = 0x2;
+    /**
+     * The smallest permissible streaming buffer size
+     */
+    public static final int MIN_STREAMING_BUFFER_SIZE = 256;
+    /**
+     * The maximum number of tokens covered by the scope of a ConText trigger, or -1 to scope to the sentence boundary
+     */
+    private final int scopeWindow;
+    /**
+     * The number of characters to buffer before processing input in batches of complete sentences, or -1 to process
+     * the entire field at once
+     */
+    private final int streamingBufferSize;
+    /**
+     * Whether tokens with the default payload (no ConText status, not a trigger) should be emitted without a payload
+     */
+    private final boolean omitDefaultPayloads;
+    /**
+     * Whether payloads should use the single byte format, see {@link NLPPayload}
+     */
+    private final boolean compactPayloads;
+    /**
+     * Context types that propagate a scope from their triggers, in the order in which their statuses are applied
+     * to a character within a traversal
+     */
+    private static final ConText[] SCOPED_CONTEXTS = {ConText.NEGATED, ConText.POSSIBLE, ConText.HYPOTHETICAL,
+            ConText.HISTORICAL, ConText.EXPERIENCER};
 
-    // Starts a new UIMA pipeline on initialization
     public NLPTokenizer() {
-        try {
-            initNLPComponents();
-            for (int i : RULE_PRIORITIES) {
-                this.contextSettings.add(new ConTexTSettings(ConTexTSettings.class.getResourceAsStream("/contextRule.txt"), i));
-            }
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to initialize backing NLP pipeline", e);
+        this(ElasticsearchNLPPlugin.CONFIG.getConTextScopeWindow());
+    }
+
+    public NLPTokenizer(int scopeWindow) {
+        this(scopeWindow, ElasticsearchNLPPlugin.CONFIG.getStreamingBufferSize());
+    }
+
+    public NLPTokenizer(int scopeWindow, int streamingBufferSize) {
+        this(scopeWindow, streamingBufferSize, ElasticsearchNLPPlugin.CONFIG.getOmitDefaultPayloads());
+    }
+
+    public NLPTokenizer(int scopeWindow, int streamingBufferSize, boolean omitDefaultPayloads) {
+        this(scopeWindow, streamingBufferSize, omitDefaultPayloads, ElasticsearchNLPPlugin.CONFIG.getCompactPayloads());
+    }
+
+    // Models and rules are shared node-wide, only the (non thread-safe) OpenNLP wrappers are created per instance
+    public NLPTokenizer(int scopeWindow, int streamingBufferSize, boolean omitDefaultPayloads, boolean compactPayloads) {
+        if (scopeWindow < -1) {
+            throw new IllegalArgumentException("Scope window must be -1 or >= 0, got " + scopeWindow);
+        }
+        if (streamingBufferSize != -1 && streamingBufferSize < MIN_STREAMING_BUFFER_SIZE) {
+            throw new IllegalArgumentException("Streaming buffer size must be -1 or >= " + MIN_STREAMING_BUFFER_SIZE
+                    + ", got " + streamingBufferSize);
         }
+        this.scopeWindow = scopeWindow;
+        this.streamingBufferSize = streamingBufferSize;
+        this.omitDefaultPayloads = omitDefaultPayloads;
+        this.compactPayloads = compactPayloads;
+        this.payload.length = compactPayloads ? 1 : 2;
+        NLPModelRegistry registry = NLPModelRegistry.get();
+        this.tokenizer = registry.newTokenizer();
+        this.sentenceDetector = registry.newSentenceDetector();
+        this.contextSettings = registry.getContextSettings();
         this.termAtt = this.addAttribute(CharTermAttribute.class);
         this.offsetAtt = this.addAttribute(OffsetAttribute.class);
         this.payloadAtt = this.addAttribute(PayloadAttribute.class);
@@ -97,13 +176,6 @@ public final class NLPTokenizer extends Tokenizer {
         this.buffer = new char[8192];
     }
 
-    private void initNLPComponents() throws IOException {
-        TokenizerModel tokModel = new TokenizerModel(NLPTokenizer.class.getResourceAsStream("/models/en-token.bin"));
-        tokenizer = new TokenizerME(tokModel);
-        SentenceModel sentModel = new SentenceModel(NLPTokenizer.class.getResourceAsStream("/models/en-sent.bin"));
-        sentenceDetector = new SentenceDetectorME(sentModel);
-    }
-
 
     /**
      * Returns the next token
@@ -111,22 +183,34 @@ public final class NLPTokenizer extends Tokenizer {
      * @return False if input is exhausted, true otherwise
      */
     @Override
-    public boolean incrementToken() {
+    public boolean incrementToken() throws IOException {
         this.clearAttributes();
-        if (tokenQueue.isEmpty()) {
+        if (!fillQueue()) {
             return false;
         }
-        TokenPayloadPair token = tokenQueue.removeFirst();
-        termAtt.setEmpty().append(token.token.getCoveredText(document));
-        payloadAtt.setPayload(new BytesRef(token.payload.toBytes()));
-        this.offsetAtt.setOffset(this.correctOffset(token.token.getStart() + token.sentStartIdx), this.correctOffset(token.token.getEnd() + token.sentStartIdx));
+        int token = nextToken++;
+        int start = tokenStarts[token];
+        int end = tokenEnds[token];
+        termAtt.setEmpty().append(document, start, end);
+        // Absent payloads are read as the default, so the (cleared) payload can be left unset for default tokens
+        if (!omitDefaultPayloads || tokenContexts[token] != 0 || tokenTriggers[token] != 0) {
+            // The payload is reused across tokens, consumers must copy it if retained
+            if (compactPayloads) {
+                payload.bytes[0] = NLPPayload.toCompactByte(tokenContexts[token], tokenTriggers[token]);
+            } else {
+                payload.bytes[0] = tokenContexts[token];
+                payload.bytes[1] = tokenTriggers[token];
+            }
+            payloadAtt.setPayload(payload);
+        }
+        this.offsetAtt.setOffset(this.correctOffset(documentOffset + start), this.correctOffset(documentOffset + end));
         return true;
     }
 
     @Override
     public void end() throws IOException {
         super.end();
-        int ofs = this.correctOffset(this.str.length());
+        int ofs = this.correctOffset(this.documentOffset + this.str.length());
         this.offsetAtt.setOffset(ofs, ofs);
     }
 
@@ -137,6 +221,9 @@ public final class NLPTokenizer extends Tokenizer {
         } finally {
             this.str.setLength(0);
             this.str.trimToSize();
+            this.document = null;
+            this.tokenCount = 0;
+            this.nextToken = 0;
         }
 
     }
@@ -149,80 +236,170 @@ public final class NLPTokenizer extends Tokenizer {
     @Override
     public void reset() throws IOException {
         super.reset();
-        this.readAllFromInput(this.input);
-        // Run NLP pipeline
-        this.document = this.str.toString();
-        this.tokenQueue = createNLPPayloads();
+        this.str.setLength(0);
+        this.document = null;
+        this.documentOffset = 0;
+        this.consumed = 0;
+        this.inputExhausted = false;
+        this.carryScopes = false;
+        this.tokenCount = 0;
+        this.nextToken = 0;
+        // Run NLP pipeline on the first batch of input
+        fillQueue();
+    }
 
+    /**
+     * Runs the NLP pipeline on further input until tokens are available or the input is exhausted
+     *
+     * @return True if tokens are available, false if input is exhausted
+     * @throws IOException if errors occur during reading of input
+     */
+    private boolean fillQueue() throws IOException {
+        while (nextToken >= tokenCount) {
+            // Discard the portion of the buffer that was processed by the previous batch
+            this.str.delete(0, this.consumed);
+            this.documentOffset += this.consumed;
+            this.consumed = 0;
+            if (this.inputExhausted && this.str.length() == 0) {
+                return false;
+            }
+            readFromInput(this.input);
+            this.document = this.str.toString();
+            this.emitEnd = document.length();
+            this.captureAt = -1;
+            this.scopesCaptured = false;
+            boolean continued = this.carryScopes;
+            Span[] sentences = sentenceDetector.sentPosDetect(document);
+            int sentenceCount = sentences.length;
+            if (this.inputExhausted) {
+                this.consumed = document.length();
+            } else if (sentenceCount == 0) {
+                // Only whitespace is buffered
+                this.consumed = document.length();
+            } else if (sentenceCount > 1) {
+                // The last sentence may continue in unread input, so it is left to the next batch
+                sentenceCount--;
+                this.consumed = sentences[sentenceCount].getStart();
+            } else {
+                // A single sentence fills the entire buffer: cut it at the last whitespace to bound memory use. Tokens
+                // are only emitted up to an earlier whitespace, such that leftward scopes can look ahead; the rest is
+                // processed again by the next batch, which continues with the rightward scopes active at that point
+                int start = sentences[0].getStart();
+                int cut = lastWhitespaceBoundary(start, document.length());
+                if (cut == start) {
+                    cut = document.length();
+                }
+                this.emitEnd = lastWhitespaceBoundary(start, cut - this.streamingBufferSize / 4);
+                if (this.emitEnd == start) {
+                    this.emitEnd = cut;
+                }
+                sentences[0] = new Span(start, cut);
+                this.consumed = this.emitEnd;
+                this.captureAt = this.emitEnd;
+            }
+            createNLPPayloads(sentences, sentenceCount, continued);
+            this.carryScopes = this.scopesCaptured;
+        }
+        return true;
     }
 
     /**
-     * Determines ConText status for every BaseToken in the input text and returns as
-     * a sequential list of context statuses and the associated embedding for each sentence that contains it
-     * {@link ConTexTStatus} objects
+     * @param from The lowest boundary to return
+     * @param to   The highest boundary to return
+     * @return The highest index in (from, to] directly following a whitespace character of the current batch, or from
+     * if there is none
      */
-    private Deque<TokenPayloadPair> createNLPPayloads() {
-        Deque<TokenPayloadPair> ret = new LinkedList<>();
-        ConTexTStatus[] documentContexts = new ConTexTStatus[document.length()];
-        for (int i = 0; i < documentContexts.length; i++) {
-            documentContexts[i] = new ConTexTStatus();
+    private int lastWhitespaceBoundary(int from, int to) {
+        int boundary = to;
+        while (boundary > from && !Character.isWhitespace(document.charAt(boundary - 1))) {
+            boundary--;
         }
-        List<Span> actualSentences = new LinkedList<>(); // We do further subsplitting so save for later use
+        return Math.max(boundary, from);
+    }
+
+    /**
+     * Determines ConText status for every BaseToken in the given sentences of the current batch and records the tokens
+     * with their {@link NLPPayload} bytes for emission
+     *
+     * @param sentences     The sentence spans within the current batch
+     * @param sentenceCount The number of leading sentences to process
+     * @param continued     Whether the first sentence continues a sentence split off the previous batch, and thus
+     *                      starts with the rightward scopes carried over from it
+     */
+    private void createNLPPayloads(Span[] sentences, int sentenceCount, boolean continued) {
+        this.tokenCount = 0;
+        this.nextToken = 0;
+        // Per-character context state is packed into a flag array that is reused across documents
+        if (contextFlags.length < document.length()) {
+            contextFlags = ArrayUtil.grow(contextFlags, document.length());
+        }
+        Arrays.fill(contextFlags, 0, document.length(), (short) 0);
         // Populate ConTexts  by sentence if enabled
-        for (Span sentence : sentenceDetector.sentPosDetect(document)) {
-            // TODO: not really efficient, better to just directly put into the destination array instead of copying
+        for (int sentenceIdx = 0; sentenceIdx < sentenceCount; sentenceIdx++) {
+            Span sentence = sentences[sentenceIdx];
             String text = document.substring(sentence.getStart(), sentence.getEnd());
             int start = sentence.getStart() - 1; // Offset the lack of starting \n for next
             for (String subText : text.split("\n")) {
                 start++; // Factor in the \n
+                Span[] tokens = tokenizer.tokenizePos(subText);
                 if (ElasticsearchNLPPlugin.CONFIG.enableConTextSupport()) {
                     Deque<Map<ConTexTTrigger.TriggerType, List<ConTexTTrigger>>> triggersByPriority = getTriggers(subText);
                     Map<ConTexTTrigger.TriggerType, List<ConTexTTrigger>> triggers = flattenByPriority(triggersByPriority);
-                    // Annotate and copy context statuses to the document contexts
-                    System.arraycopy(annotateConTextStatuses(triggers, subText), 0, documentContexts, start, subText.length());
-                    actualSentences.add(new Span(start, start + subText.length()));
-                    start += subText.length();
+                    // Annotate context statuses directly into the document contexts
+                    seedScopes = continued && sentenceIdx == 0 && start == sentence.getStart();
+                    captureIndex = captureAt >= start && captureAt <= start + subText.length() ? captureAt - start : -1;
+                    annotateConTextStatuses(triggers, subText, tokens, contextFlags, start);
+                    seedScopes = false;
+                    captureIndex = -1;
                 }
-            }
-        }
-
-
-        // Iterate through tokens to generate token/payload pairs.
-        for (Span sentence : actualSentences) {
-            for (Span token : tokenizer.tokenizePos(document.substring(sentence.getStart(), sentence.getEnd()))) {
-                NLPPayload payload = new NLPPayload();
-
-                if (ElasticsearchNLPPlugin.CONFIG.enableConTextSupport()) {
-                    ConTexTStatus context = documentContexts[token.getStart() + sentence.getStart()];
-                    if (!context.isPositive) {
-                        payload.setPositive(false);
-                    }
-                    if (!context.isAsserted) {
-                        payload.setAsserted(false);
-                    }
-                    if (!context.isPresent) {
-                        payload.setPresent(false);
-                    }
-                    if (!context.experiencerIsPatient) {
-                        payload.setPatientIsSubject(false);
-                    }
-                    if (context.isNegationTerminal || context.isNegationTrigger) {
-                        payload.setNegationTrigger(true);
-                    }
-                    if (context.isPossibleTerminal || context.isPossibleTrigger || context.isHypotheticalTerminal || context.isHypotheticalTrigger) {
-                        payload.setAssertionTrigger(true);
-                    }
-                    if (context.isHistoricalTerminal || context.isHistoricalTrigger) {
-                        payload.setHistoricalTrigger(true);
-                    }
-                    if (context.isExperiencerTerminal || context.isExperiencerTrigger) {
-                        payload.setExperiencerTrigger(true);
+                // Statuses of a sentence are final once it is annotated, so its tokens can be recorded immediately
+                for (Span token : tokens) {
+                    if (start + token.getStart() >= emitEnd) {
+                        // Emitted by the next batch
+                        break;
                     }
+                    addToken(start + token.getStart(), start + token.getEnd(), contextFlags[start + token.getStart()]);
                 }
-                ret.addLast(new TokenPayloadPair(token, sentence.getStart(), payload));
+                start += subText.length();
             }
         }
-        return ret;
+    }
+
+    /**
+     * Records a token of the current batch
+     *
+     * @param start   The start offset of the token within the batch
+     * @param end     The end offset of the token within the batch
+     * @param context The packed {@link ConTexTStatus} flags of the first character of the token
+     */
+    private void addToken(int start, int end, short context) {
+        if (tokenCount == tokenStarts.length) {
+            tokenStarts = ArrayUtil.grow(tokenStarts, tokenCount + 1);
+            tokenEnds = ArrayUtil.grow(tokenEnds, tokenStarts.length);
+            tokenContexts = ArrayUtil.grow(tokenContexts, tokenStarts.length);
+            tokenTriggers = ArrayUtil.grow(tokenTriggers, tokenStarts.length);
+        }
+        tokenStarts[tokenCount] = start;
+        tokenEnds[tokenCount] = end;
+        // Context statuses share their bit layout with the payload context byte
+        tokenContexts[tokenCount] = (byte) (context & (ConTexTStatus.NEGATED | ConTexTStatus.POSSIBLE
+                | ConTexTStatus.HISTORICAL | ConTexTStatus.OTHER_EXPERIENCER));
+        byte triggers = 0;
+        if ((context & (ConTexTStatus.NEGATION_TERMINAL | ConTexTStatus.NEGATION_TRIGGER)) != 0) {
+            triggers |= 0x1;
+        }
+        if ((context & (ConTexTStatus.POSSIBLE_TERMINAL | ConTexTStatus.POSSIBLE_TRIGGER
+                | ConTexTStatus.HYPOTHETICAL_TERMINAL | ConTexTStatus.HYPOTHETICAL_TRIGGER)) != 0) {
+            triggers |= 0x2;
+        }
+        if ((context & (ConTexTStatus.HISTORICAL_TERMINAL | ConTexTStatus.HISTORICAL_TRIGGER)) != 0) {
+            triggers |= 0x4;
+        }
+        if ((context & (ConTexTStatus.EXPERIENCER_TERMINAL | ConTexTStatus.EXPERIENCER_TRIGGER)) != 0) {
+            triggers |= 0x8;
+        }
+        tokenTriggers[tokenCount] = triggers;
+        tokenCount++;
     }
 
     /**
@@ -264,183 +441,288 @@ public final class NLPTokenizer extends Tokenizer {
      * @return An array of context statuses with indexes corresponding to their respective sentence character positions
      */
     public final ConTexTStatus[] annotateConTextStatuses(Map<ConTexTTrigger.TriggerType, List<ConTexTTrigger>> triggers, String text) {
+        short[] flags = new short[text.length()];
+        annotateConTextStatuses(triggers, text, flags, 0);
         ConTexTStatus[] sentence = new ConTexTStatus[text.length()];
         for (int i = 0; i < sentence.length; i++) {
-            sentence[i] = new ConTexTStatus();
+            sentence[i] = new ConTexTStatus(flags[i]);
+        }
+        return sentence;
+    }
+
+    /**
+     * Annotates context statuses by sentence on a character level as packed {@link ConTexTStatus} flags
+     *
+     * @param triggers The triggers to use
+     * @param text     The text to annotate
+     * @param flags    The (cleared) flag array into which to write context statuses
+     * @param offset   The index in flags corresponding to the first character of text
+     */
+    public final void annotateConTextStatuses(Map<ConTexTTrigger.TriggerType, List<ConTexTTrigger>> triggers, String text, short[] flags, int offset) {
+        annotateConTextStatuses(triggers, text, tokenizer.tokenizePos(text), flags, offset);
+    }
+
+    /**
+     * Annotates context statuses by sentence on a character level as packed {@link ConTexTStatus} flags
+     *
+     * @param triggers The triggers to use
+     * @param text     The text to annotate
+     * @param tokens   The token spans of text, used to enforce the scope window
+     * @param flags    The (cleared) flag array into which to write context statuses
+     * @param offset   The index in flags corresponding to the first character of text
+     */
+    public final void annotateConTextStatuses(Map<ConTexTTrigger.TriggerType, List<ConTexTTrigger>> triggers, String text, Span[] tokens, short[] flags, int offset) {
+        int length = text.length();
+        // - Mark token boundaries, such that the scope window can be counted in tokens
+        if (tokenBoundaries.length < length) {
+            tokenBoundaries = ArrayUtil.grow(tokenBoundaries, length);
+        }
+        Arrays.fill(tokenBoundaries, 0, length, (byte) 0);
+        for (Span token : tokens) {
+            if (token.getEnd() > token.getStart()) {
+                tokenBoundaries[token.getStart()] |= TOKEN_START;
+                tokenBoundaries[token.getEnd() - 1] |= TOKEN_END;
+            }
         }
         // - Transpose pseudos onto the sentence
         for (ConTexTTrigger pseudo : triggers.getOrDefault(ConTexTTrigger.TriggerType.PSEUDO, Collections.emptyList())) {
             for (int i = pseudo.start; i < pseudo.end; i++) {
-                sentence[i].isPseudo = true;
+                flags[offset + i] |= ConTexTStatus.PSEUDO;
             }
         }
         // - Transpose terminals onto the sentence
         for (ConTexTTrigger trigger : triggers.getOrDefault(ConTexTTrigger.TriggerType.TERMINAL, Collections.emptyList())) {
+            short terminal = getTerminalFlag(trigger.contextType);
             for (int i = trigger.start; i < trigger.end; i++) {
-                switch (trigger.contextType) {
-                    case NEGATED:
-                        sentence[i].isNegationTerminal = true;
-                        break;
-                    case POSSIBLE:
-                        sentence[i].isPossibleTerminal = true;
-                        break;
-                    case HISTORICAL:
-                        sentence[i].isHistoricalTerminal = true;
-                        break;
-                    case HYPOTHETICAL:
-                        sentence[i].isHypotheticalTerminal = true;
-                        break;
-                    case EXPERIENCER:
-                        sentence[i].isExperiencerTerminal = true;
-                        break;
-                    default:
-                        break;
-                }
+                flags[offset + i] |= terminal;
             }
         }
-        // - Traverse left to right
+        // - Traverse left to right. Triggers are only tagged afterwards, such that a scope carries on over subsequent
+        //   triggers and only stops at terminals
         List<ConTexTTrigger> preTriggers = triggers.getOrDefault(ConTexTTrigger.TriggerType.START_RIGHT, Collections.emptyList());
-        for (ConTexTTrigger trigger : preTriggers) {
+        markScopeTriggers(preTriggers, flags, offset, length, true);
+        propagateScopes(flags, offset, 0, length, 1);
+        tagScopeTriggers(flags, offset, length);
+        // - Traverse right to left. Triggers of both directions are tagged beforehand, such that a scope stops at them
+        List<ConTexTTrigger> postTriggers = triggers.getOrDefault(ConTexTTrigger.TriggerType.START_LEFT, Collections.emptyList());
+        markScopeTriggers(postTriggers, flags, offset, length, false);
+        tagScopeTriggers(flags, offset, length);
+        propagateScopes(flags, offset, length - 1, -1, -1);
+    }
+
+    /**
+     * Records, for each character, the trigger flags of the (non-pseudo) triggers of a traversal direction covering it
+     * as well as the context types whose scope opens at that character
+     *
+     * @param triggers   The triggers to mark
+     * @param flags      The packed status flags
+     * @param offset     The index in flags corresponding to the first character of the sentence
+     * @param length     The length of the sentence
+     * @param rightwards Whether the scope of the triggers extends to the right (true) or to the left (false)
+     */
+    private void markScopeTriggers(List<ConTexTTrigger> triggers, short[] flags, int offset, int length, boolean rightwards) {
+        if (scopeOpenings.length < length) {
+            scopeOpenings = ArrayUtil.grow(scopeOpenings, length);
+            scopeTriggers = ArrayUtil.grow(scopeTriggers, length);
+        }
+        Arrays.fill(scopeOpenings, 0, length, (short) 0);
+        Arrays.fill(scopeTriggers, 0, length, (short) 0);
+        for (ConTexTTrigger trigger : triggers) {
             // Skip pseudos
-            if (sentence[trigger.start].isPseudo || sentence[trigger.end - 1].isPseudo) {
+            if ((flags[offset + trigger.start] & ConTexTStatus.PSEUDO) != 0 || (flags[offset + trigger.end - 1] & ConTexTStatus.PSEUDO) != 0) {
                 continue;
             }
-            // Tag trigger
+            // Mark trigger
+            short triggerFlag = getTriggerFlag(trigger.contextType);
             for (int i = trigger.start; i < trigger.end; i++) {
-                ConTexTStatus status = sentence[i];
-                tagStatusAsTrigger(status, trigger.contextType);
+                scopeTriggers[i] |= triggerFlag;
             }
-            // Continue to end of sentence, break on terminal
-            AtomicInteger wordWindow = new AtomicInteger(0);
-            for (int i = trigger.end; i < sentence.length; i++) {
-                ConTexTStatus status = sentence[i];
-                char sentenceChar = text.toCharArray()[i];
-                if (sentenceChar == ' ') {
-                    wordWindow.incrementAndGet();
-                }
-                if (tagContexTStatus(status, trigger, wordWindow)) {
-                    break;
-                }
+            int scopeStart = rightwards ? trigger.end : trigger.start - 1;
+            if (scopeStart >= 0 && scopeStart < length) {
+                scopeOpenings[scopeStart] |= triggerFlag;
             }
         }
-        // - Traverse right to left
-        List<ConTexTTrigger> postTriggers = triggers.getOrDefault(ConTexTTrigger.TriggerType.START_LEFT, Collections.emptyList());
-        for (ConTexTTrigger trigger : postTriggers) {
-            // Skip pseudos
-            if (sentence[trigger.start].isPseudo || sentence[trigger.end - 1].isPseudo) {
-                continue;
+    }
+
+    /**
+     * Tags the triggers recorded by the last call to {@link #markScopeTriggers(List, short[], int, int, boolean)}
+     *
+     * @param flags  The packed status flags
+     * @param offset The index in flags corresponding to the first character of the sentence
+     * @param length The length of the sentence
+     */
+    private void tagScopeTriggers(short[] flags, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            flags[offset + i] |= scopeTriggers[i];
+        }
+    }
+
+    /**
+     * Sweeps a sentence once in the given direction, carrying the active scope of each context type. A scope opens
+     * next to its trigger and closes at a tagged terminal or trigger of that type or once it would cover more than
+     * {@link #scopeWindow} tokens. A trigger opening a scope of a type that is already active restarts the window of
+     * that type. When traversing left to right, the sweep starts with the scopes carried over from the previous batch
+     * if the sentence continues it, and records the scopes active at the split point if the sentence is split.
+     *
+     * @param flags  The packed status flags
+     * @param offset The index in flags corresponding to the first character of the sentence
+     * @param from   The first sentence index to visit (inclusive)
+     * @param to     The last sentence index to visit (exclusive)
+     * @param step   1 to traverse left to right, -1 to traverse right to left
+     */
+    private void propagateScopes(short[] flags, int offset, int from, int to, int step) {
+        // A token is entered at its first character when traversing left to right, and at its last otherwise
+        byte tokenEntry = step > 0 ? TOKEN_START : TOKEN_END;
+        short active = 0;
+        if (step > 0 && seedScopes) {
+            active = carriedScopes;
+            System.arraycopy(carriedScopeTokens, 0, scopeTokens, 0, scopeTokens.length);
+        }
+        for (int i = from; i != to; i += step) {
+            if (step > 0 && i == captureIndex) {
+                captureScopes(active);
             }
-            // Tag trigger
-            for (int i = trigger.start; i < trigger.end; i++) {
-                ConTexTStatus status = sentence[i];
-                tagStatusAsTrigger(status, trigger.contextType);
+            short opened = scopeOpenings[i];
+            if (opened != 0) {
+                active |= opened;
+                for (int type = 0; type < SCOPED_CONTEXTS.length; type++) {
+                    if ((opened & getTriggerFlag(SCOPED_CONTEXTS[type])) != 0) {
+                        scopeTokens[type] = 0;
+                    }
+                }
+            }
+            if (active == 0) {
+                continue;
             }
-            // Continue to beginning of sentence, break on terminal
-            AtomicInteger wordWindow = new AtomicInteger(0);
-            for (int i = trigger.start - 1; i >= 0; i--) {
-                ConTexTStatus status = sentence[i];
-                char sentenceChar = text.toCharArray()[i];
-                if (sentenceChar == ' ') {
-                    wordWindow.incrementAndGet();
+            boolean newToken = (tokenBoundaries[i] & tokenEntry) != 0;
+            for (int type = 0; type < SCOPED_CONTEXTS.length; type++) {
+                ConText context = SCOPED_CONTEXTS[type];
+                short scope = getTriggerFlag(context);
+                if ((active & scope) == 0) {
+                    continue;
+                }
+                if (newToken) {
+                    scopeTokens[type]++;
                 }
-                if (tagContexTStatus(status, trigger, wordWindow)) {
-                    break;
+                if (tagContexTStatus(flags, offset + i, context, scopeTokens[type])) {
+                    active &= ~scope;
                 }
             }
         }
-        return sentence;
+        if (step > 0 && to == captureIndex) {
+            captureScopes(active);
+        }
+    }
+
+    /**
+     * Records the rightward scopes active at the split point of a sentence, to be carried over into the next batch
+     *
+     * @param active The active scopes
+     */
+    private void captureScopes(short active) {
+        carriedScopes = active;
+        System.arraycopy(scopeTokens, 0, carriedScopeTokens, 0, scopeTokens.length);
+        scopesCaptured = true;
     }
 
 
     /**
      * Tags the given status; and returns whether tagging should continue or if a terminal condition was reached
      *
-     * @param status  The status to tag
-     * @param trigger The trigger definition being tagged
-     * @param spaces
-     * @return True if a terminal condition was hit and tagging is finished for this trigger, false otherwise
+     * @param flags       The packed status flags
+     * @param idx         The index of the status to tag
+     * @param contextType The context type of the scope being tagged
+     * @param tokens      The number of tokens entered since the start of the scope
+     * @return True if a terminal condition was hit and tagging is finished for this scope, false otherwise
      */
-    private boolean tagContexTStatus(ConTexTStatus status, ConTexTTrigger trigger, AtomicInteger spaces) {
+    private boolean tagContexTStatus(short[] flags, int idx, ConText contextType, int tokens) {
         // First check if this is a terminal
-        boolean isExit = spaces.get() > MAX_WIN_SIZE && MAX_WIN_SIZE != -1;
-        switch (trigger.contextType) {
-            case NEGATED:
-                if (status.isNegationTerminal || status.isNegationTrigger) {
-                    isExit = true;
-                }
-                break;
-            case POSSIBLE:
-                if (status.isPossibleTrigger || status.isPossibleTerminal || status.isHypotheticalTrigger || status.isHypotheticalTerminal) {
-                    isExit = true;
-                }
-                break;
-            case HYPOTHETICAL:
-                if (status.isHypotheticalTrigger || status.isHypotheticalTerminal) {
-                    isExit = true;
-                }
-                break;
-            case HISTORICAL:
-                if (status.isHistoricalTerminal || status.isHistoricalTrigger) {
-                    isExit = true;
-                }
-                break;
-            case EXPERIENCER:
-                if (status.isExperiencerTerminal || status.isExperiencerTrigger) {
-                    isExit = true;
-                }
-                break;
-            default:
-                throw new UnsupportedOperationException("A trigger of type " + trigger.contextType + " was found for sentence tagging");
+        boolean isExit = tokens > scopeWindow && scopeWindow != -1;
+        if ((flags[idx] & getStopFlags(contextType)) != 0) {
+            isExit = true;
         }
         if (isExit) {
             // Terminal found, stop encoding
             return true;
         }
         // Not a Terminal, thus encode the status
-        switch (trigger.contextType) {
+        switch (contextType) {
             case NEGATED:
-                status.isPositive = false;
+                flags[idx] |= ConTexTStatus.NEGATED;
                 break;
             case POSSIBLE:
-                status.isAsserted = false;
+                flags[idx] |= ConTexTStatus.POSSIBLE;
                 break;
             case HISTORICAL:
-                status.isPresent = false;
+                flags[idx] |= ConTexTStatus.HISTORICAL;
                 break;
             case HYPOTHETICAL:
-                status.isAsserted = false; // TODO: ???
-                status.isPresent = true;
+                flags[idx] |= ConTexTStatus.POSSIBLE; // TODO: ???
+                flags[idx] &= ~ConTexTStatus.HISTORICAL;
                 break;
             case EXPERIENCER:
-                status.experiencerIsPatient = false;
+                flags[idx] |= ConTexTStatus.OTHER_EXPERIENCER;
                 break;
         }
         return false;
     }
 
+    /**
+     * @param type The context type of a trigger
+     * @return The status flags that terminate the scope of a trigger of the given type
+     */
+    private static short getStopFlags(ConText type) {
+        switch (type) {
+            case NEGATED:
+                return ConTexTStatus.NEGATION_TERMINAL | ConTexTStatus.NEGATION_TRIGGER;
+            case POSSIBLE:
+                return ConTexTStatus.POSSIBLE_TRIGGER | ConTexTStatus.POSSIBLE_TERMINAL
+                        | ConTexTStatus.HYPOTHETICAL_TRIGGER | ConTexTStatus.HYPOTHETICAL_TERMINAL;
+            case HYPOTHETICAL:
+                return ConTexTStatus.HYPOTHETICAL_TRIGGER | ConTexTStatus.HYPOTHETICAL_TERMINAL;
+            case HISTORICAL:
+                return ConTexTStatus.HISTORICAL_TERMINAL | ConTexTStatus.HISTORICAL_TRIGGER;
+            case EXPERIENCER:
+                return ConTexTStatus.EXPERIENCER_TERMINAL | ConTexTStatus.EXPERIENCER_TRIGGER;
+            default:
+                throw new UnsupportedOperationException("A trigger of type " + type + " was found for sentence tagging");
+        }
+    }
 
-    private void tagStatusAsTrigger(ConTexTStatus status, ConText type) {
+    private static short getTriggerFlag(ConText type) {
         switch (type) {
             case NEGATED:
-                status.isNegationTrigger = true;
-                break;
+                return ConTexTStatus.NEGATION_TRIGGER;
             case HISTORICAL:
-                status.isHistoricalTrigger = true;
-                break;
+                return ConTexTStatus.HISTORICAL_TRIGGER;
             case HYPOTHETICAL:
-                status.isHypotheticalTrigger = true;
-                break;
+                return ConTexTStatus.HYPOTHETICAL_TRIGGER;
             case EXPERIENCER:
-                status.isExperiencerTrigger = true;
-                break;
+                return ConTexTStatus.EXPERIENCER_TRIGGER;
             case POSSIBLE:
-                status.isPossibleTrigger = true;
-                break;
+                return ConTexTStatus.POSSIBLE_TRIGGER;
             default:
                 throw new UnsupportedOperationException("A trigger of type " + type + " was found for sentence tagging");
         }
     }
 
+    private static short getTerminalFlag(ConText type) {
+        switch (type) {
+            case NEGATED:
+                return ConTexTStatus.NEGATION_TERMINAL;
+            case POSSIBLE:
+                return ConTexTStatus.POSSIBLE_TERMINAL;
+            case HISTORICAL:
+                return ConTexTStatus.HISTORICAL_TERMINAL;
+            case HYPOTHETICAL:
+                return ConTexTStatus.HYPOTHETICAL_TERMINAL;
+            case EXPERIENCER:
+                return ConTexTStatus.EXPERIENCER_TERMINAL;
+            default:
+                return 0;
+        }
+    }
+
     // Public for tests
 
     /**
@@ -450,208 +732,93 @@ public final class NLPTokenizer extends Tokenizer {
      * @return A mapping of trigger types to a list of triggers for that type in the sentence, denoted by sentence position
      */
     public final Deque<Map<ConTexTTrigger.TriggerType, List<ConTexTTrigger>>> getTriggers(String sentence) {
-        Deque<Map<ConTexTTrigger.TriggerType, List<ConTexTTrigger>>> ret = new LinkedList<>();
-        for (ConTexTSettings prioritySettings : contextSettings) {
-            Map<ConTexTTrigger.TriggerType, List<ConTexTTrigger>> triggersForThisPriority = new HashMap<>();
-            // Run the general trie
-            Collection<Emit> values = prioritySettings.getGeneral().parseText(sentence.toLowerCase());
-            Map<String, Map<ConTexTTrigger.TriggerType, Set<ConText>>> generalDict = prioritySettings.getGeneralTriggerDict();
-            values.forEach(e -> {
-                Map<ConTexTTrigger.TriggerType, Set<ConText>> triggers = generalDict.get(e.getKeyword());
-                int start = e.getStart();
-                int end = e.getEnd() + 1;
-                triggers.forEach(((triggerType, conTexts) -> {
-                    if (triggerType == ConTexTTrigger.TriggerType.PSEUDO) {
-                        triggersForThisPriority.computeIfAbsent(triggerType, k -> new LinkedList<>()).add(new ConTexTTrigger(null, start, end));
-                    } else {
-                        conTexts.forEach(conText -> triggersForThisPriority.computeIfAbsent(triggerType, k -> new LinkedList<>()).add(new ConTexTTrigger(conText, start, end)));
-                    }
-                }));
-            });
-            // First find pseudos (trigger exclusions)
-            Matcher matcher;
-            if (prioritySettings.getRegexPseudo() != null) {
-                matcher = prioritySettings.getRegexPseudo().matcher(sentence);
-                while (matcher.find()) {
-                    MatchResult mr = matcher.toMatchResult();
-                    triggersForThisPriority.computeIfAbsent(ConTexTTrigger.TriggerType.PSEUDO, k -> new LinkedList<>()).add(new ConTexTTrigger(null, mr.start(), mr.end()));
-                }
-            }
-            // Negation - Right lookup
-            if (prioritySettings.getRegexNegPre() != null) {
-                matcher = prioritySettings.getRegexNegPre().matcher(sentence);
-                while (matcher.find()) {
-                    MatchResult mr = matcher.toMatchResult();
-                    triggersForThisPriority.computeIfAbsent(ConTexTTrigger.TriggerType.START_RIGHT, k -> new LinkedList<>()).add(new ConTexTTrigger(ConText.NEGATED, mr.start(), mr.end()));
-                }
-            }
-            // Negation - Left lookup
-            if (prioritySettings.getRegexNegPost() != null) {
-                matcher = prioritySettings.getRegexNegPost().matcher(sentence);
-                while (matcher.find()) {
-                    MatchResult mr = matcher.toMatchResult();
-                    triggersForThisPriority.computeIfAbsent(ConTexTTrigger.TriggerType.START_LEFT, k -> new LinkedList<>()).add(new ConTexTTrigger(ConText.NEGATED, mr.start(), mr.end()));
-                }
-            }
-            // Negation - Terminals
-            if (prioritySettings.getRegexNegEnd() != null) {
-                matcher = prioritySettings.getRegexNegEnd().matcher(sentence);
-                while (matcher.find()) {
-                    MatchResult mr = matcher.toMatchResult();
-                    triggersForThisPriority.computeIfAbsent(ConTexTTrigger.TriggerType.TERMINAL, k -> new LinkedList<>()).add(new ConTexTTrigger(ConText.NEGATED, mr.start(), mr.end()));
-                }
-            }
-            // Possible - Right lookup
-            if (prioritySettings.getRegexPossPre() != null) {
-                matcher = prioritySettings.getRegexPossPre().matcher(sentence);
-                while (matcher.find()) {
-                    MatchResult mr = matcher.toMatchResult();
-                    triggersForThisPriority.computeIfAbsent(ConTexTTrigger.TriggerType.START_RIGHT, k -> new LinkedList<>()).add(new ConTexTTrigger(ConText.POSSIBLE, mr.start(), mr.end()));
-                }
-            }
-            // Possible - Left lookup
-            if (prioritySettings.getRegexPossPost() != null) {
-                matcher = prioritySettings.getRegexPossPost().matcher(sentence);
-                while (matcher.find()) {
-                    MatchResult mr = matcher.toMatchResult();
-                    triggersForThisPriority.computeIfAbsent(ConTexTTrigger.TriggerType.START_LEFT, k -> new LinkedList<>()).add(new ConTexTTrigger(ConText.POSSIBLE, mr.start(), mr.end()));
-                }
-            }
-            // Experiencer - Right Lookup
-            if (prioritySettings.getRegexExpPre() != null) {
-                matcher = prioritySettings.getRegexExpPre().matcher(sentence);
-                while (matcher.find()) {
-                    MatchResult mr = matcher.toMatchResult();
-                    triggersForThisPriority.computeIfAbsent(ConTexTTrigger.TriggerType.START_RIGHT, k -> new LinkedList<>()).add(new ConTexTTrigger(ConText.EXPERIENCER, mr.start(), mr.end()));
-                }
-            }
-            // Experiencer - Left Lookup
-            if (prioritySettings.getRegexExpPost() != null) {
-                matcher = prioritySettings.getRegexExpPost().matcher(sentence);
-                while (matcher.find()) {
-                    MatchResult mr = matcher.toMatchResult();
-                    triggersForThisPriority.computeIfAbsent(ConTexTTrigger.TriggerType.START_LEFT, k -> new LinkedList<>()).add(new ConTexTTrigger(ConText.EXPERIENCER, mr.start(), mr.end()));
-                }
-            }
-            // Experiencer - Terminal
-            if (prioritySettings.getRegexExpEnd() != null) {
-                matcher = prioritySettings.getRegexExpEnd().matcher(sentence);
-                while (matcher.find()) {
-                    MatchResult mr = matcher.toMatchResult();
-                    triggersForThisPriority.computeIfAbsent(ConTexTTrigger.TriggerType.TERMINAL, k -> new LinkedList<>()).add(new ConTexTTrigger(ConText.EXPERIENCER, mr.start(), mr.end()));
-                }
-            }
-            // Hypothetical - Right Lookup
-            if (prioritySettings.getRegexHypoPre() != null) {
-                matcher = prioritySettings.getRegexHypoPre().matcher(sentence);
-                while (matcher.find()) {
-                    MatchResult mr = matcher.toMatchResult();
-                    triggersForThisPriority.computeIfAbsent(ConTexTTrigger.TriggerType.START_RIGHT, k -> new LinkedList<>()).add(new ConTexTTrigger(ConText.HYPOTHETICAL, mr.start(), mr.end()));
-                }
-            }
-            // No Hypothetical - Left Lookup
-            // Hypothetical - Terminal
-            if (prioritySettings.getRegexHypoEnd() != null) {
-                matcher = prioritySettings.getRegexHypoEnd().matcher(sentence);
-                while (matcher.find()) {
-                    MatchResult mr = matcher.toMatchResult();
-                    triggersForThisPriority.computeIfAbsent(ConTexTTrigger.TriggerType.TERMINAL, k -> new LinkedList<>()).add(new ConTexTTrigger(ConText.HYPOTHETICAL, mr.start(), mr.end()));
-                }
-            }
-            // Historical - Right Lookup
-            if (prioritySettings.getRegexHistPre() != null) {
-                matcher = prioritySettings.getRegexHistPre().matcher(sentence);
-                while (matcher.find()) {
-                    MatchResult mr = matcher.toMatchResult();
-                    triggersForThisPriority.computeIfAbsent(ConTexTTrigger.TriggerType.START_RIGHT, k -> new LinkedList<>()).add(new ConTexTTrigger(ConText.HISTORICAL, mr.start(), mr.end()));
+        int[] priorities = contextSettings.getPriorities();
+        List<Map<ConTexTTrigger.TriggerType, List<ConTexTTrigger>>> triggersByPriority = new ArrayList<>(priorities.length);
+        for (int priorityIdx = 0; priorityIdx < priorities.length; priorityIdx++) {
+            triggersByPriority.add(new HashMap<>());
+        }
+        // Run the general trie, which covers the literal phrases of all priorities, over the lower-cased sentence once
+        for (Emit e : contextSettings.getGeneral().parseText(sentence.toLowerCase())) {
+            int start = e.getStart();
+            int end = e.getEnd() + 1;
+            for (ConTexTRule rule : contextSettings.getGeneralRules(e.getKeyword())) {
+                List<ConTexTTrigger> triggers = triggersByPriority.get(rule.getPriority())
+                        .computeIfAbsent(rule.getTriggerType(), k -> new LinkedList<>());
+                for (ConText conText : rule.getContexts()) {
+                    triggers.add(new ConTexTTrigger(conText, start, end));
                 }
             }
-            // Historical - Left Lookup
-            if (prioritySettings.getRegexHistPost() != null) {
-                matcher = prioritySettings.getRegexHistPost().matcher(sentence);
-                while (matcher.find()) {
-                    MatchResult mr = matcher.toMatchResult();
-                    triggersForThisPriority.computeIfAbsent(ConTexTTrigger.TriggerType.START_LEFT, k -> new LinkedList<>()).add(new ConTexTTrigger(ConText.HISTORICAL, mr.start(), mr.end()));
-                }
+        }
+        // Now add matches of the regex rules by rule group order
+        ConTexTRule[] rules = contextSettings.getRegexRules();
+        List<List<ConTexTTrigger>> matchesByRule = getRegexTriggers(sentence);
+        for (int i = 0; i < rules.length; i++) {
+            List<ConTexTTrigger> matches = matchesByRule.get(i);
+            if (matches != null) {
+                triggersByPriority.get(rules[i].getPriority())
+                        .computeIfAbsent(rules[i].getTriggerType(), k -> new LinkedList<>())
+                        .addAll(matches);
             }
-            // Historical - Terminal
-            if (prioritySettings.getRegexHistEnd() != null) {
-                matcher = prioritySettings.getRegexHistEnd().matcher(sentence);
-                while (matcher.find()) {
-                    MatchResult mr = matcher.toMatchResult();
-                    triggersForThisPriority.computeIfAbsent(ConTexTTrigger.TriggerType.TERMINAL, k -> new LinkedList<>()).add(new ConTexTTrigger(ConText.HISTORICAL, mr.start(), mr.end()));
+        }
+        return new LinkedList<>(triggersByPriority);
+    }
+
+    /**
+     * Runs all regex rule groups of all priorities over the given sentence in a single pass. Each rule group behaves
+     * as if it were scanned independently with {@link Matcher#find()}, i.e. matches of the same rule group do not
+     * overlap
+     *
+     * @param sentence The sentence to tag
+     * @return The triggers of each rule in {@link ConTexTSettings#getRegexRules()}, by rule index, or null for rules
+     * without a match
+     */
+    public final List<List<ConTexTTrigger>> getRegexTriggers(String sentence) {
+        ConTexTRule[] rules = contextSettings.getRegexRules();
+        int[] groups = contextSettings.getRegexRuleGroups();
+        int[] nextAllowedStart = new int[rules.length];
+        List<List<ConTexTTrigger>> matchesByRule = new ArrayList<>(rules.length);
+        for (int i = 0; i < rules.length; i++) {
+            matchesByRule.add(null);
+        }
+        Matcher matcher = contextSettings.getCombinedRegex().matcher(sentence);
+        while (matcher.find()) {
+            for (int i = 0; i < rules.length; i++) {
+                int start = matcher.start(groups[i]);
+                if (start < 0 || start < nextAllowedStart[i]) {
+                    continue;
                 }
-            }
-            // Mixed
-            if (prioritySettings.getRegexHypoExpEnd() != null) {
-                matcher = prioritySettings.getRegexHypoExpEnd().matcher(sentence);
-                while (matcher.find()) {
-                    MatchResult mr = matcher.toMatchResult();
-                    triggersForThisPriority.computeIfAbsent(ConTexTTrigger.TriggerType.TERMINAL, k -> new LinkedList<>()).add(new ConTexTTrigger(ConText.HYPOTHETICAL, mr.start(), mr.end()));
-                    triggersForThisPriority.computeIfAbsent(ConTexTTrigger.TriggerType.TERMINAL, k -> new LinkedList<>()).add(new ConTexTTrigger(ConText.EXPERIENCER, mr.start(), mr.end()));
+                int end = matcher.end(groups[i]);
+                nextAllowedStart[i] = end > start ? end : start + 1;
+                List<ConTexTTrigger> matches = matchesByRule.get(i);
+                if (matches == null) {
+                    matches = new LinkedList<>();
+                    matchesByRule.set(i, matches);
                 }
-            }
-            if (prioritySettings.getRegexHistExpEnd() != null) {
-                matcher = prioritySettings.getRegexHistExpEnd().matcher(sentence);
-                while (matcher.find()) {
-                    MatchResult mr = matcher.toMatchResult();
-                    triggersForThisPriority.computeIfAbsent(ConTexTTrigger.TriggerType.TERMINAL, k -> new LinkedList<>()).add(new ConTexTTrigger(ConText.HISTORICAL, mr.start(), mr.end()));
-                    triggersForThisPriority.computeIfAbsent(ConTexTTrigger.TriggerType.TERMINAL, k -> new LinkedList<>()).add(new ConTexTTrigger(ConText.EXPERIENCER, mr.start(), mr.end()));
+                for (ConText conText : rules[i].getContexts()) {
+                    matches.add(new ConTexTTrigger(conText, start, end));
                 }
             }
-            // Time
-            matcher = prioritySettings.getRegexTimeFor().matcher(sentence);
-            while (matcher.find()) {
-                MatchResult mr = matcher.toMatchResult();
-                triggersForThisPriority.computeIfAbsent(ConTexTTrigger.TriggerType.START_RIGHT, k -> new LinkedList<>()).add(new ConTexTTrigger(ConText.HISTORICAL, mr.start(), mr.end()));
-            }
-            matcher = prioritySettings.getRegexTime().matcher(sentence);
-            while (matcher.find()) {
-                MatchResult mr = matcher.toMatchResult();
-                triggersForThisPriority.computeIfAbsent(ConTexTTrigger.TriggerType.START_RIGHT, k -> new LinkedList<>()).add(new ConTexTTrigger(ConText.HISTORICAL, mr.start(), mr.end()));
-            }
-            matcher = prioritySettings.getRegexTimeSince().matcher(sentence);
-            while (matcher.find()) {
-                MatchResult mr = matcher.toMatchResult();
-                triggersForThisPriority.computeIfAbsent(ConTexTTrigger.TriggerType.START_LEFT, k -> new LinkedList<>()).add(new ConTexTTrigger(ConText.HISTORICAL, mr.start(), mr.end()));
-            }
-            ret.add(triggersForThisPriority);
         }
-        return ret;
+        return matchesByRule;
     }
 
     /**
-     * Gets the entire content of the field and dumps it into one big string for NLP operations
+     * Appends the content of the field to the buffer for NLP operations, until either the streaming buffer size is
+     * reached or the entire field has been read
      *
      * @param input The input reader that provides field content
      * @throws IOException
      */
-    private void readAllFromInput(Reader input) throws IOException {
-        this.str.setLength(0);
+    private void readFromInput(Reader input) throws IOException {
         int len;
-        while ((len = input.read(this.buffer)) > 0) {
+        while (this.streamingBufferSize <= 0 || this.str.length() < this.streamingBufferSize) {
+            int max = this.streamingBufferSize <= 0 ? this.buffer.length
+                    : Math.min(this.buffer.length, this.streamingBufferSize - this.str.length());
+            if ((len = input.read(this.buffer, 0, max)) <= 0) {
+                this.inputExhausted = true;
+                return;
+            }
             this.str.append(this.buffer, 0, len);
         }
-
-    }
-
-    public static class TokenPayloadPair {
-        private final Span token;
-        private final NLPPayload payload;
-        private final int sentStartIdx;
-
-        public TokenPayloadPair(Span token, int sentStartIdx, NLPPayload payload) {
-            this.token = token;
-            this.payload = payload;
-            this.sentStartIdx = sentStartIdx;
-        }
-
-        public Span getToken() {
-            return token;
-        }
-
-        public NLPPayload getPayload() {
-            return payload;
-        }
     }
 }
@@ -25,17 +25,22 @@ package org.ohnlp.elasticsearchnlp.config;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.ohnlp.elasticsearchnlp.config.components.ConTextConfig;
+import org.ohnlp.elasticsearchnlp.config.components.TokenizerConfig;
 
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Plugin Configuration
  */
 public class Config {
 
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
     private Collection<NLPComponent> enabled;
     private ComponentSettings settings;
+    private volatile long version = VERSIONS.incrementAndGet();
 
     public Config() {
     }
@@ -46,6 +51,7 @@ public class Config {
 
     public void setEnabled(Collection<NLPComponent> enabled) {
         this.enabled = enabled;
+        markModified();
     }
 
     public ComponentSettings getSettings() {
@@ -54,6 +60,24 @@ public class Config {
 
     public void setSettings(ComponentSettings settings) {
         this.settings = settings;
+        markModified();
+    }
+
+    /**
+     * @return A version that is unique across all config instances and changes whenever this config is modified, used
+     * to invalidate state derived from the config (e.g. precomputed scoring weights)
+     */
+    @JsonIgnore
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Assigns a new {@link #getVersion()}. Must be called if nested settings other than the ConText weights, which are
+     * compared by value, are modified after this config is in use
+     */
+    public void markModified() {
+        this.version = VERSIONS.incrementAndGet();
     }
 
     @JsonIgnore
@@ -66,6 +90,88 @@ public class Config {
         return this.enabled.contains(NLPComponent.CLINICAL_STOP_WORDS);
     }
 
+    /**
+     * @return The default maximum number of tokens covered by the scope of a ConText trigger, or -1 if scopes extend
+     * to the sentence boundary
+     */
+    @JsonIgnore
+    public int getConTextScopeWindow() {
+        if (this.settings == null || this.settings.getContext() == null) {
+            return -1;
+        }
+        return this.settings.getContext().getScopeWindow();
+    }
+
+    /**
+     * @return Whether the first occurrence of each term in a field should carry a summary of the ConText statuses of
+     * all of its occurrences, allowing scoring to skip reading the remaining payloads
+     */
+    @JsonIgnore
+    public boolean enableConTextStateSummary() {
+        if (!enableConTextSupport() || this.settings == null || this.settings.getContext() == null) {
+            return false;
+        }
+        return this.settings.getContext().isStateSummary();
+    }
+
+    /**
+     * @return Whether the nlp analyzer should index shadow terms encoding the ConText status of each token, see
+     * {@link org.ohnlp.elasticsearchnlp.analyzers.NLPContextShadowFilter}
+     */
+    @JsonIgnore
+    public boolean enableConTextShadowTerms() {
+        if (!enableConTextSupport() || this.settings == null || this.settings.getContext() == null) {
+            return false;
+        }
+        return this.settings.getContext().isShadowTerms();
+    }
+
+    /**
+     * @return The default number of characters to buffer before tokenizing input in batches of complete sentences, or
+     * -1 if fields are read and tokenized in their entirety
+     */
+    @JsonIgnore
+    public int getStreamingBufferSize() {
+        if (this.settings == null || this.settings.getTokenizer() == null) {
+            return -1;
+        }
+        return this.settings.getTokenizer().getStreamingBufferSize();
+    }
+
+    /**
+     * @return Whether tokens with the default payload should be indexed without a payload
+     */
+    @JsonIgnore
+    public boolean getOmitDefaultPayloads() {
+        if (this.settings == null || this.settings.getTokenizer() == null) {
+            return false;
+        }
+        return this.settings.getTokenizer().isOmitDefaultPayloads();
+    }
+
+    /**
+     * @return Whether payloads should be written in the single byte format
+     */
+    @JsonIgnore
+    public boolean getCompactPayloads() {
+        if (this.settings == null || this.settings.getTokenizer() == null) {
+            return false;
+        }
+        return this.settings.getTokenizer().isCompactPayloads();
+    }
+
+    /**
+     * @return The maximum estimated size in bytes of analyzed query text kept in the query analysis cache, or 0 if
+     * query text should not be cached
+     */
+    @JsonIgnore
+    public long getQueryAnalysisCacheSize() {
+        if (this.settings == null || this.settings.getTokenizer() == null) {
+            return new TokenizerConfig().getQueryAnalysisCacheSize();
+        }
+        return this.settings.getTokenizer().getQueryAnalysisCacheSize();
+    }
+
 //    @JsonIgnore
 //    public boolean enableEmbeddings() {
 //        return this.enabled.contains(NLPComponent.EMBEDDINGS);
@@ -79,6 +185,7 @@ public class Config {
 
     public static class ComponentSettings {
         private ConTextConfig context;
+        private TokenizerConfig tokenizer;
 //        private EmbeddingsConfig embeddings;
 
         public ComponentSettings() {
@@ -92,6 +199,14 @@ public class Config {
             this.context = context;
         }
 
+        public TokenizerConfig getTokenizer() {
+            return tokenizer;
+        }
+
+        public void setTokenizer(TokenizerConfig tokenizer) {
+            this.tokenizer = tokenizer;
+        }
+
 //        public EmbeddingsConfig getEmbeddings() {
 //            return embeddings;
 //        }
@@ -29,9 +29,36 @@ package org.ohnlp.elasticsearchnlp.config.components;
 public class ConTextConfig {
 
     public ConTextWeightConfig weights;
+    private int scopeWindow = -1;
+    private boolean stateSummary = false;
+    private boolean shadowTerms = false;
 
     public ConTextConfig() {}
 
+    public boolean isShadowTerms() {
+        return shadowTerms;
+    }
+
+    public void setShadowTerms(boolean shadowTerms) {
+        this.shadowTerms = shadowTerms;
+    }
+
+    public boolean isStateSummary() {
+        return stateSummary;
+    }
+
+    public void setStateSummary(boolean stateSummary) {
+        this.stateSummary = stateSummary;
+    }
+
+    public int getScopeWindow() {
+        return scopeWindow;
+    }
+
+    public void setScopeWindow(int scopeWindow) {
+        this.scopeWindow = scopeWindow;
+    }
+
     public ConTextWeightConfig getWeights() {
         return weights;
     }
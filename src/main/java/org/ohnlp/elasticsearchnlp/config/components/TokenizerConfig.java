@@ -0,0 +1,69 @@
+/*
+ *  Copyright: (c) 2019 Mayo Foundation for Medical Education and
+ *  Research (MFMER). All rights reserved. MAYO, MAYO CLINIC, and the
+ *  triple-shield Mayo logo are trademarks and service marks of MFMER.
+ *
+ *  Except as contained in the copyright notice above, or as used to identify
+ *  MFMER as the author of this software, the trade names, trademarks, service
+ *  marks, or product names of the copyright holder shall not be used in
+ *  advertising, promotion or otherwise in connection with this software without
+ *  prior written authorization of the copyright holder.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.ohnlp.elasticsearchnlp.config.components;
+
+/**
+ * Configuration options
+ */
+public class TokenizerConfig {
+
+    private int streamingBufferSize = -1;
+    private long queryAnalysisCacheSize = 1024 * 1024;
+    private boolean omitDefaultPayloads = false;
+    private boolean compactPayloads = false;
+
+    public TokenizerConfig() {}
+
+    public int getStreamingBufferSize() {
+        return streamingBufferSize;
+    }
+
+    public void setStreamingBufferSize(int streamingBufferSize) {
+        this.streamingBufferSize = streamingBufferSize;
+    }
+
+    public boolean isOmitDefaultPayloads() {
+        return omitDefaultPayloads;
+    }
+
+    public void setOmitDefaultPayloads(boolean omitDefaultPayloads) {
+        this.omitDefaultPayloads = omitDefaultPayloads;
+    }
+
+    public boolean isCompactPayloads() {
+        return compactPayloads;
+    }
+
+    public void setCompactPayloads(boolean compactPayloads) {
+        this.compactPayloads = compactPayloads;
+    }
+
+    public long getQueryAnalysisCacheSize() {
+        return queryAnalysisCacheSize;
+    }
+
+    public void setQueryAnalysisCacheSize(long queryAnalysisCacheSize) {
+        this.queryAnalysisCacheSize = queryAnalysisCacheSize;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ *  Copyright: (c) 2019 Mayo Foundation for Medical Education and
+ *  Research (MFMER). All rights reserved. MAYO, MAYO CLINIC, and the
+ *  triple-shield Mayo logo are trademarks and service marks of MFMER.
+ *
+ *  Except as contained in the copyright notice above, or as used to identify
+ *  MFMER as the author of this software, the trade names, trademarks, service
+ *  marks, or product names of the copyright holder shall not be used in
+ *  advertising, promotion or otherwise in connection with this software without
+ *  prior written authorization of the copyright holder.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.ohnlp.elasticsearchnlp.context;
+
+/**
+ * A compiled ConText rule, denoting the priority of the rule as well as the type and contexts of the triggers that
+ * should be generated when the rule matches
+ */
+public final class ConTexTRule {
+    private final int priority;
+    private final ConTexTTrigger.TriggerType triggerType;
+    private final ConText[] contexts;
+
+    /**
+     * @param priority    The index of the priority of this rule within {@link ConTexTSettings#getPriorities()}
+     * @param triggerType The type of trigger generated by this rule
+     * @param contexts    The contexts of the triggers generated by this rule, one trigger is generated per context.
+     *                    Pseudo triggers have a single null context
+     */
+    public ConTexTRule(int priority, ConTexTTrigger.TriggerType triggerType, ConText... contexts) {
+        this.priority = priority;
+        this.triggerType = triggerType;
+        this.contexts = contexts;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public ConTexTTrigger.TriggerType getTriggerType() {
+        return triggerType;
+    }
+
+    public ConText[] getContexts() {
+        return contexts;
+    }
+}
@@ -33,360 +33,317 @@ import java.util.regex.Pattern;
  * Class used to analyze concept context (based on the 'ConText' algorithm by Chapman et al.)
  * Adapted from Julien Thibault, Stephane Meystre, Oscar Ferrandez-Escamez
  * Department of Biomedical Informatics, University of Utah, 2011
+ * <br/><br/>
+ * All rule priorities are loaded into a single instance. Regular expression rules of every priority are compiled into
+ * one combined pattern consisting of a guard lookahead and one positional lookahead per rule group, such that a sentence
+ * need only be scanned once for all groups. Which rule groups matched at a given position is reported via
+ * {@link #getRegexRuleGroups()}/{@link #getRegexRules()}
  */
 public class ConTexTSettings {
 
-    private Pattern regexPseudo;
-
-    private Pattern regexNegPre;
-    private Pattern regexNegPost;
-    private Pattern regexPossPre;
-    private Pattern regexPossPost;
-    private Pattern regexNegEnd;
-
-    private Pattern regexExpPre;
-    private Pattern regexExpPost;
-    private Pattern regexExpEnd;
-
-    private Pattern regexHypoPre;
-    private Pattern regexHypoEnd;
-    private Pattern regexHypoExpEnd;
+    /**
+     * Regular expression rule groups (position and context type), in the order in which they are to be evaluated
+     */
+    private static final String[][] REGEX_RULE_GROUPS = {
+            {"pseudo", null},
+            {"pre", "neg"}, {"post", "neg"}, {"termin", "neg"},
+            {"pre", "poss"}, {"post", "poss"},
+            {"pre", "exp"}, {"post", "exp"}, {"termin", "exp"},
+            {"pre", "hypo"}, {"termin", "hypo"},
+            {"pre", "hist"}, {"post", "hist"}, {"termin", "hist"},
+            {"termin", "hypoexp"}, {"termin", "histexp"}
+    };
 
-    private Pattern regexHistPre;
-    private Pattern regexHistPost;
-    private Pattern regexHistEnd;
-    private Pattern regexHistExpEnd;
+    /**
+     * Hardcoded temporal contexts, identical for all priorities
+     */
+    private static final String REGEX_TIME_FOR = "(?:for|over) the [lp]ast (((1[4-9]|[1-9]?[2-9][0-9])[ |-]days? of)|" +
+            "(([2-9]|[1-9][0-9])[\\s-]weeks? of)|" +
+            "(([1-9]?[0-9])[\\s-](?:months?|years?) of))";//other pattern to recognize expressions of >14 days
+    private static final String REGEX_TIME = "((1[4-9]|[1-9]?[2-9][0-9])[\\s-]days? of)|" +
+            "(([2-9]|[1-9][0-9])[\\s-]weeks? of)|" +
+            "(([1-9]?[0-9])[\\s-](?:months?|years?) of)";//pattern to recognize expressions of >14 days
+    private static final String REGEX_TIME_SINCE = "since (?:(the )?last)? ((([2-9]|[1-9][0-9]) weeks ago)|" +
+            "(([1-9]?[0-9])? (?:months?|years?) ago)|" +
+            "((?:january|february|march|april|may|june|july|august|september|october|november|december|spring|summer|fall|winter)))";
 
-    private Pattern regexTime;
-    private Pattern regexTimeFor;
-    private Pattern regexTimeSince;
+    private final int[] priorities;
 
-    //    private KeywordTrie generalTrie = new KeywordTrie();
-    private Map<String, Map<ConTexTTrigger.TriggerType, Set<ConText>>> generalTriggerDict = new HashMap<>();
+    private final Pattern combinedRegex;
+    private final ConTexTRule[] regexRules;
+    private final int[] regexRuleGroups;
+    private final Pattern[] regexRulePatterns;
 
-    private Trie general;
+    private final Trie general;
+    private final Map<String, ConTexTRule[]> generalRules = new HashMap<>();
 
 
     /**
      * Initialization regex (load parameters)
      */
-    public ConTexTSettings(InputStream contextResource, int priority) {
-        Scanner sc;
-        String regex_PSEUDO = "";
-        String regex_NEG_PRE = "";
-        String regex_NEG_POST = "";
-        String regex_POSS_PRE = "";
-        String regex_POSS_POST = "";
-        String regex_NEG_END = "";
-
-        String regex_EXP_PRE = "";
-        String regex_EXP_POST = "";
-        String regex_EXP_END = "";
-
-        String regex_HYPO_PRE = "";
-        String regex_HIST_PRE = "";
-        String regex_HIST_POST = "";
-        String regex_HIST_1W = "";
-
-        String regex_HYPO_END = "";
-        String regex_HIST_END = "";
-        String regex_HIST_EXP_END = "";
-        String regex_HYPO_EXP_END = "";
-
-        sc = new Scanner(contextResource);
-
-
-        Trie.TrieBuilder generalTrie = Trie.builder()
-                .onlyWholeWordsWhiteSpaceSeparated();
-        while (sc.hasNextLine()) {
-            String line = sc.nextLine();
-            if (line.startsWith("#")) continue;
+    public ConTexTSettings(InputStream contextResource) {
+        this(readRules(contextResource));
+    }
 
-            if (!(line.startsWith("//"))) {
-                String[] tmp = line.split("~\\|~");
-                String phrase = tmp[0].trim();
-                boolean isRegex = phrase.startsWith("regex:");
-                if (isRegex) {
-                    phrase = phrase.substring(6);
-                } else {
-                    phrase = phrase.toLowerCase();
-                }
-                String position = tmp[1].toLowerCase();
-                String contextType = tmp[2].toLowerCase();
-                int rulePriority = Integer.valueOf(tmp[3]);
-                if (rulePriority != priority) {
+    /**
+     * Initialization regex (load parameters) from pre-read rule definitions
+     *
+     * @param rules The rule definition lines, as returned by {@link #readRules(InputStream)}
+     */
+    public ConTexTSettings(List<String> rules) {
+        SortedSet<Integer> rulePriorities = getRulePriorities(rules);
+        this.priorities = new int[rulePriorities.size()];
+        int idx = 0;
+        for (int priority : rulePriorities) {
+            priorities[idx++] = priority;
+        }
+        // Regex alternations, by priority and then rule group
+        String[][] regexAlternations = new String[priorities.length][REGEX_RULE_GROUPS.length];
+        for (int i = 0; i < priorities.length; i++) {
+            Arrays.fill(regexAlternations[i], "");
+        }
+        // Literal phrases of all priorities share a single trie, keyed phrase -> priority index -> trigger type
+        Trie.TrieBuilder generalTrie = Trie.builder().onlyWholeWordsWhiteSpaceSeparated();
+        Map<String, SortedMap<Integer, Map<ConTexTTrigger.TriggerType, Set<ConText>>>> generalTriggerDict = new HashMap<>();
+
+        for (String line : rules) {
+            String[] tmp = line.split("~\\|~");
+            String phrase = tmp[0].trim();
+            boolean isRegex = phrase.startsWith("regex:");
+            if (isRegex) {
+                phrase = phrase.substring(6);
+            } else {
+                phrase = phrase.toLowerCase();
+            }
+            String position = tmp[1].toLowerCase();
+            String contextType = tmp[2].toLowerCase();
+            int priorityIdx = Arrays.binarySearch(priorities, Integer.valueOf(tmp[3]));
+            if (!isRegex) {
+                ConTexTRule rule = resolveRule(priorityIdx, position, contextType);
+                if (rule == null) {
                     continue;
                 }
-                if (!isRegex) {
-                    generalTrie.addKeyword(phrase);
-                    switch (position) {
-                        case "pseudo": {
-                            generalTriggerDict.computeIfAbsent(phrase, k -> new HashMap<>()).computeIfAbsent(ConTexTTrigger.TriggerType.PSEUDO, k -> new HashSet<>()).add(ConText.NEGATED);
-                            break;
-                        }
-                        case "termin": {
-                            switch (contextType) {
-                                case "neg": {
-                                    generalTriggerDict.computeIfAbsent(phrase, k -> new HashMap<>()).computeIfAbsent(ConTexTTrigger.TriggerType.TERMINAL, k -> new HashSet<>()).add(ConText.NEGATED);
-                                    break;
-                                }
-                                case "hypo": {
-                                    generalTriggerDict.computeIfAbsent(phrase, k -> new HashMap<>()).computeIfAbsent(ConTexTTrigger.TriggerType.TERMINAL, k -> new HashSet<>()).add(ConText.HYPOTHETICAL);
-                                    break;
-                                }
-                                case "hist": {
-                                    generalTriggerDict.computeIfAbsent(phrase, k -> new HashMap<>()).computeIfAbsent(ConTexTTrigger.TriggerType.TERMINAL, k -> new HashSet<>()).add(ConText.HISTORICAL);
-                                    break;
-                                }
-                                case "histexp": {
-                                    generalTriggerDict.computeIfAbsent(phrase, k -> new HashMap<>()).computeIfAbsent(ConTexTTrigger.TriggerType.TERMINAL, k -> new HashSet<>()).add(ConText.EXPERIENCER);
-                                    generalTriggerDict.computeIfAbsent(phrase, k -> new HashMap<>()).computeIfAbsent(ConTexTTrigger.TriggerType.TERMINAL, k -> new HashSet<>()).add(ConText.HISTORICAL);
-                                    break;
-                                }
-                                case "hypoexp": {
-                                    generalTriggerDict.computeIfAbsent(phrase, k -> new HashMap<>()).computeIfAbsent(ConTexTTrigger.TriggerType.TERMINAL, k -> new HashSet<>()).add(ConText.EXPERIENCER);
-                                    generalTriggerDict.computeIfAbsent(phrase, k -> new HashMap<>()).computeIfAbsent(ConTexTTrigger.TriggerType.TERMINAL, k -> new HashSet<>()).add(ConText.HYPOTHETICAL);
-                                    break;
-                                }
-                                case "exp": {
-                                    generalTriggerDict.computeIfAbsent(phrase, k -> new HashMap<>()).computeIfAbsent(ConTexTTrigger.TriggerType.TERMINAL, k -> new HashSet<>()).add(ConText.EXPERIENCER);
-                                    break;
-                                }
-                            }
-                            break;
-                        }
-                        case "pre": {
-                            switch (contextType) {
-                                case "neg": {
-                                    generalTriggerDict.computeIfAbsent(phrase, k -> new HashMap<>()).computeIfAbsent(ConTexTTrigger.TriggerType.START_RIGHT, k -> new HashSet<>()).add(ConText.NEGATED);
-                                    break;
-                                }
-                                case "poss": {
-                                    generalTriggerDict.computeIfAbsent(phrase, k -> new HashMap<>()).computeIfAbsent(ConTexTTrigger.TriggerType.START_RIGHT, k -> new HashSet<>()).add(ConText.POSSIBLE);
-                                    break;
-                                }
-                                case "hypo": {
-                                    generalTriggerDict.computeIfAbsent(phrase, k -> new HashMap<>()).computeIfAbsent(ConTexTTrigger.TriggerType.START_RIGHT, k -> new HashSet<>()).add(ConText.HYPOTHETICAL);
-                                    break;
-                                }
-                                case "hist": {
-                                    generalTriggerDict.computeIfAbsent(phrase, k -> new HashMap<>()).computeIfAbsent(ConTexTTrigger.TriggerType.START_RIGHT, k -> new HashSet<>()).add(ConText.HISTORICAL);
-                                    break;
-                                }
-                                case "exp": {
-                                    generalTriggerDict.computeIfAbsent(phrase, k -> new HashMap<>()).computeIfAbsent(ConTexTTrigger.TriggerType.START_RIGHT, k -> new HashSet<>()).add(ConText.EXPERIENCER);
-                                    break;
-                                }
-                            }
-                            break;
-                        }
-                        case "post": {
-                            switch (contextType) {
-                                case "neg": {
-                                    generalTriggerDict.computeIfAbsent(phrase, k -> new HashMap<>()).computeIfAbsent(ConTexTTrigger.TriggerType.START_LEFT, k -> new HashSet<>()).add(ConText.NEGATED);
-                                    break;
-                                }
-                                case "poss": {
-                                    generalTriggerDict.computeIfAbsent(phrase, k -> new HashMap<>()).computeIfAbsent(ConTexTTrigger.TriggerType.START_LEFT, k -> new HashSet<>()).add(ConText.POSSIBLE);
-                                    break;
-                                }
-                                case "hypo": {
-                                    generalTriggerDict.computeIfAbsent(phrase, k -> new HashMap<>()).computeIfAbsent(ConTexTTrigger.TriggerType.START_LEFT, k -> new HashSet<>()).add(ConText.HYPOTHETICAL);
-                                    break;
-                                }
-                                case "hist": {
-                                    generalTriggerDict.computeIfAbsent(phrase, k -> new HashMap<>()).computeIfAbsent(ConTexTTrigger.TriggerType.START_LEFT, k -> new HashSet<>()).add(ConText.HISTORICAL);
-                                    break;
-                                }
-                                case "exp": {
-                                    generalTriggerDict.computeIfAbsent(phrase, k -> new HashMap<>()).computeIfAbsent(ConTexTTrigger.TriggerType.START_LEFT, k -> new HashSet<>()).add(ConText.EXPERIENCER);
-                                    break;
-                                }
-                            }
-                            break;
-                        }
-                    }
-                } else {
-                    if (position.compareTo("pseudo") == 0) {
-                        regex_PSEUDO = regex_PSEUDO + "|" + phrase;
-                    } else if (position.compareTo("termin") == 0) {
-                        if (contextType.compareTo("neg") == 0)
-                            regex_NEG_END = regex_NEG_END + "|" + phrase;
-                        else if (contextType.compareTo("hypo") == 0)
-                            regex_HYPO_END = regex_HYPO_END + "|" + phrase;
-                        else if (contextType.compareTo("hist") == 0)
-                            regex_HIST_END = regex_HIST_END + "|" + phrase;
-                        else if (contextType.compareTo("histexp") == 0)
-                            regex_HIST_EXP_END = regex_HIST_EXP_END + "|" + phrase;
-                        else if (contextType.compareTo("hypoexp") == 0)
-                            regex_HYPO_EXP_END = regex_HYPO_EXP_END + "|" + phrase;
-                        else if (contextType.compareTo("exp") == 0)
-                            regex_EXP_END = regex_EXP_END + "|" + phrase;
-                    } else if (position.compareTo("pre") == 0) {
-                        if (contextType.compareTo("neg") == 0)
-                            regex_NEG_PRE = regex_NEG_PRE + "|" + phrase;
-                        else if (contextType.compareTo("poss") == 0)
-                            regex_POSS_PRE = regex_POSS_PRE + "|" + phrase;
-                        else if (contextType.compareTo("hypo") == 0)
-                            regex_HYPO_PRE = regex_HYPO_PRE + "|" + phrase;
-                        else if (contextType.compareTo("exp") == 0)
-                            regex_EXP_PRE = regex_EXP_PRE + "|" + phrase;
-                        else if (contextType.compareTo("hist") == 0)
-                            regex_HIST_PRE = regex_HIST_PRE + "|" + phrase;
-                    } else if (position.compareTo("post") == 0) {
-                        if (contextType.compareTo("neg") == 0)
-                            regex_NEG_POST = regex_NEG_POST + "|" + phrase;
-                        else if (contextType.compareTo("poss") == 0)
-                            regex_POSS_POST = regex_POSS_POST + "|" + phrase;
-                        else if (contextType.compareTo("hist") == 0)
-                            regex_HIST_POST = regex_HIST_POST + "|" + phrase;
-                        else if (contextType.compareTo("exp") == 0)
-                            regex_EXP_POST = regex_EXP_POST + "|" + phrase;
-                    }
+                generalTrie.addKeyword(phrase);
+                Set<ConText> contexts = generalTriggerDict.computeIfAbsent(phrase, k -> new TreeMap<>())
+                        .computeIfAbsent(priorityIdx, k -> new EnumMap<>(ConTexTTrigger.TriggerType.class))
+                        .computeIfAbsent(rule.getTriggerType(), k -> EnumSet.noneOf(ConText.class));
+                if (rule.getTriggerType() != ConTexTTrigger.TriggerType.PSEUDO) {
+                    contexts.addAll(Arrays.asList(rule.getContexts()));
+                }
+            } else {
+                int group = getRegexRuleGroup(position, contextType);
+                if (group >= 0) {
+                    regexAlternations[priorityIdx][group] = regexAlternations[priorityIdx][group] + "|" + phrase;
                 }
             }
         }
 
-        sc.close();
-
-        general = generalTrie.build();
-
-        if (regex_PSEUDO.length() > 0)
-            regexPseudo = Pattern.compile(trimStartingAlternation(regex_PSEUDO), Pattern.CASE_INSENSITIVE); //bug fix
-
-        //negation context
-        if (regex_NEG_PRE.length() > 0)
-            regexNegPre = Pattern.compile(trimStartingAlternation(regex_NEG_PRE), Pattern.CASE_INSENSITIVE);
-        if (regex_NEG_POST.length() > 0)
-            regexNegPost = Pattern.compile(trimStartingAlternation(regex_NEG_POST), Pattern.CASE_INSENSITIVE);
-        if (regex_NEG_END.length() > 0)
-            regexNegEnd = Pattern.compile(trimStartingAlternation(regex_NEG_END), Pattern.CASE_INSENSITIVE);
-        if (regex_POSS_PRE.length() > 0)
-            regexPossPre = Pattern.compile(trimStartingAlternation(regex_POSS_PRE), Pattern.CASE_INSENSITIVE);
-        if (regex_POSS_POST.length() > 0)
-            regexPossPost = Pattern.compile(trimStartingAlternation(regex_POSS_POST), Pattern.CASE_INSENSITIVE);
-
-        //temporality context
-        if (regex_HIST_PRE.length() > 0)
-            regexHistPre = Pattern.compile(trimStartingAlternation(regex_HIST_PRE), Pattern.CASE_INSENSITIVE);
-        if (regex_HIST_POST.length() > 0)
-            regexHistPost = Pattern.compile(trimStartingAlternation(regex_HIST_POST), Pattern.CASE_INSENSITIVE);
-        if (regex_HYPO_PRE.length() > 0)
-            regexHypoPre = Pattern.compile(trimStartingAlternation(regex_HYPO_PRE), Pattern.CASE_INSENSITIVE);
-        if (regex_HIST_END.length() > 0)
-            regexHistEnd = Pattern.compile(trimStartingAlternation(regex_HIST_END), Pattern.CASE_INSENSITIVE);
-        if (regex_HYPO_END.length() > 0)
-            regexHypoEnd = Pattern.compile(trimStartingAlternation(regex_HYPO_END), Pattern.CASE_INSENSITIVE);
-
-        //experiencer and mixed
-        if (regex_EXP_PRE.length() > 0)
-            regexExpPre = Pattern.compile(trimStartingAlternation(regex_EXP_PRE), Pattern.CASE_INSENSITIVE);
-        if (regex_EXP_POST.length() > 0)
-            regexExpPost = Pattern.compile(trimStartingAlternation(regex_EXP_POST), Pattern.CASE_INSENSITIVE);
-        if (regex_EXP_END.length() > 0)
-            regexExpEnd = Pattern.compile(trimStartingAlternation(regex_EXP_END), Pattern.CASE_INSENSITIVE);
-        if (regex_HYPO_EXP_END.length() > 0)
-            regexHypoExpEnd = Pattern.compile(trimStartingAlternation(regex_HYPO_EXP_END), Pattern.CASE_INSENSITIVE);
-        if (regex_HIST_EXP_END.length() > 0)
-            regexHistExpEnd = Pattern.compile(trimStartingAlternation(regex_HIST_EXP_END), Pattern.CASE_INSENSITIVE);
-
-        // Add hardcoded temporal contexts
-        regexTime = Pattern.compile("((1[4-9]|[1-9]?[2-9][0-9])[\\s-]days? of)|" +
-                "(([2-9]|[1-9][0-9])[\\s-]weeks? of)|" +
-                "(([1-9]?[0-9])[\\s-](?:months?|years?) of)");//pattern to recognize expressions of >14 days
-        regexTimeFor = Pattern.compile("(?:for|over) the [lp]ast (((1[4-9]|[1-9]?[2-9][0-9])[ |-]days? of)|" +
-                "(([2-9]|[1-9][0-9])[\\s-]weeks? of)|" +
-                "(([1-9]?[0-9])[\\s-](?:months?|years?) of))");//other pattern to recognize expressions of >14 days
-        regexTimeSince = Pattern.compile("since (?:(the )?last)? ((([2-9]|[1-9][0-9]) weeks ago)|" +
-                "(([1-9]?[0-9])? (?:months?|years?) ago)|" +
-                "((?:january|february|march|april|may|june|july|august|september|october|november|december|spring|summer|fall|winter)))");
-    }
-
-    private String trimStartingAlternation(String ret) {
-        return ret.startsWith("|") ? ret.substring(1) : ret;
-    }
-
-    public Pattern getRegexPseudo() {
-        return regexPseudo;
-    }
-
-    public Pattern getRegexNegPre() {
-        return regexNegPre;
-    }
-
-    public Pattern getRegexNegPost() {
-        return regexNegPost;
-    }
-
-    public Pattern getRegexPossPre() {
-        return regexPossPre;
-    }
-
-    public Pattern getRegexPossPost() {
-        return regexPossPost;
-    }
-
-    public Pattern getRegexNegEnd() {
-        return regexNegEnd;
-    }
-
-    public Pattern getRegexExpPre() {
-        return regexExpPre;
-    }
-
-    public Pattern getRegexExpEnd() {
-        return regexExpEnd;
-    }
-
-    public Pattern getRegexHypoPre() {
-        return regexHypoPre;
+        this.general = generalTrie.build();
+        generalTriggerDict.forEach((phrase, triggersByPriority) -> {
+            List<ConTexTRule> phraseRules = new ArrayList<>();
+            triggersByPriority.forEach((priorityIdx, triggers) -> triggers.forEach((triggerType, contexts) -> {
+                if (triggerType == ConTexTTrigger.TriggerType.PSEUDO) {
+                    phraseRules.add(new ConTexTRule(priorityIdx, triggerType, (ConText) null));
+                } else {
+                    phraseRules.add(new ConTexTRule(priorityIdx, triggerType, contexts.toArray(new ConText[0])));
+                }
+            }));
+            generalRules.put(phrase, phraseRules.toArray(new ConTexTRule[0]));
+        });
+
+        // Now combine all regex groups of all priorities into a single pattern
+        List<ConTexTRule> rulesInGroupOrder = new ArrayList<>();
+        List<String> patternsInGroupOrder = new ArrayList<>();
+        for (int priorityIdx = 0; priorityIdx < priorities.length; priorityIdx++) {
+            for (int group = 0; group < REGEX_RULE_GROUPS.length; group++) {
+                String alternation = regexAlternations[priorityIdx][group];
+                if (alternation.length() > 0) {
+                    rulesInGroupOrder.add(resolveRule(priorityIdx, REGEX_RULE_GROUPS[group][0], REGEX_RULE_GROUPS[group][1]));
+                    patternsInGroupOrder.add("(?i:" + trimStartingAlternation(alternation) + ")");
+                }
+            }
+        }
+        // Hardcoded temporal contexts are identical for all priorities, so are only evaluated for the highest priority
+        int highestPriority = priorities.length - 1;
+        rulesInGroupOrder.add(new ConTexTRule(highestPriority, ConTexTTrigger.TriggerType.START_RIGHT, ConText.HISTORICAL));
+        patternsInGroupOrder.add(REGEX_TIME_FOR);
+        rulesInGroupOrder.add(new ConTexTRule(highestPriority, ConTexTTrigger.TriggerType.START_RIGHT, ConText.HISTORICAL));
+        patternsInGroupOrder.add(REGEX_TIME);
+        rulesInGroupOrder.add(new ConTexTRule(highestPriority, ConTexTTrigger.TriggerType.START_LEFT, ConText.HISTORICAL));
+        patternsInGroupOrder.add(REGEX_TIME_SINCE);
+
+        // The combined pattern consists of a guard lookahead that only succeeds at positions where any rule group
+        // matches, such that all other positions are skipped within a single find() call, followed by one optional
+        // capturing lookahead per rule group recording whether that group matches starting at said position
+        this.regexRules = rulesInGroupOrder.toArray(new ConTexTRule[0]);
+        this.regexRuleGroups = new int[regexRules.length];
+        this.regexRulePatterns = new Pattern[regexRules.length];
+        StringBuilder guard = new StringBuilder();
+        StringBuilder captures = new StringBuilder();
+        for (String pattern : patternsInGroupOrder) {
+            guard.append(guard.length() == 0 ? "(?=" : "|").append(pattern);
+            captures.append("(?:(?=(").append(pattern).append("))|)");
+        }
+        guard.append(")");
+        int groupCount = Pattern.compile(guard.toString()).matcher("").groupCount();
+        for (int i = 0; i < regexRules.length; i++) {
+            regexRulePatterns[i] = Pattern.compile(patternsInGroupOrder.get(i));
+            regexRuleGroups[i] = groupCount + 1;
+            groupCount += 1 + regexRulePatterns[i].matcher("").groupCount();
+        }
+        this.combinedRegex = Pattern.compile(guard.toString() + captures.toString());
     }
 
-    public Pattern getRegexHypoEnd() {
-        return regexHypoEnd;
+    /**
+     * @param position    The rule position (pseudo, termin, pre, post)
+     * @param contextType The rule context type
+     * @return The index of the rule group within {@link #REGEX_RULE_GROUPS}, or -1 if not a supported combination
+     */
+    private static int getRegexRuleGroup(String position, String contextType) {
+        for (int i = 0; i < REGEX_RULE_GROUPS.length; i++) {
+            if (REGEX_RULE_GROUPS[i][0].equals(position)
+                    && (REGEX_RULE_GROUPS[i][1] == null || REGEX_RULE_GROUPS[i][1].equals(contextType))) {
+                return i;
+            }
+        }
+        return -1;
     }
 
-    public Pattern getRegexHypoExpEnd() {
-        return regexHypoExpEnd;
+    /**
+     * @param priorityIdx The index of the rule priority
+     * @param position    The rule position (pseudo, termin, pre, post)
+     * @param contextType The rule context type
+     * @return The rule generated by the given rule definition, or null if not a supported combination
+     */
+    private static ConTexTRule resolveRule(int priorityIdx, String position, String contextType) {
+        switch (position) {
+            case "pseudo":
+                return new ConTexTRule(priorityIdx, ConTexTTrigger.TriggerType.PSEUDO, (ConText) null);
+            case "termin":
+                switch (contextType) {
+                    case "neg":
+                        return new ConTexTRule(priorityIdx, ConTexTTrigger.TriggerType.TERMINAL, ConText.NEGATED);
+                    case "hypo":
+                        return new ConTexTRule(priorityIdx, ConTexTTrigger.TriggerType.TERMINAL, ConText.HYPOTHETICAL);
+                    case "hist":
+                        return new ConTexTRule(priorityIdx, ConTexTTrigger.TriggerType.TERMINAL, ConText.HISTORICAL);
+                    case "histexp":
+                        return new ConTexTRule(priorityIdx, ConTexTTrigger.TriggerType.TERMINAL, ConText.HISTORICAL, ConText.EXPERIENCER);
+                    case "hypoexp":
+                        return new ConTexTRule(priorityIdx, ConTexTTrigger.TriggerType.TERMINAL, ConText.HYPOTHETICAL, ConText.EXPERIENCER);
+                    case "exp":
+                        return new ConTexTRule(priorityIdx, ConTexTTrigger.TriggerType.TERMINAL, ConText.EXPERIENCER);
+                    default:
+                        return null;
+                }
+            case "pre":
+            case "post":
+                ConTexTTrigger.TriggerType type = position.equals("pre") ?
+                        ConTexTTrigger.TriggerType.START_RIGHT : ConTexTTrigger.TriggerType.START_LEFT;
+                switch (contextType) {
+                    case "neg":
+                        return new ConTexTRule(priorityIdx, type, ConText.NEGATED);
+                    case "poss":
+                        return new ConTexTRule(priorityIdx, type, ConText.POSSIBLE);
+                    case "hypo":
+                        return new ConTexTRule(priorityIdx, type, ConText.HYPOTHETICAL);
+                    case "hist":
+                        return new ConTexTRule(priorityIdx, type, ConText.HISTORICAL);
+                    case "exp":
+                        return new ConTexTRule(priorityIdx, type, ConText.EXPERIENCER);
+                    default:
+                        return null;
+                }
+            default:
+                return null;
+        }
     }
 
-    public Pattern getRegexHistPre() {
-        return regexHistPre;
+    /**
+     * Reads rule definitions, skipping comments
+     *
+     * @param contextResource The rule definition resource
+     * @return A list of rule definition lines, in file order
+     */
+    public static List<String> readRules(InputStream contextResource) {
+        List<String> ret = new ArrayList<>();
+        Scanner sc = new Scanner(contextResource);
+        while (sc.hasNextLine()) {
+            String line = sc.nextLine();
+            if (line.startsWith("#") || line.startsWith("//")) {
+                continue;
+            }
+            ret.add(line);
+        }
+        sc.close();
+        return ret;
     }
 
-    public Pattern getRegexHistEnd() {
-        return regexHistEnd;
+    /**
+     * @param rules Rule definition lines, as returned by {@link #readRules(InputStream)}
+     * @return The distinct rule priorities present in the rule definitions, in ascending order
+     */
+    public static SortedSet<Integer> getRulePriorities(List<String> rules) {
+        SortedSet<Integer> ret = new TreeSet<>();
+        for (String line : rules) {
+            ret.add(Integer.valueOf(line.split("~\\|~")[3]));
+        }
+        return ret;
     }
 
-    public Pattern getRegexHistExpEnd() {
-        return regexHistExpEnd;
+    private static String trimStartingAlternation(String ret) {
+        return ret.startsWith("|") ? ret.substring(1) : ret;
     }
 
-    public Pattern getRegexTime() {
-        return regexTime;
+    /**
+     * @return The rule priorities, in ascending order. Rules and triggers refer to priorities by index in this array
+     */
+    public int[] getPriorities() {
+        return priorities;
     }
 
-    public Pattern getRegexTimeFor() {
-        return regexTimeFor;
+    /**
+     * @return A pattern that matches (empty) at every position of its input at which any regex rule group matches, with
+     * the capturing group of a rule group in {@link #getRegexRuleGroups()} set if that group matches at that position
+     */
+    public Pattern getCombinedRegex() {
+        return combinedRegex;
     }
 
-    public Pattern getRegexTimeSince() {
-        return regexTimeSince;
+    /**
+     * @return The regex rules, in evaluation order
+     */
+    public ConTexTRule[] getRegexRules() {
+        return regexRules;
     }
 
-    public Pattern getRegexExpPost() {
-        return regexExpPost;
+    /**
+     * @return The capturing group within {@link #getCombinedRegex()} corresponding to the regex rule of the same index
+     */
+    public int[] getRegexRuleGroups() {
+        return regexRuleGroups;
     }
 
-    public Pattern getRegexHistPost() {
-        return regexHistPost;
+    /**
+     * @return The pattern of each regex rule on its own, by rule index. Scanning a rule's pattern with
+     * {@link java.util.regex.Matcher#find()} yields the same matches as its group within {@link #getCombinedRegex()}
+     */
+    public Pattern[] getRegexRulePatterns() {
+        return regexRulePatterns;
     }
 
+    /**
+     * @return A trie over the (lower-cased) literal phrases of all priorities
+     */
     public Trie getGeneral() {
         return general;
     }
 
-    public Map<String, Map<ConTexTTrigger.TriggerType, Set<ConText>>> getGeneralTriggerDict() {
-        return generalTriggerDict;
+    /**
+     * @param phrase A keyword emitted by {@link #getGeneral()}
+     * @return The rules of all priorities triggered by the phrase, in ascending order of priority
+     */
+    public ConTexTRule[] getGeneralRules(String phrase) {
+        return generalRules.get(phrase);
     }
-}
\ No newline at end of file
+}
@@ -24,9 +24,37 @@
 package org.ohnlp.elasticsearchnlp.context;
 
 /**
- * Marks the status of the given context
+ * Marks the status of the given context<br/>
+ * <br/>
+ * For performance reasons, per-character status is tracked during analysis as a packed set of flags in a
+ * <code>short</code> (see the flag constants in this class), with this object only serving as a view over a single set
+ * of flags. The lowest four bits are laid out identically to the ConText byte of an
+ * {@link org.ohnlp.elasticsearchnlp.payloads.NLPPayload}
  */
 public class ConTexTStatus {
+
+    // Status flags, unset is the default (positive, asserted, present, patient experiencer) state
+    public static final short NEGATED = 0x1;
+    public static final short POSSIBLE = 0x2;
+    public static final short HISTORICAL = 0x4;
+    public static final short OTHER_EXPERIENCER = 0x8;
+
+    // Trigger term flags
+    public static final short NEGATION_TRIGGER = 0x10;
+    public static final short POSSIBLE_TRIGGER = 0x20;
+    public static final short HYPOTHETICAL_TRIGGER = 0x40;
+    public static final short HISTORICAL_TRIGGER = 0x80;
+    public static final short EXPERIENCER_TRIGGER = 0x100;
+
+    // Terminal flags
+    public static final short NEGATION_TERMINAL = 0x200;
+    public static final short POSSIBLE_TERMINAL = 0x400;
+    public static final short HYPOTHETICAL_TERMINAL = 0x800;
+    public static final short HISTORICAL_TERMINAL = 0x1000;
+    public static final short EXPERIENCER_TERMINAL = 0x2000;
+
+    public static final short PSEUDO = 0x4000;
+
     /**
      * Indicates that this context status is pseudo'd, and should not be used for a trigger
      */
@@ -64,18 +92,52 @@ public class ConTexTStatus {
     public boolean isExperiencerTrigger;
 
     public ConTexTStatus() {
-        this.isPositive = true;
-        this.isAsserted = true;
-        this.isPresent = true;
-        this.experiencerIsPatient = true;
-        this.isHistoricalTerminal = false;
-        this.isHypotheticalTerminal = false;
-        this.isNegationTerminal = false;
-        this.isExperiencerTerminal = false;
-        this.isNegationTrigger = false;
-        this.isHypotheticalTrigger = false;
-        this.isHistoricalTrigger = false;
-        this.isExperiencerTrigger = false;
-        this.isPseudo = false;
+        this((short) 0);
+    }
+
+    /**
+     * Creates a view over a packed set of status flags
+     *
+     * @param flags The status flags, as a bitwise or of the flag constants defined in this class
+     */
+    public ConTexTStatus(short flags) {
+        this.isPositive = (flags & NEGATED) == 0;
+        this.isAsserted = (flags & POSSIBLE) == 0;
+        this.isPresent = (flags & HISTORICAL) == 0;
+        this.experiencerIsPatient = (flags & OTHER_EXPERIENCER) == 0;
+        this.isNegationTrigger = (flags & NEGATION_TRIGGER) != 0;
+        this.isPossibleTrigger = (flags & POSSIBLE_TRIGGER) != 0;
+        this.isHypotheticalTrigger = (flags & HYPOTHETICAL_TRIGGER) != 0;
+        this.isHistoricalTrigger = (flags & HISTORICAL_TRIGGER) != 0;
+        this.isExperiencerTrigger = (flags & EXPERIENCER_TRIGGER) != 0;
+        this.isNegationTerminal = (flags & NEGATION_TERMINAL) != 0;
+        this.isPossibleTerminal = (flags & POSSIBLE_TERMINAL) != 0;
+        this.isHypotheticalTerminal = (flags & HYPOTHETICAL_TERMINAL) != 0;
+        this.isHistoricalTerminal = (flags & HISTORICAL_TERMINAL) != 0;
+        this.isExperiencerTerminal = (flags & EXPERIENCER_TERMINAL) != 0;
+        this.isPseudo = (flags & PSEUDO) != 0;
+    }
+
+    /**
+     * @return This status packed into a set of flags, as a bitwise or of the flag constants defined in this class
+     */
+    public short toFlags() {
+        int ret = 0;
+        ret |= isPositive ? 0 : NEGATED;
+        ret |= isAsserted ? 0 : POSSIBLE;
+        ret |= isPresent ? 0 : HISTORICAL;
+        ret |= experiencerIsPatient ? 0 : OTHER_EXPERIENCER;
+        ret |= isNegationTrigger ? NEGATION_TRIGGER : 0;
+        ret |= isPossibleTrigger ? POSSIBLE_TRIGGER : 0;
+        ret |= isHypotheticalTrigger ? HYPOTHETICAL_TRIGGER : 0;
+        ret |= isHistoricalTrigger ? HISTORICAL_TRIGGER : 0;
+        ret |= isExperiencerTrigger ? EXPERIENCER_TRIGGER : 0;
+        ret |= isNegationTerminal ? NEGATION_TERMINAL : 0;
+        ret |= isPossibleTerminal ? POSSIBLE_TERMINAL : 0;
+        ret |= isHypotheticalTerminal ? HYPOTHETICAL_TERMINAL : 0;
+        ret |= isHistoricalTerminal ? HISTORICAL_TERMINAL : 0;
+        ret |= isExperiencerTerminal ? EXPERIENCER_TERMINAL : 0;
+        ret |= isPseudo ? PSEUDO : 0;
+        return (short) ret;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,264 @@
+/*
+ *  Copyright: (c) 2019 Mayo Foundation for Medical Education and
+ *  Research (MFMER). All rights reserved. MAYO, MAYO CLINIC, and the
+ *  triple-shield Mayo logo are trademarks and service marks of MFMER.
+ *
+ *  Except as contained in the copyright notice above, or as used to identify
+ *  MFMER as the author of this software, the trade names, trademarks, service
+ *  marks, or product names of the copyright holder shall not be used in
+ *  advertising, promotion or otherwise in connection with this software without
+ *  prior written authorization of the copyright holder.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  =============================================================================
+ *  This work is derived from elasticsearch's TermsQueryBuilder. The full license
+ *  allowing for this derivation follows:
+ *  Licensed to Elasticsearch under one or more contributor
+ *  license agreements. See the NOTICE file distributed with
+ *  this work for additional information regarding copyright
+ *  ownership. Elasticsearch licenses this file to you under
+ *  the Apache License, Version 2.0 (the "License"); you may
+ *  not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.ohnlp.elasticsearchnlp.elasticsearch;
+
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.NLPContextFilterQuery;
+import org.apache.lucene.search.Query;
+import org.elasticsearch.common.ParseField;
+import org.elasticsearch.common.ParsingException;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.index.query.AbstractQueryBuilder;
+import org.elasticsearch.index.query.MatchQueryBuilder;
+import org.elasticsearch.index.query.QueryShardContext;
+import org.ohnlp.elasticsearchnlp.analyzers.NLPAnalyzerProvider;
+import org.ohnlp.elasticsearchnlp.lucene.NLPTerm;
+import org.ohnlp.elasticsearchnlp.payloads.NLPPayload;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A ConTexT aware query builder for hard criteria: every query term must occur in the document with the ConText status
+ * it has in the query text, e.g. "no history of GERD" only matches documents with a negated, historical mention of
+ * GERD. Individual ConText dimensions may be ignored, in which case occurrences match regardless of their status in
+ * that dimension. All matching documents receive the same score, so this is best used in filter context.
+ * Derived from Elasticsearch
+ */
+public class NLPContextFilterESQueryBuilder extends AbstractQueryBuilder<NLPContextFilterESQueryBuilder> {
+    public static final String NAME = "nlp_context_filter";
+    public static final ParseField IGNORE_FIELD = new ParseField("ignore");
+
+    // Names of the ConText dimensions, as in the weight config, in order of their bits in NLPPayload
+    private static final List<String> DIMENSIONS = Arrays.asList("negation", "assertion", "temporal", "subject");
+
+    private final String fieldName;
+    private final Object value;
+    private List<String> ignore = new ArrayList<>();
+
+    public NLPContextFilterESQueryBuilder(String fieldName, Object value) {
+        if (Strings.isEmpty(fieldName)) {
+            throw new IllegalArgumentException("[" + NAME + "] requires fieldName");
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("[" + NAME + "] requires query value");
+        }
+        this.fieldName = fieldName;
+        this.value = value;
+    }
+
+    /**
+     * Read from a stream.
+     */
+    public NLPContextFilterESQueryBuilder(StreamInput in) throws IOException {
+        super(in);
+        this.fieldName = in.readString();
+        this.value = in.readGenericValue();
+        this.ignore = in.readStringList();
+    }
+
+    @Override
+    protected void doWriteTo(StreamOutput out) throws IOException {
+        out.writeString(fieldName);
+        out.writeGenericValue(value);
+        out.writeStringCollection(ignore);
+    }
+
+    /** Returns the field name used in this query. */
+    public String fieldName() {
+        return this.fieldName;
+    }
+
+    /** Returns the value used in this query. */
+    public Object value() {
+        return this.value;
+    }
+
+    /**
+     * Sets the ConText dimensions in which the status of occurrences need not match the query, any of
+     * <code>negation</code>, <code>assertion</code>, <code>temporal</code> and <code>subject</code>.
+     */
+    public NLPContextFilterESQueryBuilder ignore(List<String> ignore) {
+        for (String dimension : ignore) {
+            if (!DIMENSIONS.contains(dimension)) {
+                throw new IllegalArgumentException("[" + NAME + "] unknown ConText dimension [" + dimension
+                        + "], expected one of " + DIMENSIONS);
+            }
+        }
+        this.ignore = new ArrayList<>(ignore);
+        return this;
+    }
+
+    /** Returns the ConText dimensions in which the status of occurrences need not match the query. */
+    public List<String> ignore() {
+        return this.ignore;
+    }
+
+    @Override
+    protected void doXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(NAME);
+        builder.startObject(fieldName);
+        builder.field(MatchQueryBuilder.QUERY_FIELD.getPreferredName(), value);
+        builder.field(IGNORE_FIELD.getPreferredName(), ignore);
+        builder.endObject();
+        builder.endObject();
+    }
+
+    @Override
+    protected Query doToQuery(QueryShardContext context) throws IOException {
+        int ignored = 0;
+        for (String dimension : ignore) {
+            ignored |= 1 << DIMENSIONS.indexOf(dimension);
+        }
+        // First, Analyze the Input Query
+        List<NLPTerm> lookups = NLPAnalyzerProvider.QUERY_ANALYSIS_CACHE.getTerms(
+                NLPAnalyzerProvider.getSearchAnalyzer(context, fieldName), fieldName, value.toString());
+        // Now, require every term with its status, except in the ignored dimensions. Punctuation tokens would make any
+        // document without them fail, and repeated terms would only add identical clauses
+        BooleanQuery.Builder bq = new BooleanQuery.Builder();
+        Set<List<Object>> required = new HashSet<>();
+        for (NLPTerm term : lookups) {
+            if (!term.isWord()) {
+                continue;
+            }
+            NLPPayload pyld = new NLPPayload(term.getPyld());
+            if (pyld.isHistoricalTrigger || pyld.isAssertionTrigger || pyld.isNegationTrigger) {
+                continue;
+            }
+            int status = NLPPayload.getContextBits(term.getPyld()) & ~ignored;
+            if (!required.add(Arrays.asList(term.getTerm(), status))) {
+                continue;
+            }
+            bq.add(new BooleanClause(new NLPContextFilterQuery(term.getTerm(), status, ~status & ~ignored),
+                    BooleanClause.Occur.MUST));
+        }
+        return bq.build();
+    }
+
+    @Override
+    protected boolean doEquals(NLPContextFilterESQueryBuilder other) {
+        return Objects.equals(fieldName, other.fieldName)
+                && Objects.equals(value, other.value)
+                && Objects.equals(ignore, other.ignore);
+    }
+
+    @Override
+    protected int doHashCode() {
+        return Objects.hash(fieldName, value, ignore);
+    }
+
+
+    @Override
+    public String getWriteableName() {
+        return NAME;
+    }
+
+    public static NLPContextFilterESQueryBuilder fromXContent(XContentParser parser) throws IOException {
+        String fieldName = null;
+        Object value = null;
+        List<String> ignore = new ArrayList<>();
+        float boost = AbstractQueryBuilder.DEFAULT_BOOST;
+        String queryName = null;
+        String currentFieldName = null;
+        XContentParser.Token token;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                currentFieldName = parser.currentName();
+            } else if (token == XContentParser.Token.START_OBJECT) {
+                throwParsingExceptionOnMultipleFields(NAME, parser.getTokenLocation(), fieldName, currentFieldName);
+                fieldName = currentFieldName;
+                while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+                    if (token == XContentParser.Token.FIELD_NAME) {
+                        currentFieldName = parser.currentName();
+                    } else if (token == XContentParser.Token.START_ARRAY
+                            && IGNORE_FIELD.match(currentFieldName, parser.getDeprecationHandler())) {
+                        while (parser.nextToken() != XContentParser.Token.END_ARRAY) {
+                            ignore.add(parser.text().toLowerCase(Locale.ROOT));
+                        }
+                    } else if (token.isValue()) {
+                        if (MatchQueryBuilder.QUERY_FIELD.match(currentFieldName, parser.getDeprecationHandler())) {
+                            value = parser.objectText();
+                        } else if (IGNORE_FIELD.match(currentFieldName, parser.getDeprecationHandler())) {
+                            ignore.add(parser.text().toLowerCase(Locale.ROOT));
+                        } else if (AbstractQueryBuilder.BOOST_FIELD.match(currentFieldName, parser.getDeprecationHandler())) {
+                            boost = parser.floatValue();
+                        } else if (AbstractQueryBuilder.NAME_FIELD.match(currentFieldName, parser.getDeprecationHandler())) {
+                            queryName = parser.text();
+                        } else {
+                            throw new ParsingException(parser.getTokenLocation(),
+                                    "[" + NAME + "] query does not support [" + currentFieldName + "]");
+                        }
+                    } else {
+                        throw new ParsingException(parser.getTokenLocation(),
+                                "[" + NAME + "] unknown token [" + token + "] after [" + currentFieldName + "]");
+                    }
+                }
+            } else {
+                throwParsingExceptionOnMultipleFields(NAME, parser.getTokenLocation(), fieldName, parser.currentName());
+                fieldName = parser.currentName();
+                value = parser.objectText();
+            }
+        }
+
+        NLPContextFilterESQueryBuilder filterQuery = new NLPContextFilterESQueryBuilder(fieldName, value);
+        try {
+            filterQuery.ignore(ignore);
+        } catch (IllegalArgumentException e) {
+            throw new ParsingException(parser.getTokenLocation(), e.getMessage());
+        }
+        filterQuery.queryName(queryName);
+        filterQuery.boost(boost);
+        return filterQuery;
+    }
+}
@@ -43,16 +43,13 @@
 package org.ohnlp.elasticsearchnlp.elasticsearch;
 
 import org.ohnlp.elasticsearchnlp.analyzers.NLPAnalyzerProvider;
+import org.ohnlp.elasticsearchnlp.lucene.NLPContextMode;
+import org.ohnlp.elasticsearchnlp.lucene.NLPQueryClauses;
 import org.ohnlp.elasticsearchnlp.lucene.NLPTerm;
-import org.apache.lucene.search.NLPTermQuery;
-import org.ohnlp.elasticsearchnlp.payloads.NLPPayload;
-import org.apache.lucene.analysis.TokenStream;
-import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
-import org.apache.lucene.analysis.tokenattributes.PayloadAttribute;
-import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.Query;
+import org.elasticsearch.common.ParseField;
 import org.elasticsearch.common.ParsingException;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -64,7 +61,6 @@ import org.elasticsearch.index.query.MatchQueryBuilder;
 import org.elasticsearch.index.query.QueryShardContext;
 
 import java.io.IOException;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
 
@@ -74,9 +70,13 @@ import java.util.Objects;
  */
 public class NLPNaiveBooleanESQueryBuilder extends AbstractQueryBuilder<NLPNaiveBooleanESQueryBuilder> {
     public static final String NAME = "nlp_naive_boolean";
+    public static final ParseField CONTEXT_MODE_FIELD = new ParseField("context_mode");
+    public static final ParseField GROUP_CONCEPTS_FIELD = new ParseField("group_concepts");
 
     private final String fieldName;
     private final Object value;
+    private NLPContextMode contextMode = NLPContextMode.PAYLOAD;
+    private boolean groupConcepts = false;
 
     public NLPNaiveBooleanESQueryBuilder(String fieldName, Object value) {
         if (Strings.isEmpty(fieldName)) {
@@ -96,12 +96,16 @@ public class NLPNaiveBooleanESQueryBuilder extends AbstractQueryBuilder<NLPNaive
         super(in);
         this.fieldName = in.readString();
         this.value = in.readGenericValue();
+        this.contextMode = in.readEnum(NLPContextMode.class);
+        this.groupConcepts = in.readBoolean();
     }
 
     @Override
     protected void doWriteTo(StreamOutput out) throws IOException {
         out.writeString(fieldName);
         out.writeGenericValue(value);
+        out.writeEnum(contextMode);
+        out.writeBoolean(groupConcepts);
     }
 
     /** Returns the field name used in this query. */
@@ -114,11 +118,38 @@ public class NLPNaiveBooleanESQueryBuilder extends AbstractQueryBuilder<NLPNaive
         return this.value;
     }
 
+    /** Sets how the ConText status of query terms is matched, defaults to {@link NLPContextMode#PAYLOAD}. */
+    public NLPNaiveBooleanESQueryBuilder contextMode(NLPContextMode contextMode) {
+        this.contextMode = Objects.requireNonNull(contextMode);
+        return this;
+    }
+
+    /** Returns how the ConText status of query terms is matched. */
+    public NLPContextMode contextMode() {
+        return this.contextMode;
+    }
+
+    /**
+     * Sets whether adjacent query terms with the same ConText status are matched as phrases and repeated ones merged,
+     * see {@link NLPQueryClauses}. Defaults to false, a clause per term.
+     */
+    public NLPNaiveBooleanESQueryBuilder groupConcepts(boolean groupConcepts) {
+        this.groupConcepts = groupConcepts;
+        return this;
+    }
+
+    /** Returns whether query terms are grouped into concepts. */
+    public boolean groupConcepts() {
+        return this.groupConcepts;
+    }
+
     @Override
     protected void doXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject(NAME);
         builder.startObject(fieldName);
         builder.field(MatchQueryBuilder.QUERY_FIELD.getPreferredName(), value);
+        builder.field(CONTEXT_MODE_FIELD.getPreferredName(), contextMode.toString());
+        builder.field(GROUP_CONCEPTS_FIELD.getPreferredName(), groupConcepts);
         builder.endObject();
         builder.endObject();
     }
@@ -126,31 +157,13 @@ public class NLPNaiveBooleanESQueryBuilder extends AbstractQueryBuilder<NLPNaive
     @Override
     protected Query doToQuery(QueryShardContext context) throws IOException {
         // First, Analyze the Input Query
-        List<NLPTerm> lookups = new LinkedList<>();
-        try {
-            TokenStream tokenStream = NLPAnalyzerProvider.ANALYZER
-                    .tokenStream(fieldName, value.toString());
-            tokenStream.reset();
-            final CharTermAttribute termAtt = tokenStream.getAttribute(CharTermAttribute.class);
-            final PayloadAttribute payloadAtt = tokenStream.getAttribute(PayloadAttribute.class);
-            // For each analyzed item, increment through and contribute to score
-            while (tokenStream.incrementToken()) {
-                Term term = new Term(fieldName, new String(termAtt.buffer(), 0, termAtt.length()));
-                lookups.add(new NLPTerm(term, payloadAtt.getPayload()));
-            }
-            tokenStream.close();
-        } catch (Exception ex) {
-            throw new IOException(ex);
-        }
+        List<NLPTerm> lookups = NLPAnalyzerProvider.QUERY_ANALYSIS_CACHE.getTerms(
+                NLPAnalyzerProvider.getSearchAnalyzer(context, fieldName), fieldName, value.toString());
         // Now, construct a boolean query
         BooleanQuery.Builder bq = new BooleanQuery.Builder();
         bq.setMinimumNumberShouldMatch(1);
-        for (NLPTerm term : lookups) {
-            NLPPayload pyld = new NLPPayload(term.getPyld());
-            if (pyld.isHistoricalTrigger || pyld.isAssertionTrigger || pyld.isNegationTrigger) {
-                continue;
-            }
-            bq.add(new BooleanClause(new NLPTermQuery(term), BooleanClause.Occur.SHOULD));
+        for (Query clause : NLPQueryClauses.build(lookups, contextMode, groupConcepts)) {
+            bq.add(new BooleanClause(clause, BooleanClause.Occur.SHOULD));
         }
         return bq.build();
     }
@@ -158,12 +171,14 @@ public class NLPNaiveBooleanESQueryBuilder extends AbstractQueryBuilder<NLPNaive
     @Override
     protected boolean doEquals(NLPNaiveBooleanESQueryBuilder other) {
         return Objects.equals(fieldName, other.fieldName)
-                && Objects.equals(value, other.value);
+                && Objects.equals(value, other.value)
+                && Objects.equals(contextMode, other.contextMode)
+                && groupConcepts == other.groupConcepts;
     }
 
     @Override
     protected int doHashCode() {
-        return Objects.hash(fieldName, value);
+        return Objects.hash(fieldName, value, contextMode, groupConcepts);
     }
 
 
@@ -175,6 +190,8 @@ public class NLPNaiveBooleanESQueryBuilder extends AbstractQueryBuilder<NLPNaive
     public static NLPNaiveBooleanESQueryBuilder fromXContent(XContentParser parser) throws IOException {
         String fieldName = null;
         Object value = null;
+        NLPContextMode contextMode = NLPContextMode.PAYLOAD;
+        boolean groupConcepts = false;
         float boost = AbstractQueryBuilder.DEFAULT_BOOST;
         String queryName = null;
         String currentFieldName = null;
@@ -191,6 +208,14 @@ public class NLPNaiveBooleanESQueryBuilder extends AbstractQueryBuilder<NLPNaive
                     } else if (token.isValue()) {
                         if (MatchQueryBuilder.QUERY_FIELD.match(currentFieldName, parser.getDeprecationHandler())) {
                             value = parser.objectText();
+                        } else if (CONTEXT_MODE_FIELD.match(currentFieldName, parser.getDeprecationHandler())) {
+                            try {
+                                contextMode = NLPContextMode.fromString(parser.text());
+                            } catch (IllegalArgumentException e) {
+                                throw new ParsingException(parser.getTokenLocation(), "[" + NAME + "] " + e.getMessage());
+                            }
+                        } else if (GROUP_CONCEPTS_FIELD.match(currentFieldName, parser.getDeprecationHandler())) {
+                            groupConcepts = parser.booleanValue();
                         }  else if (AbstractQueryBuilder.BOOST_FIELD.match(currentFieldName, parser.getDeprecationHandler())) {
                             boost = parser.floatValue();
                         } else if (AbstractQueryBuilder.NAME_FIELD.match(currentFieldName, parser.getDeprecationHandler())) {
@@ -212,6 +237,8 @@ public class NLPNaiveBooleanESQueryBuilder extends AbstractQueryBuilder<NLPNaive
         }
 
         NLPNaiveBooleanESQueryBuilder matchQuery = new NLPNaiveBooleanESQueryBuilder(fieldName, value);
+        matchQuery.contextMode(contextMode);
+        matchQuery.groupConcepts(groupConcepts);
         matchQuery.queryName(queryName);
         matchQuery.boost(boost);
         return matchQuery;
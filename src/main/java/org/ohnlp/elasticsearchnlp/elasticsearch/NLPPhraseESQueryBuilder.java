@@ -0,0 +1,252 @@
+/*
+ *  Copyright: (c) 2019 Mayo Foundation for Medical Education and
+ *  Research (MFMER). All rights reserved. MAYO, MAYO CLINIC, and the
+ *  triple-shield Mayo logo are trademarks and service marks of MFMER.
+ *
+ *  Except as contained in the copyright notice above, or as used to identify
+ *  MFMER as the author of this software, the trade names, trademarks, service
+ *  marks, or product names of the copyright holder shall not be used in
+ *  advertising, promotion or otherwise in connection with this software without
+ *  prior written authorization of the copyright holder.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  =============================================================================
+ *  This work is derived from elasticsearch's MatchPhraseQueryBuilder. The full license
+ *  allowing for this derivation follows:
+ *  Licensed to Elasticsearch under one or more contributor
+ *  license agreements. See the NOTICE file distributed with
+ *  this work for additional information regarding copyright
+ *  ownership. Elasticsearch licenses this file to you under
+ *  the Apache License, Version 2.0 (the "License"); you may
+ *  not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.ohnlp.elasticsearchnlp.elasticsearch;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.search.NLPPhraseQuery;
+import org.apache.lucene.search.Query;
+import org.elasticsearch.common.ParseField;
+import org.elasticsearch.common.ParsingException;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.index.query.AbstractQueryBuilder;
+import org.elasticsearch.index.query.MatchQueryBuilder;
+import org.elasticsearch.index.query.QueryShardContext;
+import org.ohnlp.elasticsearchnlp.analyzers.NLPAnalyzerProvider;
+import org.ohnlp.elasticsearchnlp.analyzers.NLPModelRegistry;
+import org.ohnlp.elasticsearchnlp.lucene.NLPTerm;
+import org.ohnlp.elasticsearchnlp.payloads.NLPPayload;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A ConTexT aware phrase query builder, matching the (non-trigger) terms of the query text as a phrase, e.g.
+ * "no congestive heart failure" only matches where all of congestive, heart and failure occur in sequence, weighted by
+ * how well their ConText statuses match negated mentions.
+ * Derived from Elasticsearch
+ */
+public class NLPPhraseESQueryBuilder extends AbstractQueryBuilder<NLPPhraseESQueryBuilder> {
+    public static final String NAME = "nlp_phrase";
+    public static final ParseField SLOP_FIELD = new ParseField("slop");
+
+    private final String fieldName;
+    private final Object value;
+    private int slop = 0;
+
+    public NLPPhraseESQueryBuilder(String fieldName, Object value) {
+        if (Strings.isEmpty(fieldName)) {
+            throw new IllegalArgumentException("[" + NAME + "] requires fieldName");
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("[" + NAME + "] requires query value");
+        }
+        this.fieldName = fieldName;
+        this.value = value;
+    }
+
+    /**
+     * Read from a stream.
+     */
+    public NLPPhraseESQueryBuilder(StreamInput in) throws IOException {
+        super(in);
+        this.fieldName = in.readString();
+        this.value = in.readGenericValue();
+        this.slop = in.readVInt();
+    }
+
+    @Override
+    protected void doWriteTo(StreamOutput out) throws IOException {
+        out.writeString(fieldName);
+        out.writeGenericValue(value);
+        out.writeVInt(slop);
+    }
+
+    /** Returns the field name used in this query. */
+    public String fieldName() {
+        return this.fieldName;
+    }
+
+    /** Returns the value used in this query. */
+    public Object value() {
+        return this.value;
+    }
+
+    /** Sets the phrase slop, defaults to 0 for exact phrases. */
+    public NLPPhraseESQueryBuilder slop(int slop) {
+        if (slop < 0) {
+            throw new IllegalArgumentException("[" + NAME + "] requires slop to be >= 0, got " + slop);
+        }
+        this.slop = slop;
+        return this;
+    }
+
+    /** Returns the phrase slop. */
+    public int slop() {
+        return this.slop;
+    }
+
+    @Override
+    protected void doXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(NAME);
+        builder.startObject(fieldName);
+        builder.field(MatchQueryBuilder.QUERY_FIELD.getPreferredName(), value);
+        builder.field(SLOP_FIELD.getPreferredName(), slop);
+        builder.endObject();
+        builder.endObject();
+    }
+
+    @Override
+    protected Query doToQuery(QueryShardContext context) throws IOException {
+        return toPhraseQuery(NLPAnalyzerProvider.getSearchAnalyzer(context, fieldName), fieldName, value.toString(), slop);
+    }
+
+    /**
+     * Analyzes the query text and constructs a phrase over its word (non-trigger) terms at their analyzed positions,
+     * such that the gaps left by dropped triggers and punctuation are kept
+     *
+     * @param analyzer  The search analyzer of the field
+     * @param fieldName The field to match
+     * @param text      The query text, which must be a single sentence as ConText scopes do not cross sentences
+     * @param slop      The phrase slop
+     * @return The phrase query
+     * @throws IllegalArgumentException if the query text spans more than one sentence
+     */
+    public static NLPPhraseQuery toPhraseQuery(Analyzer analyzer, String fieldName, String text, int slop) throws IOException {
+        int sentences = NLPModelRegistry.get().newSentenceDetector().sentPosDetect(text).length;
+        if (sentences > 1) {
+            throw new IllegalArgumentException("[" + NAME + "] requires a single sentence of query text, got " + sentences);
+        }
+        // First, Analyze the Input Query
+        List<NLPTerm> lookups = NLPAnalyzerProvider.QUERY_ANALYSIS_CACHE.getTerms(analyzer, fieldName, text);
+        // Now, construct a phrase over the terms at their analyzed positions, gaps from dropped tokens included
+        NLPPhraseQuery.Builder pq = new NLPPhraseQuery.Builder();
+        pq.setSlop(slop);
+        for (NLPTerm term : lookups) {
+            if (!term.isWord()) {
+                continue;
+            }
+            NLPPayload pyld = new NLPPayload(term.getPyld());
+            if (pyld.isHistoricalTrigger || pyld.isAssertionTrigger || pyld.isNegationTrigger) {
+                continue;
+            }
+            pq.add(term, term.getPosition());
+        }
+        return pq.build();
+    }
+
+    @Override
+    protected boolean doEquals(NLPPhraseESQueryBuilder other) {
+        return Objects.equals(fieldName, other.fieldName)
+                && Objects.equals(value, other.value)
+                && slop == other.slop;
+    }
+
+    @Override
+    protected int doHashCode() {
+        return Objects.hash(fieldName, value, slop);
+    }
+
+
+    @Override
+    public String getWriteableName() {
+        return NAME;
+    }
+
+    public static NLPPhraseESQueryBuilder fromXContent(XContentParser parser) throws IOException {
+        String fieldName = null;
+        Object value = null;
+        int slop = 0;
+        float boost = AbstractQueryBuilder.DEFAULT_BOOST;
+        String queryName = null;
+        String currentFieldName = null;
+        XContentParser.Token token;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                currentFieldName = parser.currentName();
+            } else if (token == XContentParser.Token.START_OBJECT) {
+                throwParsingExceptionOnMultipleFields(NAME, parser.getTokenLocation(), fieldName, currentFieldName);
+                fieldName = currentFieldName;
+                while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+                    if (token == XContentParser.Token.FIELD_NAME) {
+                        currentFieldName = parser.currentName();
+                    } else if (token.isValue()) {
+                        if (MatchQueryBuilder.QUERY_FIELD.match(currentFieldName, parser.getDeprecationHandler())) {
+                            value = parser.objectText();
+                        } else if (SLOP_FIELD.match(currentFieldName, parser.getDeprecationHandler())) {
+                            slop = parser.intValue();
+                        } else if (AbstractQueryBuilder.BOOST_FIELD.match(currentFieldName, parser.getDeprecationHandler())) {
+                            boost = parser.floatValue();
+                        } else if (AbstractQueryBuilder.NAME_FIELD.match(currentFieldName, parser.getDeprecationHandler())) {
+                            queryName = parser.text();
+                        } else {
+                            throw new ParsingException(parser.getTokenLocation(),
+                                    "[" + NAME + "] query does not support [" + currentFieldName + "]");
+                        }
+                    } else {
+                        throw new ParsingException(parser.getTokenLocation(),
+                                "[" + NAME + "] unknown token [" + token + "] after [" + currentFieldName + "]");
+                    }
+                }
+            } else {
+                throwParsingExceptionOnMultipleFields(NAME, parser.getTokenLocation(), fieldName, parser.currentName());
+                fieldName = parser.currentName();
+                value = parser.objectText();
+            }
+        }
+
+        NLPPhraseESQueryBuilder phraseQuery = new NLPPhraseESQueryBuilder(fieldName, value);
+        try {
+            phraseQuery.slop(slop);
+        } catch (IllegalArgumentException e) {
+            throw new ParsingException(parser.getTokenLocation(), e.getMessage());
+        }
+        phraseQuery.queryName(queryName);
+        phraseQuery.boost(boost);
+        return phraseQuery;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ *  Copyright: (c) 2019 Mayo Foundation for Medical Education and
+ *  Research (MFMER). All rights reserved. MAYO, MAYO CLINIC, and the
+ *  triple-shield Mayo logo are trademarks and service marks of MFMER.
+ *
+ *  Except as contained in the copyright notice above, or as used to identify
+ *  MFMER as the author of this software, the trade names, trademarks, service
+ *  marks, or product names of the copyright holder shall not be used in
+ *  advertising, promotion or otherwise in connection with this software without
+ *  prior written authorization of the copyright holder.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.ohnlp.elasticsearchnlp.lucene;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.NLPPhraseQuery;
+import org.apache.lucene.search.NLPTermQuery;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.ohnlp.elasticsearchnlp.analyzers.NLPContextShadowFilter;
+import org.ohnlp.elasticsearchnlp.payloads.NLPPayload;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * How the ConText status of query terms is applied when matching against the index
+ */
+public enum NLPContextMode {
+    /**
+     * Matches all occurrences of a term, weighting scores by the ConText payloads of each occurrence
+     */
+    PAYLOAD {
+        @Override
+        public Query toQuery(NLPTerm term) {
+            return new NLPTermQuery(term);
+        }
+
+        @Override
+        public Query toPhraseQuery(List<NLPTerm> terms) {
+            NLPPhraseQuery.Builder builder = new NLPPhraseQuery.Builder();
+            for (NLPTerm term : terms) {
+                builder.add(term, term.getPosition());
+            }
+            return builder.build();
+        }
+    },
+    /**
+     * Only matches occurrences of a term with exactly the query term's ConText status, using the shadow terms of
+     * {@link NLPContextShadowFilter}, which must be present in the index
+     */
+    SHADOW {
+        @Override
+        public Query toQuery(NLPTerm term) {
+            return new TermQuery(getShadowTerm(term));
+        }
+
+        @Override
+        public Query toPhraseQuery(List<NLPTerm> terms) {
+            // Shadow terms share the positions of their terms
+            PhraseQuery.Builder builder = new PhraseQuery.Builder();
+            for (NLPTerm term : terms) {
+                builder.add(getShadowTerm(term), term.getPosition());
+            }
+            return builder.build();
+        }
+
+        private Term getShadowTerm(NLPTerm term) {
+            Term t = term.getTerm();
+            return new Term(t.field(), NLPContextShadowFilter.getShadowTerm(t.text(), NLPPayload.getContextBits(term.getPyld())));
+        }
+    };
+
+    /**
+     * @param term An analyzed query term
+     * @return The query clause for the term
+     */
+    public abstract Query toQuery(NLPTerm term);
+
+    /**
+     * @param terms Analyzed query terms sharing the same ConText status, in order of their (known) positions
+     * @return A query clause matching the terms as a phrase
+     */
+    public abstract Query toPhraseQuery(List<NLPTerm> terms);
+
+    public static NLPContextMode fromString(String mode) {
+        try {
+            return valueOf(mode.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown context mode [" + mode + "], expected one of [payload, shadow]");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ *  Copyright: (c) 2019 Mayo Foundation for Medical Education and
+ *  Research (MFMER). All rights reserved. MAYO, MAYO CLINIC, and the
+ *  triple-shield Mayo logo are trademarks and service marks of MFMER.
+ *
+ *  Except as contained in the copyright notice above, or as used to identify
+ *  MFMER as the author of this software, the trade names, trademarks, service
+ *  marks, or product names of the copyright holder shall not be used in
+ *  advertising, promotion or otherwise in connection with this software without
+ *  prior written authorization of the copyright holder.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.ohnlp.elasticsearchnlp.lucene;
+
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.Query;
+import org.ohnlp.elasticsearchnlp.payloads.NLPPayload;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns analyzed query text into the SHOULD clauses of the NLP boolean queries, either one clause per term or one
+ * clause per concept.<br/>
+ * A concept is a maximal run of query terms at consecutive positions that share the same ConText status, so concepts
+ * end at ConText triggers, punctuation, removed stopwords and sentence boundaries. Multi-term concepts are matched as
+ * phrases, e.g. "denies chest pain, congestive heart failure" becomes two phrases rather than five term clauses.
+ * Repeated concepts become a single clause whose boost is the number of repetitions, so long narrative queries do not
+ * produce a clause per mention.
+ */
+public final class NLPQueryClauses {
+
+    private NLPQueryClauses() {
+    }
+
+    /**
+     * @param terms         Analyzed query terms with their payloads, in token order
+     * @param contextMode   How the ConText status of the terms is matched
+     * @param groupConcepts Whether to build a clause per concept rather than per term
+     * @return The query clauses
+     */
+    public static List<Query> build(List<NLPTerm> terms, NLPContextMode contextMode, boolean groupConcepts) {
+        return groupConcepts ? byConcept(terms, contextMode) : byTerm(terms, contextMode);
+    }
+
+    private static List<Query> byTerm(List<NLPTerm> terms, NLPContextMode contextMode) {
+        List<Query> clauses = new ArrayList<>();
+        for (NLPTerm term : terms) {
+            // Do not add any terms that are triggers, with the exception of experiencer since subject matters
+            if (isTrigger(term)) {
+                continue;
+            }
+            // Not a trigger -> add a clause
+            clauses.add(contextMode.toQuery(term));
+        }
+        return clauses;
+    }
+
+    private static List<Query> byConcept(List<NLPTerm> terms, NLPContextMode contextMode) {
+        // Concept key -> number of occurrences, in order of first occurrence
+        Map<List<Object>, Integer> counts = new LinkedHashMap<>();
+        Map<List<Object>, List<NLPTerm>> concepts = new LinkedHashMap<>();
+        List<NLPTerm> concept = new ArrayList<>();
+        for (NLPTerm term : terms) {
+            if (isTrigger(term) || !term.isWord()) {
+                addConcept(concept, counts, concepts);
+                continue;
+            }
+            if (!concept.isEmpty()) {
+                NLPTerm last = concept.get(concept.size() - 1);
+                if (term.getPosition() != last.getPosition() + 1
+                        || NLPPayload.getContextBits(term.getPyld()) != NLPPayload.getContextBits(last.getPyld())) {
+                    addConcept(concept, counts, concepts);
+                }
+            }
+            concept.add(term);
+        }
+        addConcept(concept, counts, concepts);
+
+        List<Query> clauses = new ArrayList<>(concepts.size());
+        for (Map.Entry<List<Object>, List<NLPTerm>> entry : concepts.entrySet()) {
+            List<NLPTerm> conceptTerms = entry.getValue();
+            Query clause = conceptTerms.size() == 1 ? contextMode.toQuery(conceptTerms.get(0)) : contextMode.toPhraseQuery(conceptTerms);
+            int count = counts.get(entry.getKey());
+            clauses.add(count == 1 ? clause : new BoostQuery(clause, count));
+        }
+        return clauses;
+    }
+
+    private static void addConcept(List<NLPTerm> concept, Map<List<Object>, Integer> counts,
+                                   Map<List<Object>, List<NLPTerm>> concepts) {
+        if (concept.isEmpty()) {
+            return;
+        }
+        // Concepts are the same if their terms and ConText status are, regardless of where they occur
+        List<Object> key = new ArrayList<>(concept.size() + 1);
+        key.add(NLPPayload.getContextBits(concept.get(0).getPyld()));
+        for (NLPTerm term : concept) {
+            key.add(term.getTerm());
+        }
+        if (counts.merge(key, 1, Integer::sum) == 1) {
+            concepts.put(key, Collections.unmodifiableList(new ArrayList<>(concept)));
+        }
+        concept.clear();
+    }
+
+    private static boolean isTrigger(NLPTerm term) {
+        NLPPayload pyld = new NLPPayload(term.getPyld());
+        return pyld.isHistoricalTrigger || pyld.isAssertionTrigger || pyld.isNegationTrigger;
+    }
+}
@@ -27,9 +27,12 @@ import org.ohnlp.elasticsearchnlp.payloads.NLPPayload;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.util.BytesRef;
 
+import java.util.Objects;
+
 public class NLPTerm {
     private Term term;
     private BytesRef pyld;
+    private int position = -1;
 
     public NLPTerm(Term term) {
         this.term = term;
@@ -41,6 +44,15 @@ public class NLPTerm {
         this.pyld = pyld;
     }
 
+    /**
+     * @param position The position of the term within the analyzed text it was taken from
+     */
+    public NLPTerm(Term term, BytesRef pyld, int position) {
+        this.term = term;
+        this.pyld = pyld;
+        this.position = position;
+    }
+
     public Term getTerm() {
         return term;
     }
@@ -56,4 +68,44 @@ public class NLPTerm {
     public void setPyld(BytesRef pyld) {
         this.pyld = pyld;
     }
+
+    /**
+     * @return The position of the term within the analyzed text it was taken from, or -1 if unknown. Not part of the
+     * identity of the term.
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    public void setPosition(int position) {
+        this.position = position;
+    }
+
+    /**
+     * @return True if the term contains a letter or digit, as opposed to the punctuation that the NLP tokenizer also
+     * emits as tokens
+     */
+    public boolean isWord() {
+        String text = term.text();
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.isLetterOrDigit(text.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        NLPTerm nlpTerm = (NLPTerm) o;
+        return Objects.equals(term, nlpTerm.term) &&
+                Objects.equals(pyld, nlpTerm.pyld);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(term, pyld);
+    }
 }
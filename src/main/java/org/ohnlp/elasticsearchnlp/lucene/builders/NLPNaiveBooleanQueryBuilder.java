@@ -42,13 +42,9 @@ package org.ohnlp.elasticsearchnlp.lucene.builders;
 
 
 import org.ohnlp.elasticsearchnlp.analyzers.NLPAnalyzerProvider;
+import org.ohnlp.elasticsearchnlp.lucene.NLPContextMode;
+import org.ohnlp.elasticsearchnlp.lucene.NLPQueryClauses;
 import org.ohnlp.elasticsearchnlp.lucene.NLPTerm;
-import org.apache.lucene.search.NLPTermQuery;
-import org.ohnlp.elasticsearchnlp.payloads.NLPPayload;
-import org.apache.lucene.analysis.TokenStream;
-import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
-import org.apache.lucene.analysis.tokenattributes.PayloadAttribute;
-import org.apache.lucene.index.Term;
 import org.apache.lucene.queryparser.xml.DOMUtils;
 import org.apache.lucene.queryparser.xml.ParserException;
 import org.apache.lucene.queryparser.xml.QueryBuilder;
@@ -57,7 +53,6 @@ import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.Query;
 import org.w3c.dom.Element;
 
-import java.util.LinkedList;
 import java.util.List;
 
 public class NLPNaiveBooleanQueryBuilder implements QueryBuilder {
@@ -65,34 +60,25 @@ public class NLPNaiveBooleanQueryBuilder implements QueryBuilder {
     public Query getQuery(Element e) throws ParserException {
         String field = DOMUtils.getAttributeWithInheritanceOrFail(e, "field");
         String text = DOMUtils.getAttributeWithInheritanceOrFail(e, "query");
+        NLPContextMode contextMode;
+        try {
+            contextMode = NLPContextMode.fromString(DOMUtils.getAttribute(e, "contextMode", NLPContextMode.PAYLOAD.toString()));
+        } catch (IllegalArgumentException ex) {
+            throw new ParserException(ex.getMessage());
+        }
+        boolean groupConcepts = DOMUtils.getAttribute(e, "groupConcepts", false);
         // First, Analyze the Input Query
-        List<NLPTerm> lookups = new LinkedList<>();
+        List<NLPTerm> lookups;
         try {
-            TokenStream tokenStream = NLPAnalyzerProvider.ANALYZER
-                    .tokenStream(field, text);
-            tokenStream.reset();
-            final CharTermAttribute termAtt = tokenStream.getAttribute(CharTermAttribute.class);
-            final PayloadAttribute payloadAtt = tokenStream.getAttribute(PayloadAttribute.class);
-            // For each analyzed item, increment through and contribute to score
-            while (tokenStream.incrementToken()) {
-                Term term = new Term(field, new String(termAtt.buffer(), 0, termAtt.length()));
-                lookups.add(new NLPTerm(term, payloadAtt.getPayload()));
-            }
-            tokenStream.close();
+            lookups = NLPAnalyzerProvider.QUERY_ANALYSIS_CACHE.getTerms(field, text);
         } catch (Exception ex) {
             throw new ParserException(ex);
         }
         // Now, construct a boolean query
         BooleanQuery.Builder bq = new BooleanQuery.Builder();
         bq.setMinimumNumberShouldMatch(DOMUtils.getAttribute(e, "minimumNumberShouldMatch", 0));
-        for (NLPTerm term : lookups) {
-            // Do not add any terms that are triggers, with the exception of experiencer since subject matters
-            NLPPayload pyld = new NLPPayload(term.getPyld());
-            if (pyld.isHistoricalTrigger || pyld.isAssertionTrigger || pyld.isNegationTrigger) {
-                continue;
-            }
-            // Not a trigger -> add a clause
-            bq.add(new BooleanClause(new NLPTermQuery(term), BooleanClause.Occur.SHOULD));
+        for (Query clause : NLPQueryClauses.build(lookups, contextMode, groupConcepts)) {
+            bq.add(new BooleanClause(clause, BooleanClause.Occur.SHOULD));
         }
         return bq.build();
     }
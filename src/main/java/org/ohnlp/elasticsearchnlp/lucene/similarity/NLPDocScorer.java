@@ -43,26 +43,46 @@ public class NLPDocScorer extends Similarity.SimScorer {
 
     private final Term term;
     private final BytesRef pyld;
+    private final boolean queryPositive;
+    private final double[] weights;
+    private final float maxWeight;
     private Similarity.SimScorer baseScorer;
 
-    private PostingsEnum postings;
-
     public NLPDocScorer(Similarity.SimScorer baseScorer, Term term, BytesRef pyld) {
         this.baseScorer = baseScorer;
         this.term = term;
         this.pyld = pyld;
+        this.queryPositive = new NLPPayload(pyld).isPositive();
+        // Snapshot the weights so that every segment is scored against the same config, even if it changes mid-search
+        this.weights = NLPPayloadScoringWeightFunction.getWeights();
+        double maxMultiplier = NLPPayloadScoringWeightFunction.getMaxScoreMultiplier(weights, pyld);
+        // Round up so that averaging and float conversion in score(PostingsEnum, long) can never exceed the bound
+        this.maxWeight = maxMultiplier > 0 ? Math.nextUp((float) maxMultiplier) : 0;
     }
 
-    public void setPostings(PostingsEnum postings) {
-        this.postings = postings;
-    }
-
+    /**
+     * As the NLP weight depends on the payloads of the current document, this only returns an upper bound: the score
+     * that a document with the given frequency and norm would receive if all of its positions had the best possible
+     * NLP weight for the query payload. This is what is needed to compute maximum scores from the impacts of a
+     * postings list; use {@link #score(PostingsEnum, long)} for actual document scores.
+     */
     @Override
     public float score(float freq, long norm) {
+        return baseScorer.score(freq, norm) * maxWeight;
+    }
+
+    /**
+     * Scores the current document of the given postings. This scorer holds no per-segment state, so it may be shared
+     * by scorers on different segments running concurrently as long as each passes in its own postings.
+     * @param postings Postings positioned on the document to score, with positions and payloads
+     * @param norm The norm of the document
+     * @return The document score
+     */
+    public float score(PostingsEnum postings, long norm) {
 
         // Get the NLP weight for this term
         long weightCount = 0;
-        float weight = 0;
+        double weight = 0;
         try {
             int docFreq = postings.freq();
             weightCount += docFreq;
@@ -70,7 +90,21 @@ public class NLPDocScorer extends Similarity.SimScorer {
                 postings.nextPosition();
                 BytesRef idxPyld = postings.getPayload();
                 // TODO: some less naive way of combining weights aside from averaging them might be desirable
-                double val = NLPPayloadScoringWeightFunction.getScoreMultiplier(pyld, idxPyld);
+                double val = weights[NLPPayloadScoringWeightFunction.getTableIndex(pyld, idxPyld)];
+                if (i == 0) {
+                    int summary = NLPPayload.getStateSummary(idxPyld);
+                    if (summary != 0 && (summary & (summary - 1)) == 0
+                            && NLPPayload.getStateSummaryCount(idxPyld) == docFreq) {
+                        // All occurrences share the status of the first, so the remaining payloads need not be read.
+                        // The summary only covers a single field value, so it is only trusted if it covers them all
+                        if (val > 0) {
+                            weight = val * docFreq;
+                        } else {
+                            weightCount = 0;
+                        }
+                        break;
+                    }
+                }
                 if (val > 0) {
                     weight += val;
                 } else {
@@ -80,23 +114,25 @@ public class NLPDocScorer extends Similarity.SimScorer {
             if (weightCount > 0) {
                 weight /= weightCount;
             }
-            if (!new NLPPayload(pyld).isPositive() && weightCount == 0) { // Why? Because negative mention is not found here
+            if (!queryPositive && weightCount == 0) { // Why? Because negative mention is not found here
                 weight = 0;
             }
             float base = baseScorer.score(weightCount, norm);
-            return base * weight;
+            return base * (float) weight;
         } catch (IOException e) {
             throw new RuntimeException("Error occurred during scoring!", e);
         }
     }
 
-    @Override
-    public Explanation explain(Explanation freq, long norm) {
+    /**
+     * Explains the score of the current document of the given postings, see {@link #score(PostingsEnum, long)}
+     */
+    public Explanation explain(PostingsEnum postings, Explanation freq, long norm) {
         LinkedList<Explanation> subs = new LinkedList<>();
 
         // Get the NLP weight for this term
         long weightCount = 0;
-        float weight = 0;
+        double weight = 0;
         try {
             int docFreq = postings.freq();
             weightCount += docFreq;
@@ -104,10 +140,10 @@ public class NLPDocScorer extends Similarity.SimScorer {
                 postings.nextPosition();
                 BytesRef idxPyld = postings.getPayload();
                 // TODO: some less naive way of combining weights aside from averaging them might be desirable
-                double val = NLPPayloadScoringWeightFunction.getScoreMultiplier(pyld, idxPyld);
+                double val = weights[NLPPayloadScoringWeightFunction.getTableIndex(pyld, idxPyld)];
                 if (val > 0) {
                     weight += val;
-                    subs.add(NLPPayloadScoringWeightFunction.generateExplanation(pyld, idxPyld));
+                    subs.add(NLPPayloadScoringWeightFunction.generateExplanation(pyld, idxPyld, val));
                 } else {
                     subs.add(Explanation.match(1, "Removed from term frequency due to NLP mismatch: query: " + new NLPPayload(pyld).toString() + " index: " + new NLPPayload(idxPyld).toString()));
                     weightCount--; // Not a valid match/different subject
@@ -117,7 +153,7 @@ public class NLPDocScorer extends Similarity.SimScorer {
                 weight /= weightCount;
             }
             Explanation correctBaseFreq;
-            if (!new NLPPayload(pyld).isPositive() && weightCount == 0) { // Why? Because negative mention is not found here
+            if (!queryPositive && weightCount == 0) { // Why? Because negative mention is not found here
                 weight = 0;
                 correctBaseFreq = Explanation.match(1, "No matches found for negated mention of " + term);
             } else {
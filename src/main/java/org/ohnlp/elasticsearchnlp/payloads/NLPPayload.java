@@ -47,6 +47,19 @@ import java.util.Arrays;
  * b & 0x2 = 0 -> Not Assertion Trigger, 1 -> Assertion Trigger<br/>
  * b & 0x4 = 0 -> Not Historical Trigger, 1 -> Historical Trigger<br/>
  * b & 0x8 = 0 -> Not Experiencer Trigger, 1 -> Experiencer Trigger<br/><br/>
+ * An absent or empty payload is equivalent to the default payload, in which no bits are set.<br/><br/>
+ * <h3>Compact format</h3>
+ * Indices may instead use a single byte, holding the ConText information in its low and the trigger information in its
+ * high 4 bits. As the ConText information always occupies the low bits of byte 0, only reading triggers depends on the
+ * format, which is detected by payload length: odd lengths are compact, even lengths are standard.<br/><br/>
+ * <h3>Optional trailing 4 bytes: ConText state summary</h3>
+ * Only present on the first occurrence of a term within a field value, see
+ * {@link org.ohnlp.elasticsearchnlp.analyzers.NLPContextSummaryFilter}. A little-endian 16 bit mask in which bit
+ * <code>s</code> is set if any occurrence of the term in the field value has the ConText information <code>s</code>,
+ * followed by the little-endian 16 bit number of occurrences that the mask covers (saturating at 0xFFFF). As a document
+ * may hold several values of a field, the mask only covers all occurrences of the term in the document if this count
+ * equals the term frequency.
+ * <br/><br/>
  */
 public class NLPPayload {
     //  Byte 0: ConText information
@@ -63,6 +76,11 @@ public class NLPPayload {
 
     private static final byte[] DEFAULT_PARAMS = new byte[2];
 
+    /**
+     * The number of bytes of the optional ConText state summary
+     */
+    public static final int SUMMARY_BYTES = 4;
+
 
     static {
         Arrays.fill(DEFAULT_PARAMS, (byte) 0);
@@ -73,7 +91,7 @@ public class NLPPayload {
     }
 
     public NLPPayload(BytesRef bytes) {
-        this(ByteBuffer.wrap(bytes.bytes).order(ByteOrder.LITTLE_ENDIAN), bytes.offset);
+        this(getContextBits(bytes), getTriggerBits(bytes));
     }
 
     public NLPPayload(byte[] source) {
@@ -81,14 +99,16 @@ public class NLPPayload {
     }
 
     public NLPPayload(ByteBuffer buff, int offset) {
+        this(buff.get(offset), buff.get(offset + 1));
+    }
+
+    private NLPPayload(int contextByte, int triggerByte) {
         // Status
-        byte contextByte = buff.get(offset);
         isPositive = (contextByte & 0x1) == 0;
         isAsserted = (contextByte & 0x2) == 0;
         isPresent = (contextByte & 0x4) == 0;
         patientIsSubject = (contextByte & 0x8) == 0;
         // Triggers (for coordination)
-        byte triggerByte = buff.get(offset + 1);
         isNegationTrigger = (triggerByte & 0x1) == 1;
         isAssertionTrigger = (triggerByte & 0x2) == 0x2;
         isHistoricalTrigger = (triggerByte & 0x4) == 0x4;
@@ -136,6 +156,82 @@ public class NLPPayload {
         return ret;
     }
 
+    /**
+     * @param payload A payload
+     * @return True if the payload is absent, which is equivalent to the default payload
+     */
+    public static boolean isDefault(BytesRef payload) {
+        return payload == null || payload.length == 0;
+    }
+
+    /**
+     * @param payload An index payload
+     * @return The ConText state summary of the payload as described in the class javadoc, or 0 if it carries none
+     */
+    public static int getStateSummary(BytesRef payload) {
+        if (payload == null || payload.length <= SUMMARY_BYTES) {
+            return 0;
+        }
+        // The summary follows the 1 (compact, odd length) or 2 (standard, even length) payload bytes
+        int start = payload.offset + 2 - (payload.length & 1);
+        return (payload.bytes[start] & 0xFF) | ((payload.bytes[start + 1] & 0xFF) << 8);
+    }
+
+    /**
+     * @param payload An index payload
+     * @return The payload without its ConText state summary, sharing the bytes of the given payload, or the given
+     * payload itself if it carries none
+     */
+    public static BytesRef withoutStateSummary(BytesRef payload) {
+        if (payload == null || payload.length <= SUMMARY_BYTES) {
+            return payload;
+        }
+        return new BytesRef(payload.bytes, payload.offset, payload.length - SUMMARY_BYTES);
+    }
+
+    /**
+     * @param payload An index payload
+     * @return The number of occurrences covered by the ConText state summary of the payload as described in the class
+     * javadoc, or 0 if it carries none
+     */
+    public static int getStateSummaryCount(BytesRef payload) {
+        if (payload == null || payload.length <= SUMMARY_BYTES) {
+            return 0;
+        }
+        int start = payload.offset + 4 - (payload.length & 1);
+        return (payload.bytes[start] & 0xFF) | ((payload.bytes[start + 1] & 0xFF) << 8);
+    }
+
+    /**
+     * @param payload A payload in either format
+     * @return The ConText information bits of the payload
+     */
+    public static int getContextBits(BytesRef payload) {
+        return isDefault(payload) ? 0 : payload.bytes[payload.offset] & 0xF;
+    }
+
+    /**
+     * @param payload A payload in either format
+     * @return The trigger information bits of the payload
+     */
+    public static int getTriggerBits(BytesRef payload) {
+        if (isDefault(payload)) {
+            return 0;
+        }
+        // Compact payloads keep triggers in the high bits of byte 0, standard ones in the low bits of byte 1
+        int compact = payload.length & 1;
+        return (payload.bytes[payload.offset + 1 - compact] >>> (compact << 2)) & 0xF;
+    }
+
+    /**
+     * @param contextBits The ConText information bits
+     * @param triggerBits The trigger information bits
+     * @return The single byte of a compact payload
+     */
+    public static byte toCompactByte(int contextBits, int triggerBits) {
+        return (byte) ((contextBits & 0xF) | (triggerBits << 4));
+    }
+
     /**
      * Determines if the term to which this payload corresponds should be used as part of the query coordination step
      * of scoring
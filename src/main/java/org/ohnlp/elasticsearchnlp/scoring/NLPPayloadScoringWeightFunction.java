@@ -24,32 +24,23 @@
 package org.ohnlp.elasticsearchnlp.scoring;
 
 import org.ohnlp.elasticsearchnlp.ElasticsearchNLPPlugin;
+import org.ohnlp.elasticsearchnlp.config.Config;
 import org.ohnlp.elasticsearchnlp.config.components.ConTextConfig;
 import org.ohnlp.elasticsearchnlp.payloads.NLPPayload;
 import org.apache.lucene.search.Explanation;
 import org.apache.lucene.util.BytesRef;
 
 import java.util.Arrays;
-import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Computes weights for matches between query and index payloads. As only the 4 ConText status bits of a payload are
+ * relevant to scoring, the configured weights are compiled into a lookup table over all 16x16 query/index status
+ * combinations, which is rebuilt whenever the {@link Config#getVersion() config version} or the configured weight values
+ * change.
+ */
 public class NLPPayloadScoringWeightFunction {
 
-    private static final AtomicBoolean INIT_LCK = new AtomicBoolean(false);
-    private static final AtomicBoolean DOINIT_LCK = new AtomicBoolean(false);
-
-    private static double mismatch_neg;
-    private static double mismatch_temp_light;
-    private static double mismatch_temp_heavy;
-    private static double mismatch_assert_light;
-    private static double mismatch_assert_heavy;
-    private static double mismatch_subj;
-
-    private static double match_neg;
-    private static double match_temp_light;
-    private static double match_temp_heavy;
-    private static double match_assert_light;
-    private static double match_assert_heavy;
-    private static double match_subj;
+    private static volatile WeightTable TABLE = null;
 
     /**
      * Generates a weight by which the original term similarity can be modified
@@ -58,80 +49,148 @@ public class NLPPayloadScoringWeightFunction {
      * @return A float weight denoting the individual term score
      */
     public static double getScoreMultiplier(BytesRef queryPyldByteRef, BytesRef idxPyldByteRef) {
-        // Ensure plugin initialized before loading config. We are guaranteed this method is not run prior to full config
-        // init
-        if (!INIT_LCK.get()) {
-            // Not initialized, try to acquire lock for initialization
-            if (!DOINIT_LCK.getAndSet(true)) {
-                initializeWeights();
-            } else {
-                synchronized (INIT_LCK) {
-                    while (!INIT_LCK.get()) {
-                        try {
-                            INIT_LCK.wait(1000);
-                        } catch (InterruptedException e) {
-                            e.printStackTrace();
-                        }
-                    }
+        return getWeights()[getTableIndex(queryPyldByteRef, idxPyldByteRef)];
+    }
+
+    /**
+     * Computes the largest weight that any index payload can receive against the given query payload, for use as an
+     * upper bound on scores without visiting positions
+     * @param queryPyldByteRef The {@link BytesRef} representing the original query payload
+     * @return The largest positive weight in the query payload's row of the table, or 0 if no weight is positive
+     */
+    public static double getMaxScoreMultiplier(BytesRef queryPyldByteRef) {
+        return getMaxScoreMultiplier(getWeights(), queryPyldByteRef);
+    }
+
+    /**
+     * @param weights A table as returned by {@link #getWeights()}
+     * @param queryPyldByteRef The {@link BytesRef} representing the original query payload
+     * @return The largest positive weight in the query payload's row of the given table, or 0 if none is positive
+     */
+    public static double getMaxScoreMultiplier(double[] weights, BytesRef queryPyldByteRef) {
+        int row = (queryPyldByteRef.bytes[queryPyldByteRef.offset] & 0xF) << 4;
+        double max = 0;
+        for (int idx = 0; idx < 16; idx++) {
+            max = Math.max(max, weights[row | idx]);
+        }
+        return max;
+    }
+
+    /**
+     * @return The precomputed weights for the current config, indexed by {@link #getTableIndex(BytesRef, BytesRef)}
+     */
+    public static double[] getWeights() {
+        WeightTable table = TABLE;
+        Config config = ElasticsearchNLPPlugin.CONFIG;
+        if (table == null || !table.isCurrent(config)) {
+            // Racing rebuilds are harmless as they produce identical tables
+            table = new WeightTable(config);
+            TABLE = table;
+        }
+        return table.weights;
+    }
+
+    /**
+     * @param queryPyld The query payload
+     * @param idxPyld   The index payload, absent (null or empty) if the default
+     * @return The index within {@link #getWeights()} of the weight for the given payload combination
+     */
+    public static int getTableIndex(BytesRef queryPyld, BytesRef idxPyld) {
+        int idxContext = NLPPayload.isDefault(idxPyld) ? 0 : idxPyld.bytes[idxPyld.offset] & 0xF;
+        return ((queryPyld.bytes[queryPyld.offset] & 0xF) << 4) | idxContext;
+    }
+
+    /**
+     * Configured weights compiled into a lookup table, valid for a specific config version and the weight values it was
+     * compiled from, such that nested weight settings modified in place are picked up as well
+     */
+    private static final class WeightTable {
+        private final long version;
+        private final boolean contextEnabled;
+        private final double[] source = new double[12];
+        private final double[] weights = new double[256];
+
+        private WeightTable(Config config) {
+            this.version = config.getVersion();
+            this.contextEnabled = config.enableConTextSupport();
+            if (!contextEnabled) {
+                Arrays.fill(weights, 1.00d);
+                return;
+            }
+            ConTextConfig.ConTextWeights mismatch = config.getSettings().getContext().getWeights().getMismatch();
+            ConTextConfig.ConTextWeights match = config.getSettings().getContext().getWeights().getMatch();
+            copySource(match, 0);
+            copySource(mismatch, 6);
+            for (int query = 0; query < 16; query++) {
+                for (int idx = 0; idx < 16; idx++) {
+                    weights[(query << 4) | idx] = computeWeight(new NLPPayload(new byte[]{(byte) query, 0}),
+                            new NLPPayload(new byte[]{(byte) idx, 0}), match, mismatch);
                 }
             }
         }
-        // Load bytesref into java POJO
-        NLPPayload queryPyld = new NLPPayload(queryPyldByteRef);
-        NLPPayload idxPyld = new NLPPayload(idxPyldByteRef);
-        double ret = 1.00d;
-        if (ElasticsearchNLPPlugin.CONFIG.enableConTextSupport()) {
+
+        /**
+         * @param config The current config
+         * @return Whether this table was compiled from the current config version and weight values
+         */
+        private boolean isCurrent(Config config) {
+            if (version != config.getVersion() || contextEnabled != config.enableConTextSupport()) {
+                return false;
+            }
+            if (!contextEnabled) {
+                return true;
+            }
+            ConTextConfig.ConTextWeightConfig weights = config.getSettings().getContext().getWeights();
+            return sourceEquals(weights.getMatch(), 0) && sourceEquals(weights.getMismatch(), 6);
+        }
+
+        private void copySource(ConTextConfig.ConTextWeights weights, int offset) {
+            source[offset] = weights.getNegation();
+            source[offset + 1] = weights.getSubject();
+            source[offset + 2] = weights.getTemporal().getLight();
+            source[offset + 3] = weights.getTemporal().getHeavy();
+            source[offset + 4] = weights.getAssertion().getLight();
+            source[offset + 5] = weights.getAssertion().getHeavy();
+        }
+
+        private boolean sourceEquals(ConTextConfig.ConTextWeights weights, int offset) {
+            return Double.compare(source[offset], weights.getNegation()) == 0
+                    && Double.compare(source[offset + 1], weights.getSubject()) == 0
+                    && Double.compare(source[offset + 2], weights.getTemporal().getLight()) == 0
+                    && Double.compare(source[offset + 3], weights.getTemporal().getHeavy()) == 0
+                    && Double.compare(source[offset + 4], weights.getAssertion().getLight()) == 0
+                    && Double.compare(source[offset + 5], weights.getAssertion().getHeavy()) == 0;
+        }
+
+        private static double computeWeight(NLPPayload queryPyld, NLPPayload idxPyld,
+                                            ConTextConfig.ConTextWeights match, ConTextConfig.ConTextWeights mismatch) {
+            double ret = 1.00d;
             // Check and modify scores based on ConText
             // Check Negation Status - Remove from consideration if mismatch
             if (queryPyld.isPositive() != idxPyld.isPositive()) {
-                ret *= mismatch_neg;
+                ret *= mismatch.getNegation();
             } else {
-                ret *= match_neg;
+                ret *= match.getNegation();
             }
             // Check Subject - Remove from consideration if mismatch, Heavily weight if match
             if (queryPyld.patientIsSubject() != idxPyld.patientIsSubject()) {
-                ret *= mismatch_subj;
+                ret *= mismatch.getSubject();
             } else {
-                ret *= match_subj;
+                ret *= match.getSubject();
             }
             // Check Historical -  Penalize if Mismatch Heavily if Query Looks for Historical, Lightly Otherwise
             if (queryPyld.isPresent() != idxPyld.isPresent()) {
-                ret *= queryPyld.isPresent() ? mismatch_temp_light : mismatch_temp_heavy;
+                ret *= queryPyld.isPresent() ? mismatch.getTemporal().getLight() : mismatch.getTemporal().getHeavy();
             } else {
-                ret *= queryPyld.isPresent() ? match_temp_light : match_temp_heavy;
+                ret *= queryPyld.isPresent() ? match.getTemporal().getLight() : match.getTemporal().getHeavy();
             }
             // Check Assertion - Penalize mismatch Heavily if Query Looks for not Asserted, Lightly Otherwise
             if (queryPyld.isAsserted() != idxPyld.isAsserted()) {
-                ret *= queryPyld.isAsserted() ? mismatch_assert_light : mismatch_assert_heavy;
+                ret *= queryPyld.isAsserted() ? mismatch.getAssertion().getLight() : mismatch.getAssertion().getHeavy();
             } else {
-                ret *= queryPyld.isAsserted() ? match_assert_light : match_assert_heavy;
+                ret *= queryPyld.isAsserted() ? match.getAssertion().getLight() : match.getAssertion().getHeavy();
             }
-        }
-        return ret;
-    }
-
-    private static void initializeWeights() {
-        ConTextConfig.ConTextWeights mismatch =
-                ElasticsearchNLPPlugin.CONFIG.getSettings().getContext().getWeights().mismatch;
-        mismatch_neg = mismatch.getNegation();
-        mismatch_assert_heavy = mismatch.getAssertion().getHeavy();
-        mismatch_assert_light = mismatch.getAssertion().getLight();
-        mismatch_temp_heavy = mismatch.getTemporal().getHeavy();
-        mismatch_temp_light = mismatch.getTemporal().getLight();
-        mismatch_subj = mismatch.getSubject();
-
-        ConTextConfig.ConTextWeights match =
-                ElasticsearchNLPPlugin.CONFIG.getSettings().getContext().getWeights().match;
-        match_neg = match.getNegation();
-        match_assert_light = match.getAssertion().getLight();
-        match_assert_heavy = match.getAssertion().getHeavy();
-        match_temp_light = match.getTemporal().getLight();
-        match_temp_heavy = match.getTemporal().getHeavy();
-        match_subj = match.getSubject();
-
-        INIT_LCK.set(true);
-        synchronized (INIT_LCK) {
-            INIT_LCK.notifyAll();
+            return ret;
         }
     }
 
@@ -142,12 +201,20 @@ public class NLPPayloadScoringWeightFunction {
      * @return An explanation for how the float weight is derived
      */
     public static Explanation generateExplanation(BytesRef queryPyld, BytesRef idxPyld) {
-        double weight = getScoreMultiplier(queryPyld, idxPyld);
+        return generateExplanation(queryPyld, idxPyld, getScoreMultiplier(queryPyld, idxPyld));
+    }
+
+    /**
+     * Generates an explanation for a score multiplier that has already been looked up
+     * @param queryPyld The bytes corresponding to the query NLP payload
+     * @param idxPyld The bytes corresponding to the NLP payload of the term being matched against in the index
+     * @param weight The weight for the given payload combination
+     * @return An explanation for how the float weight is derived
+     */
+    public static Explanation generateExplanation(BytesRef queryPyld, BytesRef idxPyld, double weight) {
         // Load bytesref into java POJO
-        byte[] queryPyldBytes = Arrays.copyOfRange(queryPyld.bytes, queryPyld.offset, queryPyld.offset + queryPyld.length);
-        byte[] idxPyldBytes = Arrays.copyOfRange(idxPyld.bytes, idxPyld.offset, idxPyld.offset + idxPyld.length);
-        NLPPayload queryPyldPojo = new NLPPayload(queryPyldBytes);
-        NLPPayload idxPyldPojo = new NLPPayload(idxPyldBytes);
+        NLPPayload queryPyldPojo = new NLPPayload(queryPyld);
+        NLPPayload idxPyldPojo = new NLPPayload(idxPyld);
         if (weight > 0) { // TODO an arbritary delimiter for match/don't match... does this actually matter? Should not affect scoring
             return Explanation.match(weight, "weight(Query NLP Payload=" + queryPyldPojo + ", Idx NLP Payload=" + idxPyldPojo + ") returned a weight of " + weight);
         } else {
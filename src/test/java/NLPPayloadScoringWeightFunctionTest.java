@@ -0,0 +1,53 @@
+/*
+ *  Copyright: (c) 2019 Mayo Foundation for Medical Education and
+ *  Research (MFMER). All rights reserved. MAYO, MAYO CLINIC, and the
+ *  triple-shield Mayo logo are trademarks and service marks of MFMER.
+ *
+ *  Except as contained in the copyright notice above, or as used to identify
+ *  MFMER as the author of this software, the trade names, trademarks, service
+ *  marks, or product names of the copyright holder shall not be used in
+ *  advertising, promotion or otherwise in connection with this software without
+ *  prior written authorization of the copyright holder.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.apache.lucene.util.BytesRef;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.ohnlp.elasticsearchnlp.ElasticsearchNLPPlugin;
+import org.ohnlp.elasticsearchnlp.config.components.ConTextConfig;
+import org.ohnlp.elasticsearchnlp.payloads.NLPPayload;
+import org.ohnlp.elasticsearchnlp.scoring.NLPPayloadScoringWeightFunction;
+
+import java.io.IOException;
+
+public class NLPPayloadScoringWeightFunctionTest {
+    @Rule
+    public final PluginConfigRule config = new PluginConfigRule();
+
+    @Test
+    public void testNestedWeightChange() {
+        NLPPayload negated = new NLPPayload();
+        negated.setPositive(false);
+        BytesRef query = new BytesRef(new NLPPayload().toBytes());
+        BytesRef idx = new BytesRef(negated.toBytes());
+        double before = NLPPayloadScoringWeightFunction.getScoreMultiplier(query, idx);
+        // Modify the weights in place, without going through the config setters
+        ConTextConfig.ConTextWeights mismatch = ElasticsearchNLPPlugin.CONFIG.getSettings().getContext().weights.mismatch;
+        mismatch.setNegation(mismatch.getNegation() + 0.5);
+        double after = NLPPayloadScoringWeightFunction.getScoreMultiplier(query, idx);
+        Assert.assertNotEquals(before, after, 0);
+        Assert.assertEquals(after, NLPPayloadScoringWeightFunction.getScoreMultiplier(query, idx), 0);
+    }
+}
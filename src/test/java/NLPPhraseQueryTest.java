@@ -0,0 +1,165 @@
+/*
+ *  Copyright: (c) 2019 Mayo Foundation for Medical Education and
+ *  Research (MFMER). All rights reserved. MAYO, MAYO CLINIC, and the
+ *  triple-shield Mayo logo are trademarks and service marks of MFMER.
+ *
+ *  Except as contained in the copyright notice above, or as used to identify
+ *  MFMER as the author of this software, the trade names, trademarks, service
+ *  marks, or product names of the copyright holder shall not be used in
+ *  advertising, promotion or otherwise in connection with this software without
+ *  prior written authorization of the copyright holder.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.Explanation;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.NLPPhraseQuery;
+import org.apache.lucene.search.NLPTermQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.ohnlp.elasticsearchnlp.ElasticsearchNLPPlugin;
+import org.ohnlp.elasticsearchnlp.analyzers.NLPAnalyzer;
+import org.ohnlp.elasticsearchnlp.analyzers.NLPQueryAnalysisCache;
+import org.ohnlp.elasticsearchnlp.elasticsearch.NLPPhraseESQueryBuilder;
+import org.ohnlp.elasticsearchnlp.lucene.NLPContextMode;
+import org.ohnlp.elasticsearchnlp.lucene.NLPQueryClauses;
+import org.ohnlp.elasticsearchnlp.lucene.NLPTerm;
+
+import java.io.IOException;
+import java.util.List;
+
+public class NLPPhraseQueryTest {
+    @Rule
+    public final PluginConfigRule config = new PluginConfigRule();
+
+    private static final String[] BODIES = {
+            "Patient has chest pain.",
+            "Patient denies chest pain.",
+            "Patient has pain in the chest.",
+            "Patient has chest wall pain.",
+            "Mother had chest pain."
+    };
+
+    private TestIndex index;
+    private IndexSearcher searcher;
+    private NLPAnalyzer analyzer;
+    private NLPQueryAnalysisCache analysis;
+
+    @Before
+    public void loadIndex() throws IOException {
+        index = TestIndex.of(BODIES);
+        searcher = index.searcher;
+        analyzer = new NLPAnalyzer();
+        analysis = new NLPQueryAnalysisCache(analyzer);
+    }
+
+    @After
+    public void close() throws IOException {
+        index.close();
+    }
+
+    private NLPPhraseQuery phrase(String text, int slop) throws IOException {
+        return NLPPhraseESQueryBuilder.toPhraseQuery(analyzer, TestIndex.FIELD, text, slop);
+    }
+
+    private int[] hits(NLPPhraseQuery query) throws IOException {
+        TopDocs top = searcher.search(query, 10);
+        int[] ret = new int[top.scoreDocs.length];
+        for (int i = 0; i < ret.length; i++) {
+            ret[i] = top.scoreDocs[i].doc;
+        }
+        return ret;
+    }
+
+    @Test
+    public void testExactPhrase() throws IOException {
+        // Neither the negated nor the family history mention of the phrase matches, nor do the terms out of sequence
+        Assert.assertArrayEquals(new int[]{0}, hits(phrase("chest pain", 0)));
+        Assert.assertArrayEquals(new int[]{1}, hits(phrase("denies chest pain", 0)));
+        // Gaps left by stopwords are kept
+        Assert.assertArrayEquals(new int[]{2}, hits(phrase("pain in the chest", 0)));
+        Assert.assertEquals(0, searcher.count(phrase("pain in chest", 0)));
+        // As are gaps left by punctuation, which is not itself matched
+        Assert.assertArrayEquals(new int[]{3}, hits(phrase("chest, pain", 0)));
+        Assert.assertArrayEquals(new int[]{0}, hits(phrase("chest pain.", 0)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMultipleSentences() throws IOException {
+        phrase("Patient has chest pain. Mother had chest pain.", 0);
+    }
+
+    @Test
+    public void testSloppyPhrase() throws IOException {
+        // More exact matches score higher
+        Assert.assertArrayEquals(new int[]{0, 3}, hits(phrase("chest pain", 1)));
+        Assert.assertArrayEquals(new int[]{0, 3, 2}, hits(phrase("chest pain", 4)));
+    }
+
+    @Test
+    public void testExplain() throws IOException {
+        NLPPhraseQuery query = phrase("chest pain", 1);
+        for (ScoreDoc hit : searcher.search(query, 10).scoreDocs) {
+            Explanation explanation = searcher.explain(query, hit.doc);
+            Assert.assertTrue(explanation.isMatch());
+            Assert.assertEquals(hit.score, explanation.getValue().floatValue(), 1e-5f);
+        }
+        Assert.assertFalse(searcher.explain(query, 1).isMatch());
+    }
+
+    @Test
+    public void testRewriteAndEquality() throws IOException {
+        Assert.assertEquals(phrase("chest pain", 1), phrase("chest pain", 1));
+        Assert.assertNotEquals(phrase("chest pain", 0), phrase("chest pain", 1));
+        Assert.assertNotEquals(phrase("chest pain", 0), phrase("denies chest pain", 0));
+        Query single = searcher.rewrite(phrase("pain", 0));
+        Assert.assertTrue(single instanceof NLPTermQuery);
+        Assert.assertEquals(new Term(TestIndex.FIELD, "pain"), ((NLPTermQuery) single).getTerm().getTerm());
+        // The rewritten query is cached against the config the phrase was built with
+        NLPPhraseQuery built = phrase("pain", 0);
+        ElasticsearchNLPPlugin.CONFIG.markModified();
+        Assert.assertEquals(built.getConfigVersion(), ((NLPTermQuery) searcher.rewrite(built)).getConfigVersion());
+    }
+
+    @Test
+    public void testConceptClauses() throws IOException {
+        List<NLPTerm> terms = analysis.getTerms(TestIndex.FIELD, "Chest pain, denies fever. Congestive heart failure. Chest pain.");
+        List<Query> byTerm = NLPQueryClauses.build(terms, NLPContextMode.PAYLOAD, false);
+        List<Query> byConcept = NLPQueryClauses.build(terms, NLPContextMode.PAYLOAD, true);
+        Assert.assertTrue(byConcept.size() < byTerm.size());
+        // Repeated concepts are merged, punctuation and triggers split concepts but are not clauses themselves
+        Assert.assertEquals(3, byConcept.size());
+        Assert.assertTrue(byConcept.get(0) instanceof BoostQuery);
+        Assert.assertEquals(2f, ((BoostQuery) byConcept.get(0)).getBoost(), 0f);
+        Assert.assertTrue(((BoostQuery) byConcept.get(0)).getQuery() instanceof NLPPhraseQuery);
+        Assert.assertTrue(byConcept.get(1) instanceof NLPTermQuery);
+        Assert.assertEquals(3, ((NLPPhraseQuery) byConcept.get(2)).getTerms().length);
+
+        // Grouped queries still match the concepts
+        BooleanQuery.Builder bq = new BooleanQuery.Builder();
+        for (Query clause : NLPQueryClauses.build(analysis.getTerms(TestIndex.FIELD, "chest pain"), NLPContextMode.PAYLOAD, true)) {
+            bq.add(clause, BooleanClause.Occur.SHOULD);
+        }
+        Assert.assertEquals(1, searcher.count(bq.build()));
+    }
+}
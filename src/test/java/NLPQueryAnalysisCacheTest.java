@@ -0,0 +1,100 @@
+/*
+ *  Copyright: (c) 2019 Mayo Foundation for Medical Education and
+ *  Research (MFMER). All rights reserved. MAYO, MAYO CLINIC, and the
+ *  triple-shield Mayo logo are trademarks and service marks of MFMER.
+ *
+ *  Except as contained in the copyright notice above, or as used to identify
+ *  MFMER as the author of this software, the trade names, trademarks, service
+ *  marks, or product names of the copyright holder shall not be used in
+ *  advertising, promotion or otherwise in connection with this software without
+ *  prior written authorization of the copyright holder.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.ohnlp.elasticsearchnlp.ElasticsearchNLPPlugin;
+import org.ohnlp.elasticsearchnlp.analyzers.NLPAnalyzer;
+import org.ohnlp.elasticsearchnlp.analyzers.NLPQueryAnalysisCache;
+import org.ohnlp.elasticsearchnlp.lucene.NLPTerm;
+import org.ohnlp.elasticsearchnlp.payloads.NLPPayload;
+
+import java.io.IOException;
+import java.util.List;
+
+public class NLPQueryAnalysisCacheTest {
+    @Rule
+    public final PluginConfigRule config = new PluginConfigRule();
+
+    private static String TESTSTRING = "Mr. Test presents today with heartburn and possible fmhx GERD.";
+
+    @Test
+    public void testHitsAndMisses() throws IOException {
+        NLPQueryAnalysisCache cache = new NLPQueryAnalysisCache(new NLPAnalyzer());
+        List<NLPTerm> analyzed = cache.getTerms("body", TESTSTRING);
+        Assert.assertFalse(analyzed.isEmpty());
+        Assert.assertSame(analyzed, cache.getTerms("body", TESTSTRING));
+        Assert.assertNotEquals(analyzed, cache.getTerms("other", TESTSTRING));
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(2, cache.getMissCount());
+        Assert.assertEquals(2, cache.size());
+
+        // A config change must not serve results analyzed under the previous config
+        ElasticsearchNLPPlugin.CONFIG.markModified();
+        List<NLPTerm> reanalyzed = cache.getTerms("body", TESTSTRING);
+        Assert.assertNotSame(analyzed, reanalyzed);
+        Assert.assertEquals(analyzed, reanalyzed);
+        Assert.assertEquals(3, cache.getMissCount());
+    }
+
+    @Test
+    public void testKeyedByAnalyzer() throws IOException {
+        NLPAnalyzer defaultAnalyzer = new NLPAnalyzer();
+        NLPAnalyzer fieldAnalyzer = new NLPAnalyzer();
+        NLPQueryAnalysisCache cache = new NLPQueryAnalysisCache(defaultAnalyzer);
+        List<NLPTerm> analyzed = cache.getTerms("body", TESTSTRING);
+        Assert.assertSame(analyzed, cache.getTerms(defaultAnalyzer, "body", TESTSTRING));
+        // A different analyzer for the same field and text is analyzed separately
+        Assert.assertNotSame(analyzed, cache.getTerms(fieldAnalyzer, "body", TESTSTRING));
+        Assert.assertEquals(2, cache.getMissCount());
+        Assert.assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testStateSummaryStripped() throws IOException {
+        NLPQueryAnalysisCache cache = new NLPQueryAnalysisCache(new NLPAnalyzer(-1, -1, false, false, true));
+        for (NLPTerm term : cache.getTerms("body", "Patient has a fever. Patient denies fever.")) {
+            Assert.assertEquals(0, NLPPayload.getStateSummary(term.getPyld()));
+            Assert.assertEquals(2, term.getPyld().length);
+        }
+    }
+
+    @Test
+    public void testSizeBound() throws IOException {
+        NLPQueryAnalysisCache cache = new NLPQueryAnalysisCache(new NLPAnalyzer());
+        cache.getTerms("body", TESTSTRING);
+        long entrySize = cache.ramBytesUsed();
+        ElasticsearchNLPPlugin.CONFIG.getSettings().getTokenizer().setQueryAnalysisCacheSize(entrySize * 3);
+        for (int i = 0; i < 10; i++) {
+            cache.getTerms("body", TESTSTRING);
+            cache.getTerms("body", "Patient denies fever " + i + ".");
+        }
+        Assert.assertTrue(cache.ramBytesUsed() <= entrySize * 3);
+        Assert.assertTrue(cache.getEvictionCount() > 0);
+        // The most recently used entry is retained
+        long misses = cache.getMissCount();
+        cache.getTerms("body", TESTSTRING);
+        Assert.assertEquals(misses, cache.getMissCount());
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ *  Copyright: (c) 2019 Mayo Foundation for Medical Education and
+ *  Research (MFMER). All rights reserved. MAYO, MAYO CLINIC, and the
+ *  triple-shield Mayo logo are trademarks and service marks of MFMER.
+ *
+ *  Except as contained in the copyright notice above, or as used to identify
+ *  MFMER as the author of this software, the trade names, trademarks, service
+ *  marks, or product names of the copyright holder shall not be used in
+ *  advertising, promotion or otherwise in connection with this software without
+ *  prior written authorization of the copyright holder.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.NLPTermQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.ohnlp.elasticsearchnlp.ElasticsearchNLPPlugin;
+import org.ohnlp.elasticsearchnlp.analyzers.NLPAnalyzer;
+import org.ohnlp.elasticsearchnlp.lucene.NLPTerm;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs NLP term queries against a multi-segment index from many threads at once, using concurrent segment search, and
+ * checks the results against a sequential run
+ */
+public class NLPQueryConcurrencyTest {
+    @Rule
+    public final PluginConfigRule config = new PluginConfigRule();
+
+    private static final String FIELD = "body";
+    private static final String[] SENTENCES = {
+            "Mr. Test presents today with heartburn and possible fmhx GERD.",
+            "Patient denies chest pain; reports shortness of breath.",
+            "No fever or chills.",
+            "Family history: mother with breast cancer.",
+            "She has had cough for the past 3 weeks.",
+            "History of MI in 2010.",
+            "Rule out pneumonia.",
+            "If she develops fever she should return.",
+            "Patient's father had diabetes, no history of stroke.",
+            "Presents with fever, cough and chest pain."
+    };
+    private static final String[] TERMS = {"fever", "cough", "chest", "pain", "heartburn", "gerd", "diabetes", "stroke", "pneumonia", "cancer"};
+
+    private Directory directory;
+    private IndexReader reader;
+    private ExecutorService executor;
+
+    @Before
+    public void setup() throws IOException {
+        directory = new ByteBuffersDirectory();
+        IndexWriterConfig iwc = new IndexWriterConfig(new NLPAnalyzer());
+        iwc.setMaxBufferedDocs(50);
+        iwc.setMergePolicy(NoMergePolicy.INSTANCE);
+        Random random = new Random(42);
+        try (IndexWriter writer = new IndexWriter(directory, iwc)) {
+            for (int i = 0; i < 500; i++) {
+                StringBuilder body = new StringBuilder();
+                int sentences = 1 + random.nextInt(6);
+                for (int j = 0; j < sentences; j++) {
+                    body.append(SENTENCES[random.nextInt(SENTENCES.length)]).append(' ');
+                }
+                Document doc = new Document();
+                doc.add(new TextField(FIELD, body.toString(), Field.Store.NO));
+                writer.addDocument(doc);
+            }
+        }
+        reader = DirectoryReader.open(directory);
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void teardown() throws IOException {
+        executor.shutdownNow();
+        reader.close();
+        directory.close();
+    }
+
+    @Test
+    public void testConcurrentSegmentSearch() throws Exception {
+        Assert.assertTrue(reader.leaves().size() > 1);
+        Random random = new Random(7);
+        List<Query> queries = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            BooleanQuery.Builder builder = new BooleanQuery.Builder();
+            int clauses = 1 + random.nextInt(3);
+            for (int j = 0; j < clauses; j++) {
+                BytesRef pyld = new BytesRef(new byte[]{(byte) random.nextInt(16), 0});
+                builder.add(new NLPTermQuery(new NLPTerm(new Term(FIELD, TERMS[random.nextInt(TERMS.length)]), pyld)), BooleanClause.Occur.SHOULD);
+            }
+            queries.add(builder.build());
+        }
+
+        IndexSearcher sequential = new IndexSearcher(reader);
+        List<TopDocs> expected = new ArrayList<>();
+        for (Query query : queries) {
+            expected.add(sequential.search(query, 20));
+        }
+
+        IndexSearcher concurrent = new IndexSearcher(reader, executor);
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int round = 0; round < 8; round++) {
+                futures.add(clients.submit(() -> {
+                    for (int i = 0; i < queries.size(); i++) {
+                        assertSameHits(expected.get(i), concurrent.search(queries.get(i), 20));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    private static void assertSameHits(TopDocs expected, TopDocs actual) {
+        Assert.assertEquals(expected.scoreDocs.length, actual.scoreDocs.length);
+        for (int i = 0; i < expected.scoreDocs.length; i++) {
+            ScoreDoc e = expected.scoreDocs[i];
+            ScoreDoc a = actual.scoreDocs[i];
+            Assert.assertEquals(e.doc, a.doc);
+            Assert.assertEquals(e.score, a.score, 0f);
+        }
+    }
+}
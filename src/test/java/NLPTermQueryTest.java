@@ -0,0 +1,273 @@
+/*
+ *  Copyright: (c) 2019 Mayo Foundation for Medical Education and
+ *  Research (MFMER). All rights reserved. MAYO, MAYO CLINIC, and the
+ *  triple-shield Mayo logo are trademarks and service marks of MFMER.
+ *
+ *  Except as contained in the copyright notice above, or as used to identify
+ *  MFMER as the author of this software, the trade names, trademarks, service
+ *  marks, or product names of the copyright holder shall not be used in
+ *  advertising, promotion or otherwise in connection with this software without
+ *  prior written authorization of the copyright holder.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LRUQueryCache;
+import org.apache.lucene.search.NLPContextFilterQuery;
+import org.apache.lucene.search.NLPTermQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryCachingPolicy;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.search.TwoPhaseIterator;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.BytesRef;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.ohnlp.elasticsearchnlp.ElasticsearchNLPPlugin;
+import org.ohnlp.elasticsearchnlp.analyzers.NLPContextShadowFilter;
+import org.ohnlp.elasticsearchnlp.lucene.NLPContextMode;
+import org.ohnlp.elasticsearchnlp.lucene.NLPTerm;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class NLPTermQueryTest {
+    @Rule
+    public final PluginConfigRule config = new PluginConfigRule();
+
+    @Test
+    public void testEquality() {
+        NLPTermQuery query = new NLPTermQuery(new NLPTerm(new Term(TestIndex.FIELD, "fever"), new BytesRef(new byte[]{1, 0})));
+        NLPTermQuery same = new NLPTermQuery(new NLPTerm(new Term(TestIndex.FIELD, "fever"), new BytesRef(new byte[]{1, 0})));
+        NLPTermQuery otherPayload = new NLPTermQuery(new NLPTerm(new Term(TestIndex.FIELD, "fever"), new BytesRef(new byte[]{0, 0})));
+        Assert.assertEquals(query, same);
+        Assert.assertEquals(query.hashCode(), same.hashCode());
+        Assert.assertNotEquals(query, otherPayload);
+        ElasticsearchNLPPlugin.CONFIG.markModified();
+        NLPTermQuery newConfig = new NLPTermQuery(new NLPTerm(new Term(TestIndex.FIELD, "fever"), new BytesRef(new byte[]{1, 0})));
+        Assert.assertNotEquals(query, newConfig);
+    }
+
+    @Test
+    public void testQueryCache() throws IOException {
+        try (TestIndex index = TestIndex.of("Patient has a fever.", "Patient denies fever.", "Patient has a cough.")) {
+            IndexSearcher searcher = index.searcher;
+            LRUQueryCache cache = new LRUQueryCache(16, 1 << 20, context -> true);
+            searcher.setQueryCache(cache);
+            searcher.setQueryCachingPolicy(new QueryCachingPolicy() {
+                @Override
+                public void onUse(Query query) {
+                }
+
+                @Override
+                public boolean shouldCache(Query query) {
+                    return true;
+                }
+            });
+            NLPTermQuery query = new NLPTermQuery(new NLPTerm(new Term(TestIndex.FIELD, "fever")));
+            Assert.assertEquals(2, searcher.count(new ConstantScoreQuery(query)));
+            Assert.assertEquals(2, searcher.count(new ConstantScoreQuery(new NLPTermQuery(new NLPTerm(new Term(TestIndex.FIELD, "fever"))))));
+            Assert.assertEquals(1, cache.getCacheCount());
+            Assert.assertEquals(1, cache.getHitCount());
+        }
+    }
+
+    @Test
+    public void testStateSummaryScoring() throws IOException {
+        String[] bodies = {"Patient has a fever. Fever persists.", "Patient denies fever. No cough.",
+                "Fever and cough. Mother had a fever. Denies cough.", "Cough for the past 3 weeks."};
+        float[][] scores = new float[2][];
+        for (int run = 0; run < 2; run++) {
+            ElasticsearchNLPPlugin.CONFIG.getSettings().getContext().setStateSummary(run == 0);
+            try (TestIndex index = TestIndex.of(bodies)) {
+                List<Float> runScores = new ArrayList<>();
+                for (String term : new String[]{"fever", "cough"}) {
+                    for (int status = 0; status < 16; status++) {
+                        NLPTermQuery query = new NLPTermQuery(new NLPTerm(new Term(TestIndex.FIELD, term), new BytesRef(new byte[]{(byte) status, 0})));
+                        for (ScoreDoc hit : index.searcher.search(query, bodies.length).scoreDocs) {
+                            runScores.add((float) hit.doc);
+                            runScores.add(hit.score);
+                        }
+                    }
+                }
+                scores[run] = new float[runScores.size()];
+                for (int i = 0; i < runScores.size(); i++) {
+                    scores[run][i] = runScores.get(i);
+                }
+            }
+        }
+        Assert.assertArrayEquals(scores[1], scores[0], 1e-6f);
+    }
+
+    @Test
+    public void testMultiValuedStateSummary() throws IOException {
+        float[] scores = new float[2];
+        for (int run = 0; run < 2; run++) {
+            ElasticsearchNLPPlugin.CONFIG.getSettings().getContext().setStateSummary(run == 0);
+            // Each value gets its own summary, the first of which only covers the negated occurrence
+            try (TestIndex index = TestIndex.ofMultiValued(new String[]{"Patient denies fever.", "Patient has a fever."})) {
+                TopDocs hits = index.searcher.search(new NLPTermQuery(new NLPTerm(new Term(TestIndex.FIELD, "fever"))), 1);
+                Assert.assertEquals(1, hits.scoreDocs.length);
+                scores[run] = hits.scoreDocs[0].score;
+            }
+        }
+        Assert.assertTrue(scores[0] > 0);
+        Assert.assertEquals(scores[1], scores[0], 1e-6f);
+    }
+
+    @Test
+    public void testShadowTerms() throws IOException {
+        ElasticsearchNLPPlugin.CONFIG.getSettings().getContext().setShadowTerms(true);
+        try (TestIndex index = TestIndex.of("Patient has a fever.", "Patient denies fever.", "Mother had a fever.", "Patient has a cough.")) {
+            IndexSearcher searcher = index.searcher;
+            // Shadow terms do not change the postings of the term itself
+            Assert.assertEquals(3, searcher.count(new NLPTermQuery(new NLPTerm(new Term(TestIndex.FIELD, "fever")))));
+            // Positive mentions only
+            Assert.assertEquals(2, searcher.count(new TermInSetQuery(TestIndex.FIELD, NLPContextShadowFilter.getShadowTerms("fever", 0, 0x1))));
+            // Family history only
+            Assert.assertEquals(1, searcher.count(new TermInSetQuery(TestIndex.FIELD, NLPContextShadowFilter.getShadowTerms("fever", 0x8, 0))));
+            // Exact status of the query term
+            Assert.assertEquals(1, searcher.count(NLPContextMode.SHADOW.toQuery(new NLPTerm(new Term(TestIndex.FIELD, "fever")))));
+        }
+    }
+
+    @Test
+    public void testIsWord() {
+        Assert.assertTrue(new NLPTerm(new Term(TestIndex.FIELD, "gerd")).isWord());
+        Assert.assertTrue(new NLPTerm(new Term(TestIndex.FIELD, "2010")).isWord());
+        Assert.assertFalse(new NLPTerm(new Term(TestIndex.FIELD, ".")).isWord());
+        Assert.assertFalse(new NLPTerm(new Term(TestIndex.FIELD, ",")).isWord());
+    }
+
+    @Test
+    public void testContextFilter() throws IOException {
+        for (boolean stateSummary : new boolean[]{true, false}) {
+            ElasticsearchNLPPlugin.CONFIG.getSettings().getContext().setStateSummary(stateSummary);
+            try (TestIndex index = TestIndex.of("Patient has a fever.", "Patient denies fever.", "Mother had a fever.",
+                    "Patient has a cough.", "Patient denies fever. Patient has a fever today.")) {
+                IndexSearcher searcher = index.searcher;
+                Term fever = new Term(TestIndex.FIELD, "fever");
+                // Positive mentions only
+                Assert.assertEquals(3, searcher.count(new NLPContextFilterQuery(fever, 0, 0x1)));
+                // Negated mentions only
+                Assert.assertEquals(2, searcher.count(new NLPContextFilterQuery(fever, 0x1, 0)));
+                // Family history only
+                Assert.assertEquals(1, searcher.count(new NLPContextFilterQuery(fever, 0x8, 0)));
+                // Exact status of the query term
+                Assert.assertEquals(2, searcher.count(NLPContextFilterQuery.exact(fever, 0)));
+                // Contradicting and absent constraints
+                Assert.assertEquals(0, searcher.count(new NLPContextFilterQuery(fever, 0x1, 0x1)));
+                Assert.assertEquals(4, searcher.count(new NLPContextFilterQuery(fever, 0, 0)));
+                // Payloads are verified in the second phase so that cheaper clauses can be checked first
+                Weight weight = searcher.createWeight(searcher.rewrite(new NLPContextFilterQuery(fever, 0, 0x1)),
+                        ScoreMode.COMPLETE_NO_SCORES, 1);
+                TwoPhaseIterator twoPhase = weight.scorer(index.reader.leaves().get(0)).twoPhaseIterator();
+                Assert.assertNotNull(twoPhase);
+                Assert.assertTrue(twoPhase.matchCost() > 0);
+                BooleanQuery conjunction = new BooleanQuery.Builder()
+                        .add(new TermQuery(new Term(TestIndex.FIELD, "patient")), BooleanClause.Occur.FILTER)
+                        .add(new NLPContextFilterQuery(fever, 0, 0x1), BooleanClause.Occur.FILTER)
+                        .build();
+                Assert.assertEquals(2, searcher.count(conjunction));
+            }
+            // The summary of the first value of a multi-valued field does not cover the occurrences in later values
+            try (TestIndex index = TestIndex.ofMultiValued(new String[]{"Patient denies fever.", "Patient has a fever."})) {
+                Term fever = new Term(TestIndex.FIELD, "fever");
+                Assert.assertEquals(1, index.searcher.count(new NLPContextFilterQuery(fever, 0, 0x1)));
+                Assert.assertEquals(1, index.searcher.count(new NLPContextFilterQuery(fever, 0x1, 0)));
+                Assert.assertEquals(0, index.searcher.count(new NLPContextFilterQuery(fever, 0x8, 0)));
+            }
+        }
+    }
+
+    @Test
+    public void testTopScoresMatchCompleteScoring() throws IOException {
+        String[] vocab = {"fever", "cough", "gerd", "pain", "chest", "the", "patient", "denies", "no", "possible",
+                "history", "of", "mother", "has", "."};
+        Random random = new Random(42);
+        String[] bodies = new String[2000];
+        for (int d = 0; d < bodies.length; d++) {
+            StringBuilder body = new StringBuilder();
+            int length = 5 + random.nextInt(40);
+            for (int i = 0; i < length; i++) {
+                body.append(vocab[random.nextInt(vocab.length)]).append(' ');
+            }
+            bodies[d] = body.toString();
+        }
+        try (TestIndex index = TestIndex.of(bodies)) {
+            IndexSearcher searcher = index.searcher;
+            for (int q = 0; q < 50; q++) {
+                BooleanQuery.Builder bq = new BooleanQuery.Builder();
+                int terms = 1 + random.nextInt(3);
+                for (int i = 0; i < terms; i++) {
+                    BytesRef pyld = new BytesRef(new byte[]{(byte) random.nextInt(16), 0});
+                    bq.add(new NLPTermQuery(new NLPTerm(new Term(TestIndex.FIELD, vocab[random.nextInt(5)]), pyld)), BooleanClause.Occur.SHOULD);
+                }
+                Query query = bq.build();
+                // Skipping non-competitive documents and their positions must not change the top hits
+                TopScoreDocCollector complete = TopScoreDocCollector.create(10, Integer.MAX_VALUE);
+                TopScoreDocCollector topScores = TopScoreDocCollector.create(10, 10);
+                searcher.search(query, complete);
+                searcher.search(query, topScores);
+                ScoreDoc[] expected = complete.topDocs().scoreDocs;
+                ScoreDoc[] actual = topScores.topDocs().scoreDocs;
+                Assert.assertEquals(expected.length, actual.length);
+                for (int i = 0; i < expected.length; i++) {
+                    Assert.assertEquals(expected[i].doc, actual[i].doc);
+                    Assert.assertEquals(expected[i].score, actual[i].score, 0f);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testNonScoringMatchesAllOccurrences() throws IOException {
+        try (TestIndex index = TestIndex.of("Patient has a fever.", "Patient denies fever.", "Mother had a fever.", "Patient has a cough.")) {
+            IndexSearcher searcher = index.searcher;
+            // Filters match regardless of payloads, like the term itself
+            NLPTermQuery query = new NLPTermQuery(new NLPTerm(new Term(TestIndex.FIELD, "fever"), new BytesRef(new byte[]{1, 0})));
+            Assert.assertEquals(3, searcher.count(query));
+            Assert.assertEquals(searcher.count(new TermQuery(new Term(TestIndex.FIELD, "fever"))), searcher.count(query));
+            Assert.assertEquals(0, searcher.count(new NLPTermQuery(new NLPTerm(new Term(TestIndex.FIELD, "rash")))));
+        }
+    }
+
+    @Test
+    public void testExplainFilterClause() throws IOException {
+        try (TestIndex index = TestIndex.of("Patient has a fever.", "Patient has a cough.")) {
+            IndexSearcher searcher = index.searcher;
+            // Uncached, filter clauses are explained through their non-scoring weight
+            searcher.setQueryCache(null);
+            Query query = new BooleanQuery.Builder()
+                    .add(new TermQuery(new Term(TestIndex.FIELD, "patient")), BooleanClause.Occur.MUST)
+                    .add(new NLPTermQuery(new NLPTerm(new Term(TestIndex.FIELD, "fever"))), BooleanClause.Occur.FILTER)
+                    .build();
+            Assert.assertTrue(searcher.explain(query, 0).isMatch());
+            Assert.assertFalse(searcher.explain(query, 1).isMatch());
+            Assert.assertEquals(searcher.explain(query, 0).getValue().floatValue(),
+                    searcher.search(query, 1).scoreDocs[0].score, 0f);
+        }
+    }
+}
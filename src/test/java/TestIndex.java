@@ -0,0 +1,91 @@
+/*
+ *  Copyright: (c) 2019 Mayo Foundation for Medical Education and
+ *  Research (MFMER). All rights reserved. MAYO, MAYO CLINIC, and the
+ *  triple-shield Mayo logo are trademarks and service marks of MFMER.
+ *
+ *  Except as contained in the copyright notice above, or as used to identify
+ *  MFMER as the author of this software, the trade names, trademarks, service
+ *  marks, or product names of the copyright holder shall not be used in
+ *  advertising, promotion or otherwise in connection with this software without
+ *  prior written authorization of the copyright holder.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.ohnlp.elasticsearchnlp.analyzers.NLPAnalyzer;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A small in-memory index of documents analyzed into the {@link #FIELD} field, for query tests
+ */
+public class TestIndex implements Closeable {
+    public static final String FIELD = "body";
+
+    private final Directory directory;
+    public final DirectoryReader reader;
+    public final IndexSearcher searcher;
+
+    private TestIndex(Analyzer analyzer, String[]... documents) throws IOException {
+        this.directory = new ByteBuffersDirectory();
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(analyzer))) {
+            for (String[] values : documents) {
+                Document doc = new Document();
+                for (String value : values) {
+                    doc.add(new TextField(FIELD, value, Field.Store.NO));
+                }
+                writer.addDocument(doc);
+            }
+        }
+        this.reader = DirectoryReader.open(directory);
+        this.searcher = new IndexSearcher(reader);
+    }
+
+    /**
+     * @param bodies The body of each document
+     * @return An index of one document per body, analyzed with a new {@link NLPAnalyzer}
+     */
+    public static TestIndex of(String... bodies) throws IOException {
+        String[][] documents = new String[bodies.length][];
+        for (int i = 0; i < bodies.length; i++) {
+            documents[i] = new String[]{bodies[i]};
+        }
+        return new TestIndex(new NLPAnalyzer(), documents);
+    }
+
+    /**
+     * @param documents The values of the (multi-valued) body of each document
+     * @return An index of the given documents, analyzed with a new {@link NLPAnalyzer}
+     */
+    public static TestIndex ofMultiValued(String[]... documents) throws IOException {
+        return new TestIndex(new NLPAnalyzer(), documents);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            reader.close();
+        } finally {
+            directory.close();
+        }
+    }
+}
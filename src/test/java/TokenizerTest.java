@@ -21,57 +21,323 @@
  *  limitations under the License.
  */
 
-import com.fasterxml.jackson.databind.MapperFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import org.junit.Assert;
-import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.elasticsearch.common.settings.Settings;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PayloadAttribute;
 import org.ohnlp.elasticsearchnlp.ElasticsearchNLPPlugin;
+import org.ohnlp.elasticsearchnlp.analyzers.NLPAnalyzerProvider;
+import org.apache.lucene.util.BytesRef;
+import org.ohnlp.elasticsearchnlp.analyzers.NLPAnalyzer;
 import org.ohnlp.elasticsearchnlp.analyzers.NLPTokenizer;
-import org.ohnlp.elasticsearchnlp.config.Config;
+import org.ohnlp.elasticsearchnlp.context.ConTexTRule;
+import org.ohnlp.elasticsearchnlp.context.ConTexTSettings;
+import org.ohnlp.elasticsearchnlp.context.ConTexTStatus;
+import org.ohnlp.elasticsearchnlp.context.ConTexTTrigger;
+import org.ohnlp.elasticsearchnlp.context.ConText;
 import org.ohnlp.elasticsearchnlp.payloads.NLPPayload;
 
 import java.io.IOException;
 import java.io.StringReader;
-import java.security.AccessController;
-import java.security.PrivilegedAction;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class TokenizerTest {
-    private static String TESTSTRING = "Mr. Test presents today with heartburn and possible fmhx GERD.";
+    @Rule
+    public final PluginConfigRule config = new PluginConfigRule();
 
-    @Before
-    public void loadConfig() throws IOException {
-        ObjectMapper om = new ObjectMapper(new YAMLFactory());
-        om.disable(MapperFeature.CAN_OVERRIDE_ACCESS_MODIFIERS);
-
-        ElasticsearchNLPPlugin.CONFIG = AccessController.doPrivileged((PrivilegedAction<Config>)() -> {
-            try {
-                return om.treeToValue(om.readTree(TokenizerTest.class.getResourceAsStream("/elasticsearch-nlp-plugin.yml")).get("esnlp"), Config.class);
-            } catch (IOException e) {
-                e.printStackTrace();
-                return null;
-            }
-        });
-    }
+    private static String TESTSTRING = "Mr. Test presents today with heartburn and possible fmhx GERD.";
+    // Sentences that between them match every regex rule group of the bundled ConText rules
+    private static final String[] REGEX_TESTSTRINGS = {
+            "Query pneumonia versus bronchitis; ? sepsis",
+            "Pain is not thought to be due to the medication",
+            "We do not see any findings that suggest malignancy and no evidence to suggest infection",
+            "Allergies: none. Fever: no",
+            "Cough and fever, all of which he denies",
+            "Diabetes, family history;",
+            "Headaches for the past 3 weeks of treatment, 20 days of fever and pain since last 2 weeks ago",
+            "There are no signs no doubt to suggest infection",
+            "Shortness of breath since january, no"
+    };
 
     @Test
     public void testTokenization() throws IOException {
-        NLPTokenizer tokenizer = new NLPTokenizer();
-        tokenizer.setReader(new StringReader(TESTSTRING));
-        tokenizer.reset();
-        Deque<NLPTokenizer.TokenPayloadPair> tokenQueue = tokenizer.tokenQueue;
-        NLPPayload gerdToken = tokenQueue.peekLast().getPayload();
+        Deque<NLPPayload> tokenQueue = payloads(new NLPTokenizer(), TESTSTRING);
+        NLPPayload gerdToken = tokenQueue.peekLast();
         Assert.assertFalse(gerdToken.isAsserted());
         Assert.assertFalse(gerdToken.patientIsSubject());
         Assert.assertFalse(gerdToken.isPresent());
         tokenQueue.removeLast();
         tokenQueue.removeLast();
         tokenQueue.removeLast();
-        NLPPayload heartburnToken = tokenQueue.peekLast().getPayload();
+        NLPPayload heartburnToken = tokenQueue.peekLast();
         Assert.assertTrue(heartburnToken.isAsserted());
         Assert.assertTrue(heartburnToken.isPresent());
         Assert.assertTrue(heartburnToken.patientIsSubject());
     }
+
+    @Test
+    public void testScopeWindow() throws IOException {
+        String text = "Patient denies fever chills headache nausea vomiting cough.";
+        Deque<NLPPayload> unboundedQueue = payloads(new NLPTokenizer(-1), text);
+        unboundedQueue.removeLast(); // Period
+        Assert.assertFalse(unboundedQueue.peekLast().isPositive()); // cough
+        Deque<NLPPayload> windowedQueue = payloads(new NLPTokenizer(2), text);
+        windowedQueue.removeFirst(); // Patient
+        windowedQueue.removeFirst(); // denies
+        Assert.assertFalse(windowedQueue.removeFirst().isPositive()); // fever
+        Assert.assertFalse(windowedQueue.removeFirst().isPositive()); // chills
+        Assert.assertTrue(windowedQueue.removeFirst().isPositive()); // headache
+        windowedQueue.removeLast(); // Period
+        Assert.assertTrue(windowedQueue.peekLast().isPositive()); // cough
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidScopeWindow() {
+        new NLPTokenizer(-2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidScopeWindowSetting() {
+        NLPAnalyzerProvider.getScopeWindow(Settings.builder().put(NLPAnalyzerProvider.SCOPE_WINDOW_SETTING, -2).build());
+    }
+
+    @Test
+    public void testRegexTriggers() {
+        NLPTokenizer tokenizer = new NLPTokenizer();
+        ConTexTSettings settings = tokenizer.contextSettings;
+        ConTexTRule[] rules = settings.getRegexRules();
+        Pattern[] patterns = settings.getRegexRulePatterns();
+        boolean[] matched = new boolean[rules.length];
+        for (String sentence : REGEX_TESTSTRINGS) {
+            List<List<ConTexTTrigger>> triggers = tokenizer.getRegexTriggers(sentence);
+            for (int rule = 0; rule < rules.length; rule++) {
+                // The single pass over the combined pattern must find what a separate scan of each rule group finds
+                List<String> expected = new ArrayList<>();
+                Matcher matcher = patterns[rule].matcher(sentence);
+                while (matcher.find()) {
+                    for (ConText context : rules[rule].getContexts()) {
+                        expected.add(context + "[" + matcher.start() + ", " + matcher.end() + ")");
+                    }
+                    matched[rule] = true;
+                }
+                List<String> actual = new ArrayList<>();
+                if (triggers.get(rule) != null) {
+                    for (ConTexTTrigger trigger : triggers.get(rule)) {
+                        actual.add(trigger.contextType + "[" + trigger.start + ", " + trigger.end + ")");
+                    }
+                }
+                Assert.assertEquals("Rule " + patterns[rule] + " on \"" + sentence + "\"", expected, actual);
+            }
+        }
+        for (int rule = 0; rule < rules.length; rule++) {
+            Assert.assertTrue("No test sentence matches " + patterns[rule], matched[rule]);
+        }
+    }
+
+    @Test
+    public void testScopeCarriesOverLaterTrigger() {
+        NLPTokenizer tokenizer = new NLPTokenizer();
+        // The negation scope of "no" is not closed by the historical trigger "history of"
+        ConTexTStatus fever = statusOf(tokenizer, "No history of fever", "fever");
+        Assert.assertFalse(fever.isPositive);
+        Assert.assertFalse(fever.isPresent);
+        // Nor by a later trigger of the same type, which is itself within the scope
+        Assert.assertFalse(statusOf(tokenizer, "No fever denies cough", "denies").isPositive);
+    }
+
+    @Test
+    public void testLeftwardScopeStopsAtTrigger() {
+        NLPTokenizer tokenizer = new NLPTokenizer();
+        Assert.assertFalse(statusOf(tokenizer, "Fever pneumonia is negative", "Fever").isPositive);
+        // The (rightward) negation trigger "denies" closes the leftward scope of "is negative"
+        String sentence = "Fever denies cough pneumonia is negative";
+        Assert.assertFalse(statusOf(tokenizer, sentence, "pneumonia").isPositive);
+        Assert.assertFalse(statusOf(tokenizer, sentence, "cough").isPositive);
+        Assert.assertTrue(statusOf(tokenizer, sentence, "Fever").isPositive);
+        // The leftward scope of the second "free" stops at the first, which is tagged before traversal
+        sentence = "Fever free cough free";
+        Assert.assertFalse(statusOf(tokenizer, sentence, "cough").isPositive);
+        Assert.assertTrue(statusOf(tokenizer, sentence, "free").isPositive);
+    }
+
+    @Test
+    public void testHypotheticalBeforeHistorical() {
+        NLPTokenizer tokenizer = new NLPTokenizer();
+        // A hypothetical scope clears the historical status, but is applied first within a traversal, so a historical
+        // scope covering the same token is retained
+        ConTexTStatus pneumonia = statusOf(tokenizer, "History of possible pneumonia", "pneumonia");
+        Assert.assertFalse(pneumonia.isAsserted);
+        Assert.assertFalse(pneumonia.isPresent);
+    }
+
+    @Test
+    public void testRunOnSentence() {
+        NLPTokenizer tokenizer = new NLPTokenizer();
+        String sentence = "No fever cough nausea vomiting diarrhea headache dizziness fatigue rash or chills and the dog "
+                + "walked home after lunch";
+        ConTexTStatus[] statuses = tokenizer.annotateConTextStatuses(tokenizer.flattenByPriority(tokenizer.getTriggers(sentence)), sentence);
+        // Without a terminal, the scope of "no" extends to the end of the sentence
+        for (int i = sentence.indexOf(' '); i < sentence.length(); i++) {
+            if (sentence.charAt(i) != ' ') {
+                Assert.assertFalse("Not negated at " + i, statuses[i].isPositive);
+            }
+        }
+    }
+
+    private static ConTexTStatus statusOf(NLPTokenizer tokenizer, String sentence, String word) {
+        ConTexTStatus[] statuses = tokenizer.annotateConTextStatuses(tokenizer.flattenByPriority(tokenizer.getTriggers(sentence)), sentence);
+        return statuses[sentence.indexOf(word)];
+    }
+
+    @Test
+    public void testStreamingTokenization() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            text.append(TESTSTRING).append(" Patient denies chest pain.\nNo evidence of fracture. ");
+        }
+        List<String> expected = tokenize(new NLPTokenizer(-1, -1), text.toString());
+        List<String> streamed = tokenize(new NLPTokenizer(-1, 256), text.toString());
+        Assert.assertEquals(expected, streamed);
+    }
+
+    @Test
+    public void testStreamingRunOnSentence() throws IOException {
+        // A single sentence several times longer than the buffer, with a negation trigger well before the first split
+        StringBuilder text = new StringBuilder("Patient denies");
+        for (int i = 0; i < 60; i++) {
+            text.append(" fever chills nausea");
+        }
+        text.append(" or headache");
+        List<String> expected = tokenize(new NLPTokenizer(-1, -1), text.toString());
+        List<String> streamed = tokenize(new NLPTokenizer(-1, 256), text.toString());
+        Assert.assertEquals(expected, streamed);
+        Assert.assertFalse(payloads(new NLPTokenizer(-1, 256), text.toString()).peekLast().isPositive()); // headache
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidStreamingBufferSize() {
+        new NLPTokenizer(-1, 16);
+    }
+
+    @Test
+    public void testOmitDefaultPayloads() throws IOException {
+        List<String> full = tokenize(new NLPTokenizer(-1, -1, false), TESTSTRING);
+        List<String> omitted = tokenize(new NLPTokenizer(-1, -1, true), TESTSTRING);
+        Assert.assertEquals(full.size(), omitted.size());
+        for (int i = 0; i < full.size() - 1; i++) {
+            // Default payloads ([0 0]) are omitted, all others are retained
+            Assert.assertEquals(full.get(i).replace("[0 0]", "null"), omitted.get(i));
+        }
+    }
+
+    @Test
+    public void testCompactPayloads() throws IOException {
+        String text = TESTSTRING + " Patient denies chest pain. History of MI in 2010. Rule out pneumonia.";
+        List<NLPPayload> standard = new ArrayList<>(payloads(new NLPTokenizer(-1, -1, false, false), text));
+        List<NLPPayload> compact = new ArrayList<>(payloads(new NLPTokenizer(-1, -1, false, true), text));
+        Assert.assertEquals(standard.size(), compact.size());
+        for (int i = 0; i < standard.size(); i++) {
+            NLPPayload expected = standard.get(i);
+            NLPPayload actual = compact.get(i);
+            Assert.assertEquals(expected.toString(), actual.toString());
+            Assert.assertEquals(expected.isNegationTrigger(), actual.isNegationTrigger());
+            Assert.assertEquals(expected.isAssertionTrigger(), actual.isAssertionTrigger());
+            Assert.assertEquals(expected.isHistoricalTrigger(), actual.isHistoricalTrigger());
+            Assert.assertEquals(expected.isExperiencerTrigger(), actual.isExperiencerTrigger());
+        }
+        for (int context = 0; context < 16; context++) {
+            for (int triggers = 0; triggers < 16; triggers++) {
+                BytesRef compactPayload = new BytesRef(new byte[]{NLPPayload.toCompactByte(context, triggers), 0x34, 0x12, 0x02, 0x01});
+                compactPayload.length = 1;
+                Assert.assertEquals(context, NLPPayload.getContextBits(compactPayload));
+                Assert.assertEquals(triggers, NLPPayload.getTriggerBits(compactPayload));
+                Assert.assertEquals(0, NLPPayload.getStateSummary(compactPayload));
+                compactPayload.length = 1 + NLPPayload.SUMMARY_BYTES;
+                Assert.assertEquals(triggers, NLPPayload.getTriggerBits(compactPayload));
+                Assert.assertEquals(0x1234, NLPPayload.getStateSummary(compactPayload));
+                Assert.assertEquals(0x0102, NLPPayload.getStateSummaryCount(compactPayload));
+            }
+        }
+    }
+
+    @Test
+    public void testOmitDefaultPayloadsSetting() {
+        Assert.assertFalse(NLPAnalyzerProvider.getOmitDefaultPayloads(Settings.EMPTY));
+        Assert.assertTrue(NLPAnalyzerProvider.getOmitDefaultPayloads(Settings.builder()
+                .put(NLPAnalyzerProvider.OMIT_DEFAULT_PAYLOADS_SETTING, true).build()));
+    }
+
+    @Test
+    public void testStateSummary() throws IOException {
+        List<BytesRef> fever = new ArrayList<>();
+        try (TokenStream stream = new NLPAnalyzer(-1, -1, true, false, true).tokenStream("body", "Patient has a fever. Patient denies fever. Fever persists.")) {
+            CharTermAttribute termAtt = stream.addAttribute(CharTermAttribute.class);
+            PayloadAttribute payloadAtt = stream.addAttribute(PayloadAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                if (termAtt.toString().equals("fever")) {
+                    BytesRef payload = payloadAtt.getPayload();
+                    fever.add(payload == null ? null : BytesRef.deepCopyOf(payload));
+                }
+            }
+            stream.end();
+        }
+        Assert.assertEquals(3, fever.size());
+        // Only the first occurrence carries the summary, which covers the positive and the negated occurrences
+        // The first occurrence is the default and therefore written in the compact format
+        Assert.assertEquals(1 + NLPPayload.SUMMARY_BYTES, fever.get(0).length);
+        Assert.assertEquals((1 << 0) | (1 << 1), NLPPayload.getStateSummary(fever.get(0)));
+        Assert.assertEquals(3, NLPPayload.getStateSummaryCount(fever.get(0)));
+        Assert.assertEquals(0, NLPPayload.getStateSummary(fever.get(1)));
+        Assert.assertEquals(0, NLPPayload.getStateSummary(fever.get(2)));
+        Assert.assertFalse(new NLPPayload(fever.get(1)).isPositive());
+        // Default payloads are omitted
+        Assert.assertNull(fever.get(2));
+    }
+
+    @Test
+    public void testStateSummarySetting() {
+        Assert.assertFalse(NLPAnalyzerProvider.getStateSummary(Settings.EMPTY));
+        Assert.assertTrue(NLPAnalyzerProvider.getStateSummary(Settings.builder()
+                .put(NLPAnalyzerProvider.STATE_SUMMARY_SETTING, true).build()));
+    }
+
+    private static Deque<NLPPayload> payloads(NLPTokenizer tokenizer, String text) throws IOException {
+        PayloadAttribute payloadAtt = tokenizer.addAttribute(PayloadAttribute.class);
+        Deque<NLPPayload> ret = new ArrayDeque<>();
+        tokenizer.setReader(new StringReader(text));
+        tokenizer.reset();
+        while (tokenizer.incrementToken()) {
+            ret.addLast(new NLPPayload(payloadAtt.getPayload()));
+        }
+        tokenizer.end();
+        tokenizer.close();
+        return ret;
+    }
+
+    private static List<String> tokenize(NLPTokenizer tokenizer, String text) throws IOException {
+        CharTermAttribute termAtt = tokenizer.addAttribute(CharTermAttribute.class);
+        OffsetAttribute offsetAtt = tokenizer.addAttribute(OffsetAttribute.class);
+        PayloadAttribute payloadAtt = tokenizer.addAttribute(PayloadAttribute.class);
+        List<String> ret = new ArrayList<>();
+        tokenizer.setReader(new StringReader(text));
+        tokenizer.reset();
+        while (tokenizer.incrementToken()) {
+            ret.add(termAtt.toString() + "[" + offsetAtt.startOffset() + "," + offsetAtt.endOffset() + "]"
+                    + payloadAtt.getPayload());
+        }
+        tokenizer.end();
+        ret.add("END" + offsetAtt.endOffset());
+        tokenizer.close();
+        return ret;
+    }
 }